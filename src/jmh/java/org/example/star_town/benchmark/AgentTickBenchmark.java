@@ -0,0 +1,75 @@
+package org.example.star_town.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.star_town.actions.EatAction;
+import org.example.star_town.actions.MoveAction;
+import org.example.star_town.actions.SleepAction;
+import org.example.star_town.actions.SocializeAction;
+import org.example.star_town.actions.WorkAction;
+import org.example.star_town.agent.Agent;
+import org.example.star_town.agent.AgentConfig;
+import org.example.star_town.agent.AgentManager;
+import org.example.star_town.agent.AgentType;
+import org.example.star_town.ai.goap.Goal;
+import org.example.star_town.service.BehaviorTreeConfigService;
+import org.example.star_town.world.Position;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 完整tick基准测试
+ * 一次AgentManager.updateAllAgents：行为树、GOAP规划与动作推进，智能体配置与示例小镇相同
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class AgentTickBenchmark {
+
+    private static final AgentType[] TYPES = {AgentType.RESIDENT, AgentType.WORKER, AgentType.MERCHANT};
+
+    @Param({"1000", "10000", "100000"})
+    private int agentCount;
+
+    @Param({"true", "false"})
+    private boolean parallel;
+
+    private AgentManager agentManager;
+
+    @Setup
+    public void setUp() {
+        agentManager = new AgentManager(new BehaviorTreeConfigService(new ObjectMapper()));
+        agentManager.setParallelTick(parallel);
+        SplittableRandom random = new SplittableRandom(42);
+        double worldSize = Math.sqrt(agentCount) * 30;
+        for (int i = 0; i < agentCount; i++) {
+            String id = "agent-" + i;
+            AgentType type = TYPES[i % TYPES.length];
+            Agent agent = agentManager.createAgent(id, id, type, new AgentConfig(id, id, type));
+            agent.setPosition(new Position(random.nextDouble(worldSize), random.nextDouble(worldSize)));
+            agent.setState("hunger", random.nextInt(100));
+            agent.setState("energy", random.nextInt(100));
+            agent.addAction(new MoveAction());
+            agent.addAction(new EatAction());
+            agent.addAction(new SleepAction());
+            agent.addAction(type == AgentType.RESIDENT ? new SocializeAction() : new WorkAction(type.name()));
+            agent.addGoal(new Goal("BasicNeeds").addDesiredState("hungerSatisfied", true));
+            agent.addGoal(new Goal("Rest").addDesiredState("energyRestored", true));
+        }
+        agentManager.start();
+    }
+
+    @TearDown
+    public void tearDown() {
+        agentManager.stop();
+    }
+
+    @Benchmark
+    public void updateAllAgents() {
+        agentManager.updateAllAgents();
+    }
+}
@@ -0,0 +1,65 @@
+package org.example.star_town.benchmark;
+
+import org.example.star_town.ai.behavior.BehaviorContext;
+import org.example.star_town.ai.behavior.BehaviorLibrary;
+import org.example.star_town.ai.behavior.BehaviorNode;
+import org.example.star_town.ai.behavior.BehaviorTreeCompiler;
+import org.example.star_town.ai.behavior.CompiledBehaviorTree;
+import org.example.star_town.ai.behavior.ContextKey;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 行为树执行基准测试
+ * 对比对象图解释执行和编译后的指令数组执行
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BehaviorTreeBenchmark {
+
+    /**
+     * idle：所有分支都不满足，完整遍历整棵树；hungry：命中第二个分支的动作
+     */
+    @Param({"idle", "hungry"})
+    private String scenario;
+
+    private BehaviorNode root;
+    private CompiledBehaviorTree compiledTree;
+    private CompiledBehaviorTree.ExecutionState compiledState;
+    private BehaviorContext context;
+    private int hunger;
+
+    @Setup
+    public void setUp() {
+        root = BehaviorLibrary.getInstance()
+                .buildCompositeTree(List.of("UrgentNeeds", "BasicNeeds", "SocialNeeds", "Work"), "selector");
+        compiledTree = BehaviorTreeCompiler.compile(root);
+        compiledState = compiledTree.newState();
+
+        hunger = "hungry".equals(scenario) ? 80 : 50;
+        context = new BehaviorContext("benchmark-agent");
+        context.loadInt(ContextKey.ENERGY, 70);
+        context.loadInt(ContextKey.HAPPINESS, 60);
+        context.loadInt(ContextKey.INCOME, 0);
+        context.loadInt(ContextKey.NEARBY_AGENT_COUNT, 0);
+        context.loadBoolean(ContextKey.HAS_WORKPLACE, false);
+    }
+
+    @Benchmark
+    public BehaviorNode.Status objectGraphExecute() {
+        context.loadInt(ContextKey.HUNGER, hunger);
+        return root.execute(context);
+    }
+
+    @Benchmark
+    public BehaviorNode.Status compiledTick() {
+        context.loadInt(ContextKey.HUNGER, hunger);
+        return compiledTree.tick(context, compiledState);
+    }
+}
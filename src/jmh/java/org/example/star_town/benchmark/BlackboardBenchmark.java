@@ -0,0 +1,66 @@
+package org.example.star_town.benchmark;
+
+import org.example.star_town.ai.blackboard.Blackboard;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 黑板基准测试
+ * 多线程同时读写同一个黑板：全局键读多写少，智能体键各线程读写自己的智能体
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BlackboardBenchmark {
+
+    private static final int AGENTS = 1024;
+
+    private Blackboard blackboard;
+
+    @Setup
+    public void setUp() {
+        blackboard = new Blackboard();
+        blackboard.setGlobal("weather", "sunny");
+        blackboard.setGlobal("time", 0L);
+        for (int i = 0; i < AGENTS; i++) {
+            blackboard.setAgent("agent-" + i, "hunger", i % 100);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+        private String agentId;
+        private int counter;
+
+        @Setup
+        public void setUp(ThreadParams params) {
+            agentId = "agent-" + params.getThreadIndex() % AGENTS;
+        }
+    }
+
+    @Benchmark
+    @Group("global")
+    @GroupThreads(3)
+    public String globalRead() {
+        return blackboard.getGlobal("weather", String.class);
+    }
+
+    @Benchmark
+    @Group("global")
+    @GroupThreads(1)
+    public void globalWrite(ThreadState thread) {
+        blackboard.setGlobal("time", (long) thread.counter++);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Integer agentReadWrite(ThreadState thread) {
+        blackboard.setAgent(thread.agentId, "hunger", thread.counter++ & 127);
+        return blackboard.getAgent(thread.agentId, "hunger", Integer.class);
+    }
+}
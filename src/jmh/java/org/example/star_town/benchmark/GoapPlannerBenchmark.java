@@ -0,0 +1,78 @@
+package org.example.star_town.benchmark;
+
+import org.example.star_town.ai.goap.Action;
+import org.example.star_town.ai.goap.ActionContext;
+import org.example.star_town.ai.goap.GoapPlanner;
+import org.example.star_town.ai.goap.Goal;
+import org.example.star_town.ai.goap.PlanCache;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GOAP规划基准测试
+ * 动作集逐步增大时的A*搜索耗时，以及命中计划缓存时的耗时
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GoapPlannerBenchmark {
+
+    private static final int GOAL_FLAGS = 4;
+
+    @Param({"8", "32", "128"})
+    private int actionCount;
+
+    @Param({"false", "true"})
+    private boolean cached;
+
+    private GoapPlanner planner;
+    private Map<String, Object> state;
+    private Goal goal;
+    private List<Action> actions;
+
+    @Setup
+    public void setUp() {
+        planner = new GoapPlanner(new PlanCache(cached ? 1024 : 0));
+        state = new HashMap<>();
+        state.put("hunger", 80);
+        state.put("energy", 40);
+
+        // 目标需要同时满足若干标志，每个标志有多个代价不同的动作可以达成
+        goal = new Goal("Benchmark");
+        for (int i = 0; i < GOAL_FLAGS; i++) {
+            goal.addDesiredState("flag" + i, true);
+        }
+        actions = new ArrayList<>();
+        for (int i = 0; i < actionCount; i++) {
+            BenchmarkAction action = new BenchmarkAction("action-" + i, 1 + (i * 7) % 5);
+            action.addEffect("flag" + (i % GOAL_FLAGS), true);
+            action.addEffect("noise" + (i % 16), i);
+            actions.add(action);
+        }
+    }
+
+    @Benchmark
+    public List<Action> createPlan() {
+        return planner.createPlan(state, goal, actions);
+    }
+
+    private static final class BenchmarkAction extends Action {
+        private BenchmarkAction(String name, int cost) {
+            super(name);
+            this.cost = cost;
+        }
+
+        @Override
+        public boolean execute(ActionContext context) {
+            return true;
+        }
+    }
+}
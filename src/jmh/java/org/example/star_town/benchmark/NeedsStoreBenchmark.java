@@ -0,0 +1,79 @@
+package org.example.star_town.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.star_town.agent.Agent;
+import org.example.star_town.agent.AgentConfig;
+import org.example.star_town.agent.AgentManager;
+import org.example.star_town.agent.AgentType;
+import org.example.star_town.agent.NeedsStore;
+import org.example.star_town.service.BehaviorTreeConfigService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 需求存储基准测试
+ * 对所有智能体做一次阈值统计和需求衰减：逐个智能体按键读写状态，对比按列扫描需求存储
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NeedsStoreBenchmark {
+
+    @Param({"1000", "100000"})
+    private int agentCount;
+
+    private AgentManager agentManager;
+    private Agent[] agents;
+    private NeedsStore needsStore;
+
+    @Setup
+    public void setUp() {
+        agentManager = new AgentManager(new BehaviorTreeConfigService(new ObjectMapper()));
+        agents = new Agent[agentCount];
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < agentCount; i++) {
+            String id = "agent-" + i;
+            agents[i] = agentManager.createAgent(id, id, AgentType.RESIDENT,
+                    new AgentConfig(id, id, AgentType.RESIDENT));
+            agents[i].setState("hunger", random.nextInt(100));
+        }
+        needsStore = agentManager.getNeedsStore();
+    }
+
+    @Benchmark
+    public int countHungryByState() {
+        int count = 0;
+        for (Agent agent : agents) {
+            Integer hunger = agent.getState("hunger", Integer.class);
+            if (hunger != null && hunger > 70) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int countHungryByColumn() {
+        return needsStore.countAbove(NeedsStore.Need.HUNGER, 70);
+    }
+
+    @Benchmark
+    public void decayByState() {
+        for (Agent agent : agents) {
+            Integer hunger = agent.getState("hunger", Integer.class);
+            if (hunger != null) {
+                agent.setState("hunger", Math.min(100, hunger + 1));
+            }
+        }
+    }
+
+    @Benchmark
+    public void decayByColumn() {
+        needsStore.addClamped(NeedsStore.Need.HUNGER, 1, 0, 100);
+    }
+}
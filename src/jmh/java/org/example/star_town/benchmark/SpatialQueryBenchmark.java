@@ -0,0 +1,87 @@
+package org.example.star_town.benchmark;
+
+import org.example.star_town.agent.Agent;
+import org.example.star_town.agent.AgentConfig;
+import org.example.star_town.agent.AgentType;
+import org.example.star_town.model.WorldObjectEntity;
+import org.example.star_town.world.AgentSpatialIndex;
+import org.example.star_town.world.Position;
+import org.example.star_town.world.WorldObjectIndex;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 空间查询基准测试
+ * GameWorld.getNearbyAgents和getNearbyObjects背后的两个网格索引，实体均匀分布在世界中
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SpatialQueryBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    private int entityCount;
+
+    @Param({"50"})
+    private double radius;
+
+    private double worldSize;
+    private AgentSpatialIndex agentIndex;
+    private WorldObjectIndex objectIndex;
+    private Agent[] agents;
+    private SplittableRandom random;
+
+    @Setup
+    public void setUp() {
+        // 世界大小随实体数增长，保持密度不变
+        worldSize = Math.sqrt(entityCount) * 30;
+        random = new SplittableRandom(42);
+        agentIndex = new AgentSpatialIndex(50, radius);
+        objectIndex = new WorldObjectIndex(100);
+        agents = new Agent[entityCount];
+        for (int i = 0; i < entityCount; i++) {
+            Agent agent = new Agent("agent-" + i, "Agent " + i, AgentType.RESIDENT,
+                    new AgentConfig("agent-" + i, "Agent " + i, AgentType.RESIDENT));
+            agent.setSpatialIndex(agentIndex);
+            agent.setPosition(new Position(random.nextDouble(worldSize), random.nextDouble(worldSize)));
+            agents[i] = agent;
+
+            WorldObjectEntity object = new WorldObjectEntity();
+            object.setId((long) i);
+            object.setName("object-" + i);
+            object.setType("BENCHMARK");
+            object.setPositionX(random.nextDouble(worldSize));
+            object.setPositionY(random.nextDouble(worldSize));
+            object.setWidth(random.nextDouble(20));
+            object.setHeight(random.nextDouble(20));
+            objectIndex.update(object);
+        }
+    }
+
+    @Benchmark
+    public List<Agent> nearbyAgents() {
+        return agentIndex.query(random.nextDouble(worldSize), random.nextDouble(worldSize), radius);
+    }
+
+    @Benchmark
+    public int countNeighbors() {
+        return agentIndex.countNeighbors(agents[random.nextInt(entityCount)]);
+    }
+
+    @Benchmark
+    public List<WorldObjectEntity> nearbyObjects() {
+        return objectIndex.query(random.nextDouble(worldSize), random.nextDouble(worldSize), radius);
+    }
+
+    @Benchmark
+    public void moveAgent() {
+        Agent agent = agents[random.nextInt(entityCount)];
+        agent.setPosition(new Position(random.nextDouble(worldSize), random.nextDouble(worldSize)));
+    }
+}
@@ -48,14 +48,6 @@ public class EatAction extends Action {
     public boolean execute(ActionContext context) {
         log.debug("Agent {} eating", context.getAgentId());
         
-        // 模拟进食过程
-        try {
-            Thread.sleep(50); // 模拟进食耗时
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            return false;
-        }
-        
         // 记录进食信息
         context.put("foodConsumed", hungerReduction);
         context.put("eatTime", System.currentTimeMillis());
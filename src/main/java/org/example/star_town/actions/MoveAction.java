@@ -13,7 +13,6 @@ import org.example.star_town.world.Position;
 public class MoveAction extends Action {
     
     private final double speed;
-    private Position targetPosition;
     
     public MoveAction() {
         super("Move");
@@ -29,10 +28,20 @@ public class MoveAction extends Action {
         this.cost = 2;
     }
     
+    @Override
+    public Status update(ActionContext context) {
+        // 没有目标位置时立即失败，不必等待移动时长
+        if (!context.contains("targetPosition")) {
+            log.warn("MoveAction: No target position provided");
+            return Status.FAILURE;
+        }
+        return super.update(context);
+    }
+    
     @Override
     public boolean execute(ActionContext context) {
-        // 从上下文获取目标位置
-        targetPosition = context.get("targetPosition", Position.class);
+        // 目标位置保存在每次执行的上下文中，同一个动作实例可以被多个智能体共享
+        Position targetPosition = context.get("targetPosition", Position.class);
         if (targetPosition == null) {
             log.warn("MoveAction: No target position provided");
             return false;
@@ -52,6 +61,5 @@ public class MoveAction extends Action {
     @Override
     public void reset() {
         super.reset();
-        targetPosition = null;
     }
 }
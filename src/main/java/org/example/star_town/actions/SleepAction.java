@@ -48,14 +48,6 @@ public class SleepAction extends Action {
     public boolean execute(ActionContext context) {
         log.debug("Agent {} sleeping", context.getAgentId());
         
-        // 模拟睡眠过程
-        try {
-            Thread.sleep(100); // 模拟睡眠耗时
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            return false;
-        }
-        
         // 记录睡眠信息
         context.put("sleepDuration", duration);
         context.put("sleepTime", System.currentTimeMillis());
@@ -56,14 +56,6 @@ public class SocializeAction extends Action {
             log.debug("Agent {} socializing with nearby agents", context.getAgentId());
         }
         
-        // 模拟社交过程
-        try {
-            Thread.sleep(50); // 模拟社交耗时
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            return false;
-        }
-        
         // 记录社交信息
         context.put("socialPartner", targetAgentId);
         context.put("socialTime", System.currentTimeMillis());
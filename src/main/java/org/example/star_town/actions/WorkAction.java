@@ -47,14 +47,6 @@ public class WorkAction extends Action {
     public boolean execute(ActionContext context) {
         log.debug("Agent {} working as {}", context.getAgentId(), workType);
         
-        // 模拟工作过程
-        try {
-            Thread.sleep(100); // 模拟工作耗时
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            return false;
-        }
-        
         // 记录工作完成
         context.put("workType", workType);
         context.put("workTime", System.currentTimeMillis());
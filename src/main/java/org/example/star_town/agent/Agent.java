@@ -1,17 +1,24 @@
 package org.example.star_town.agent;
 
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import org.example.star_town.ai.behavior.BehaviorContext;
 import org.example.star_town.ai.behavior.BehaviorNode;
+import org.example.star_town.ai.behavior.CompiledBehaviorTree;
+import org.example.star_town.ai.behavior.ContextKey;
 import org.example.star_town.ai.blackboard.Blackboard;
 import org.example.star_town.ai.goap.*;
+import org.example.star_town.monitoring.TickPhase;
+import org.example.star_town.monitoring.TickProfiler;
 import org.example.star_town.service.BehaviorTreeConfigService;
+import org.example.star_town.world.AgentSpatialIndex;
 import org.example.star_town.world.Position;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * 智能体
@@ -22,11 +29,25 @@ import java.util.concurrent.ConcurrentHashMap;
 @Setter
 public class Agent {
     
+    // 持久化脏标记
+    public static final int DIRTY_POSITION = 1;
+    public static final int DIRTY_STATUS = 1 << 1;
+    public static final int DIRTY_STATE = 1 << 2;
+    public static final int DIRTY_MEMORY = 1 << 3;
+    public static final int DIRTY_CONFIG = 1 << 4;
+    public static final int DIRTY_ALL = DIRTY_POSITION | DIRTY_STATUS | DIRTY_STATE | DIRTY_MEMORY | DIRTY_CONFIG;
+
+    // 状态在黑板中以"state.<键>"逐键保存
+    public static final String BLACKBOARD_STATE_PREFIX = "state.";
+    private static final Map<String, String> BLACKBOARD_STATE_KEYS = new ConcurrentHashMap<>();
+    
     private String id;
     private String name;
     private AgentType type;
     private Position position;
-    private Map<String, Object> state;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private final AgentStateMap state; // 核心需求接入共享需求存储后保存在列中
     private List<Goal> goals;
     private List<Action> availableActions;
     private BehaviorNode behaviorTree;
@@ -39,6 +60,36 @@ public class Agent {
     private long lastUpdateTime;
     private Map<String, Object> memory;
     private BehaviorTreeConfigService behaviorTreeService;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private CompiledBehaviorTree.ExecutionState behaviorTreeState; // 本智能体在共享编译行为树上的执行状态
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private BehaviorContext behaviorContext; // 跨tick复用的行为树上下文
+    @Getter(AccessLevel.NONE)
+    private PlanningService planningService; // 为null时在tick线程上同步规划
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private PlanningService.PlanRequest pendingPlan; // 尚未取回结果的规划请求
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private ActionContext currentActionContext; // 当前动作的执行上下文，动作结束后清空
+    @Getter(AccessLevel.NONE)
+    private AgentSpatialIndex spatialIndex; // 所属的空间索引，位置变化时通知
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private final AtomicInteger dirtyFlags = new AtomicInteger(); // 自上次持久化以来修改过的部分
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private volatile long dirtySince; // 最早一次未持久化修改的时间
+    @Getter(AccessLevel.NONE)
+    private TickProfiler profiler; // 性能剖析器，采样tick中记录各阶段耗时
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private TickProfiler activeProfiler; // 本次更新使用的剖析器，未采样时为null
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private volatile long lowDetailSince = -1; // 进入低细节模拟时的游戏时间，-1表示完整模拟
     
     public enum AgentStatus {
         IDLE,       // 空闲
@@ -53,7 +104,7 @@ public class Agent {
         this.name = name;
         this.type = type;
         this.config = config;
-        this.state = new ConcurrentHashMap<>();
+        this.state = new AgentStateMap(this);
         this.goals = new ArrayList<>();
         this.availableActions = new ArrayList<>();
         this.planner = new GoapPlanner();
@@ -78,7 +129,6 @@ public class Agent {
         setState("health", 90);
         setState("hasFood", false);
         setState("hasWorkplace", false);
-        setState("nearbyAgents", new ArrayList<>());
         setState("income", 0);
         setState("money", 100);
     }
@@ -87,22 +137,45 @@ public class Agent {
      * 更新智能体状态
      */
     public void update() {
+        if (lowDetailSince >= 0) {
+            return;
+        }
         long currentTime = System.currentTimeMillis();
+        AgentStatus previousStatus = status;
+        TickProfiler tickProfiler = profiler;
+        activeProfiler = tickProfiler != null && tickProfiler.isSampling() ? tickProfiler : null;
+        long updateStart = phaseStart();
         
         try {
+            // 离开思考状态后，未完成的规划请求已经过时
+            if (pendingPlan != null && status != AgentStatus.THINKING) {
+                cancelPendingPlan();
+            }
+            if (currentActionContext != null && status != AgentStatus.EXECUTING) {
+                currentActionContext = null;
+            }
+            
             // 首先执行行为树
             if (behaviorTreeService != null && config.isAiEnabled()) {
+                long start = phaseStart();
                 executeBehaviorTree();
+                phaseEnd(TickPhase.BEHAVIOR_TREE, start);
             }
             
             // 然后执行GOAP逻辑
             switch (status) {
-                case IDLE:
+                case IDLE: {
+                    long start = phaseStart();
                     handleIdleState();
+                    phaseEnd(TickPhase.GOAP_PLAN, start);
                     break;
-                case THINKING:
+                }
+                case THINKING: {
+                    long start = phaseStart();
                     handleThinkingState();
+                    phaseEnd(TickPhase.GOAP_PLAN, start);
                     break;
+                }
                 case EXECUTING:
                     handleExecutingState();
                     break;
@@ -118,7 +191,58 @@ public class Agent {
             status = AgentStatus.ERROR;
         }
         
+        if (status != previousStatus) {
+            markDirty(DIRTY_STATUS);
+        }
         lastUpdateTime = currentTime;
+        
+        if (activeProfiler != null) {
+            activeProfiler.recordAgent(id, System.nanoTime() - updateStart);
+            activeProfiler = null;
+        }
+    }
+    
+    /**
+     * 采样tick中返回阶段开始时间
+     */
+    private long phaseStart() {
+        return activeProfiler != null ? System.nanoTime() : 0;
+    }
+    
+    /**
+     * 采样tick中记录阶段耗时
+     */
+    private void phaseEnd(TickPhase phase, long start) {
+        TickProfiler tickProfiler = activeProfiler;
+        if (tickProfiler != null) {
+            tickProfiler.record(phase, System.nanoTime() - start);
+        }
+    }
+    
+    /**
+     * 设置位置并同步空间索引
+     * 原地修改{@link Position}不会通知索引，移动时应设置新的位置对象
+     */
+    public void setPosition(Position position) {
+        this.position = position;
+        markDirty(DIRTY_POSITION);
+        AgentSpatialIndex index = spatialIndex;
+        if (index != null) {
+            index.update(this);
+        }
+    }
+    
+    /**
+     * 感知范围内的其他智能体数量，有空间索引时按网格查询，
+     * 否则使用显式设置的nearbyAgents状态（邻居不作为默认状态保存，避免每个tick复制一份邻居列表）
+     */
+    private int countNearbyAgents() {
+        AgentSpatialIndex index = spatialIndex;
+        if (index != null) {
+            return index.countNeighbors(this);
+        }
+        List<?> nearbyAgents = getState("nearbyAgents", List.class);
+        return nearbyAgents != null ? nearbyAgents.size() : 0;
     }
     
     /**
@@ -126,21 +250,32 @@ public class Agent {
      */
     private void executeBehaviorTree() {
         try {
-            BehaviorNode tree = behaviorTreeService.getBehaviorTree(this);
+            CompiledBehaviorTree tree = behaviorTreeService.getCompiledBehaviorTree(this);
             if (tree != null) {
-                BehaviorContext context = new BehaviorContext(id);
-                
-                // 安全地设置上下文数据，避免null值
-                context.putSafe("hunger", getState("hunger", Integer.class), 50);
-                context.putSafe("energy", getState("energy", Integer.class), 70);
-                context.putSafe("happiness", getState("happiness", Integer.class), 60);
-                context.putSafe("hasFood", getState("hasFood", Boolean.class), false);
-                context.putSafe("hasWorkplace", getState("hasWorkplace", Boolean.class), false);
-                context.putSafe("nearbyAgents", getState("nearbyAgents", List.class), new java.util.ArrayList<>());
+                // 行为树缓存重建后，运行时状态需要随之重建
+                if (behaviorTreeState == null || !behaviorTreeState.belongsTo(tree)) {
+                    behaviorTreeState = tree.newState();
+                }
                 
-
+                // 复用同一个上下文，按槽位装入需求值，避免null值
+                if (behaviorContext == null) {
+                    behaviorContext = new BehaviorContext(id);
+                }
+                BehaviorContext context = behaviorContext;
+                context.reset();
+                context.loadInt(ContextKey.HUNGER, getNeed(NeedsStore.Need.HUNGER));
+                context.loadInt(ContextKey.ENERGY, getNeed(NeedsStore.Need.ENERGY));
+                context.loadInt(ContextKey.HAPPINESS, getNeed(NeedsStore.Need.HAPPINESS));
+                context.loadInt(ContextKey.INCOME, getNeed(NeedsStore.Need.INCOME));
+                context.loadBoolean(ContextKey.HAS_FOOD, Boolean.TRUE.equals(getState("hasFood", Boolean.class)));
+                context.loadBoolean(ContextKey.HAS_WORKPLACE, Boolean.TRUE.equals(getState("hasWorkplace", Boolean.class)));
+                // 附近智能体数需要空间查询，只在树中有节点读取时装入
+                if (tree.reads(ContextKey.NEARBY_AGENT_COUNT)) {
+                    context.loadInt(ContextKey.NEARBY_AGENT_COUNT, countNearbyAgents());
+                }
                 
-                BehaviorNode.Status result = tree.execute(context);
+                // 读取的需求值都没有变化且没有运行中的动作时，沿用上次的结果
+                BehaviorNode.Status result = tree.tickIfChanged(context, behaviorTreeState, activeProfiler);
                 
                 log.debug("Agent {} behavior tree result: {}", id, result);
                 
@@ -160,31 +295,18 @@ public class Agent {
     }
     
     /**
-     * 从行为树上下文更新状态
+     * 从行为树上下文更新状态，只写回本次tick中被修改的需求值
      */
     private void updateStateFromContext(BehaviorContext context) {
-        // 更新饥饿度
-        Integer hunger = context.get("hunger", Integer.class);
-        if (hunger != null) {
-            setState("hunger", hunger);
-        }
-        
-        // 更新精力
-        Integer energy = context.get("energy", Integer.class);
-        if (energy != null) {
-            setState("energy", energy);
-        }
-        
-        // 更新幸福感
-        Integer happiness = context.get("happiness", Integer.class);
-        if (happiness != null) {
-            setState("happiness", happiness);
-        }
-        
-        // 更新收入
-        Integer income = context.get("income", Integer.class);
-        if (income != null) {
-            setState("income", income);
+        writeBackInt(context, ContextKey.HUNGER, NeedsStore.Need.HUNGER);
+        writeBackInt(context, ContextKey.ENERGY, NeedsStore.Need.ENERGY);
+        writeBackInt(context, ContextKey.HAPPINESS, NeedsStore.Need.HAPPINESS);
+        writeBackInt(context, ContextKey.INCOME, NeedsStore.Need.INCOME);
+    }
+    
+    private void writeBackInt(BehaviorContext context, ContextKey key, NeedsStore.Need need) {
+        if (context.isChanged(key)) {
+            setNeed(need, context.getInt(key));
         }
     }
     
@@ -202,28 +324,72 @@ public class Agent {
     
     /**
      * 处理思考状态
+     * 有规划服务时提交异步请求并保持思考状态，在之后的tick取回结果
      */
     private void handleThinkingState() {
         Goal nextGoal = findNextGoal();
         if (nextGoal == null) {
+            cancelPendingPlan();
             status = AgentStatus.IDLE;
             return;
         }
         
-        // 创建计划
-        List<Action> plan = planner.createPlan(state, nextGoal, availableActions);
+        if (planningService == null) {
+            applyPlan(nextGoal, planner.createPlan(state, nextGoal, availableActions));
+            return;
+        }
+        
+        // 目标已变化，之前的请求作废
+        if (pendingPlan != null && pendingPlan.getGoal() != nextGoal) {
+            cancelPendingPlan();
+        }
+        
+        if (pendingPlan == null) {
+            // 预算用尽或队列已满时返回null，下一个tick重试
+            pendingPlan = planningService.submit(id, state, nextGoal, availableActions);
+            return;
+        }
+        
+        if (pendingPlan.isDone()) {
+            List<Action> plan = pendingPlan.getPlan();
+            pendingPlan = null;
+            
+            // 规划期间状态可能已变化，计划不再可行时下一个tick重新规划
+            if (!plan.isEmpty() && !planner.validatePlan(plan, state)) {
+                log.debug("Agent {} discarded stale plan for goal: {}", id, nextGoal.getName());
+                return;
+            }
+            applyPlan(nextGoal, plan);
+        }
+    }
+    
+    /**
+     * 采用规划结果
+     */
+    private void applyPlan(Goal goal, List<Action> plan) {
         if (plan.isEmpty()) {
-            log.warn("Agent {} could not create plan for goal: {}", id, nextGoal.getName());
+            log.warn("Agent {} could not create plan for goal: {}", id, goal.getName());
             status = AgentStatus.IDLE;
             return;
         }
         
         currentPlan = plan;
         currentPlanIndex = 0;
+        currentActionContext = null;
         status = AgentStatus.EXECUTING;
         log.debug("Agent {} created plan with {} actions", id, plan.size());
     }
     
+    /**
+     * 取消未完成的规划请求
+     */
+    private void cancelPendingPlan() {
+        if (pendingPlan != null) {
+            pendingPlan.cancel();
+            pendingPlan = null;
+        }
+    }
+    
     /**
      * 处理执行状态
      */
@@ -235,21 +401,34 @@ public class Agent {
         }
         
         Action currentAction = currentPlan.get(currentPlanIndex);
-        ActionContext context = new ActionContext(id);
+        if (currentActionContext == null) {
+            currentActionContext = new ActionContext(id);
+        }
         
-        // 执行当前动作
-        boolean success = currentAction.execute(context);
+        // 推进当前动作，未到动作时长时保持执行状态
+        long start = phaseStart();
+        Action.Status result = currentAction.update(currentActionContext);
+        if (result == Action.Status.RUNNING) {
+            phaseEnd(TickPhase.ACTION_EXECUTE, start);
+            return;
+        }
+        currentActionContext = null;
         
-        if (success) {
+        if (result == Action.Status.SUCCESS) {
             // 应用动作效果到状态
-            state = currentAction.applyEffects(state);
+            replaceState(currentAction.applyEffects(state));
+            markDirty(DIRTY_STATE);
             currentPlanIndex++;
+            phaseEnd(TickPhase.ACTION_EXECUTE, start);
             
             // 更新黑板
+            long blackboardStart = phaseStart();
             updateBlackboard();
+            phaseEnd(TickPhase.BLACKBOARD, blackboardStart);
             
             log.debug("Agent {} completed action: {}", id, currentAction.getName());
         } else {
+            phaseEnd(TickPhase.ACTION_EXECUTE, start);
             // 动作失败，重新规划
             log.warn("Agent {} failed to execute action: {}, replanning", id, currentAction.getName());
             status = AgentStatus.THINKING;
@@ -274,6 +453,7 @@ public class Agent {
         status = AgentStatus.IDLE;
         currentPlan.clear();
         currentPlanIndex = 0;
+        currentActionContext = null;
     }
     
     /**
@@ -286,15 +466,53 @@ public class Agent {
                 .orElse(null);
     }
     
+    /**
+     * 状态键在黑板中的键名
+     */
+    public static String stateKey(String key) {
+        return BLACKBOARD_STATE_KEYS.computeIfAbsent(key, k -> BLACKBOARD_STATE_PREFIX + k);
+    }
+
     /**
      * 更新黑板信息
      */
     private void updateBlackboard() {
         if (blackboard != null) {
-            blackboard.setAgent(id, "position", position);
-            blackboard.setAgent(id, "status", status);
-            blackboard.setAgent(id, "state", new HashMap<>(state));
-            blackboard.setAgent(id, "lastUpdate", lastUpdateTime);
+            Blackboard.AgentSection section = blackboard.section(id);
+            // 位置可能被原地修改，只在坐标变化时写入一份副本
+            if (position != null && !position.equals(section.get("position"))) {
+                section.put("position", new Position(position.getX(), position.getY()));
+            }
+            section.put("status", status);
+            // 状态按键写入，值未变化的键不产生变更通知，也不再每个tick复制整个状态表
+            for (Map.Entry<String, Object> entry : state.entrySet()) {
+                section.put(stateKey(entry.getKey()), entry.getValue());
+            }
+            removeStaleStateKeys(section);
+            section.put("lastUpdate", lastUpdateTime);
+        }
+    }
+
+    /**
+     * 移除黑板中已不在状态里的state.键
+     * 写入后分区中的状态键不少于状态表，数量相等时没有过期的键，不必逐个检查
+     */
+    private void removeStaleStateKeys(Blackboard.AgentSection section) {
+        Set<String> keys = section.getData().keySet();
+        int published = 0;
+        for (String key : keys) {
+            if (key.startsWith(BLACKBOARD_STATE_PREFIX)) {
+                published++;
+            }
+        }
+        if (published <= state.size()) {
+            return;
+        }
+        for (String key : keys) {
+            if (key.startsWith(BLACKBOARD_STATE_PREFIX)
+                    && !state.containsKey(key.substring(BLACKBOARD_STATE_PREFIX.length()))) {
+                section.remove(key);
+            }
         }
     }
     
@@ -322,11 +540,72 @@ public class Agent {
         log.debug("Agent {} added action: {}", id, action.getName());
     }
     
+    /**
+     * 获取状态，返回的视图随智能体状态变化
+     */
+    public Map<String, Object> getState() {
+        return state;
+    }
+    
+    /**
+     * 用给定的状态替换全部状态值
+     */
+    public void setState(Map<String, Object> newState) {
+        replaceState(newState);
+        markDirty(DIRTY_STATE);
+    }
+    
+    /**
+     * 原地替换状态内容，视图和需求存储槽位保持不变
+     */
+    private void replaceState(Map<String, Object> newState) {
+        for (String key : new ArrayList<>(state.keySet())) {
+            if (newState.get(key) == null) {
+                state.remove(key);
+            }
+        }
+        newState.forEach((key, value) -> {
+            if (value != null) {
+                state.put(key, value);
+            }
+        });
+    }
+    
     /**
      * 设置状态值
      */
     public void setState(String key, Object value) {
         state.put(key, value);
+        markDirty(DIRTY_STATE);
+    }
+    
+    /**
+     * 读取核心需求值，不存在时返回该需求的默认值
+     */
+    public int getNeed(NeedsStore.Need need) {
+        return state.getNeed(need, need.getDefaultValue());
+    }
+    
+    /**
+     * 设置核心需求值，不经过装箱和哈希查找
+     */
+    public void setNeed(NeedsStore.Need need, int value) {
+        state.setNeed(need, value);
+        markDirty(DIRTY_STATE);
+    }
+    
+    /**
+     * 接入共享的需求存储，由{@link AgentManager}在注册时调用
+     */
+    void attachNeedsStore(NeedsStore store) {
+        state.attach(store);
+    }
+    
+    /**
+     * 脱离需求存储并释放槽位，需求值保留在智能体自身的状态中
+     */
+    void detachNeedsStore() {
+        state.detach();
     }
     
     /**
@@ -346,6 +625,7 @@ public class Agent {
      */
     public void setMemory(String key, Object value) {
         memory.put(key, value);
+        markDirty(DIRTY_MEMORY);
     }
     
     /**
@@ -360,6 +640,48 @@ public class Agent {
         return null;
     }
     
+    /**
+     * 是否处于低细节模拟：不执行行为树、GOAP和黑板更新，需求值由统计模型推算
+     */
+    public boolean isLowDetail() {
+        return lowDetailSince >= 0;
+    }
+    
+    /**
+     * 进入低细节模拟时的游戏时间，完整模拟时为-1
+     */
+    public long getLowDetailSince() {
+        return lowDetailSince;
+    }
+    
+    /**
+     * 切换到低细节模拟
+     * 放弃当前计划和行为树执行状态，恢复完整模拟后重新决策
+     */
+    public void enterLowDetail(long gameTime) {
+        cancelPendingPlan();
+        currentPlan.clear();
+        currentPlanIndex = 0;
+        currentActionContext = null;
+        behaviorTreeState = null;
+        if (status != AgentStatus.IDLE) {
+            status = AgentStatus.IDLE;
+            markDirty(DIRTY_STATUS);
+        }
+        lowDetailSince = gameTime;
+    }
+    
+    /**
+     * 恢复完整模拟
+     * @param needs 统计模型推算的需求值，写入状态后同步到黑板
+     */
+    public void exitLowDetail(Map<String, ?> needs) {
+        needs.forEach(this::setState);
+        lowDetailSince = -1;
+        lastUpdateTime = System.currentTimeMillis();
+        updateBlackboard();
+    }
+    
     /**
      * 重置智能体
      */
@@ -367,10 +689,45 @@ public class Agent {
         status = AgentStatus.IDLE;
         currentPlan.clear();
         currentPlanIndex = 0;
+        behaviorTreeState = null;
+        currentActionContext = null;
+        cancelPendingPlan();
         state.clear();
         memory.clear();
-        goals.forEach(goal -> goal.setPersistent(false));
-        goals.clear();
+        goals.clear(); // 目标实例可能由同类型的智能体共享，只清空列表不修改目标本身
+        updateBlackboard(); // 同步清空后的状态，移除黑板中的旧状态键
+        markDirty(DIRTY_ALL);
         log.debug("Agent {} reset", id);
     }
+    
+    /**
+     * 标记需要持久化的部分，同一智能体的多次修改合并为一次写入
+     */
+    public void markDirty(int flags) {
+        int previous = dirtyFlags.getAndUpdate(current -> current | flags);
+        if (previous == 0) {
+            dirtySince = System.currentTimeMillis();
+        }
+    }
+    
+    /**
+     * 是否有未持久化的修改
+     */
+    public boolean hasPendingChanges() {
+        return dirtyFlags.get() != 0;
+    }
+    
+    /**
+     * 最早一次未持久化修改的时间，需在{@link #drainDirtyFlags()}之前读取
+     */
+    public long pendingChangesSince() {
+        return dirtySince;
+    }
+    
+    /**
+     * 取出并清空脏标记，由持久化层在写入前调用
+     */
+    public int drainDirtyFlags() {
+        return dirtyFlags.getAndSet(0);
+    }
 }
@@ -0,0 +1,107 @@
+package org.example.star_town.agent;
+
+import lombok.Getter;
+import org.example.star_town.actions.*;
+import org.example.star_town.ai.goap.Action;
+import org.example.star_town.ai.goap.Goal;
+import org.example.star_town.world.Position;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 智能体原型
+ * 同一类型的智能体共享同一组动作和目标实例：动作的执行进度保存在每个智能体自己的ActionContext中，
+ * 目标只描述期望状态，因此批量创建时不必为每个智能体重新分配。
+ * 每个智能体持有自己的列表，之后单独增删动作和目标不影响同类型的其他智能体
+ */
+@Getter
+public final class AgentArchetype {
+
+    private static final Map<AgentType, AgentArchetype> BUILT_IN = createBuiltIn();
+
+    private final AgentType type;
+    private final List<Action> actions;
+    private final List<Goal> goals;
+    private final Map<String, Object> properties; // 复制到每个智能体配置中的属性
+
+    public AgentArchetype(AgentType type, List<Action> actions, List<Goal> goals, Map<String, Object> properties) {
+        this.type = type;
+        this.actions = List.copyOf(actions);
+        this.goals = List.copyOf(goals);
+        this.properties = Map.copyOf(properties);
+    }
+
+    /**
+     * 获取类型的内置原型
+     */
+    public static AgentArchetype of(AgentType type) {
+        return BUILT_IN.get(type);
+    }
+
+    /**
+     * 按原型创建智能体，不注册到智能体管理器
+     */
+    public Agent instantiate(String id, String name, Position position) {
+        AgentConfig config = new AgentConfig(id, name, type);
+        properties.forEach(config::setProperty);
+        Agent agent = new Agent(id, name, type, config);
+        agent.setPosition(position);
+        agent.setAvailableActions(new ArrayList<>(actions));
+        agent.setGoals(new ArrayList<>(goals));
+        return agent;
+    }
+
+    private static Map<AgentType, AgentArchetype> createBuiltIn() {
+        Action move = new MoveAction();
+        Action eat = new EatAction();
+        Action sleep = new SleepAction();
+        Action socialize = new SocializeAction();
+        Goal basicNeeds = goal("BasicNeeds", 8, "energy", 60, "hunger", 40, "health", 70);
+
+        Map<AgentType, AgentArchetype> archetypes = new EnumMap<>(AgentType.class);
+        archetypes.put(AgentType.RESIDENT, new AgentArchetype(AgentType.RESIDENT,
+                List.of(move, eat, sleep, socialize),
+                List.of(basicNeeds, goal("SocialWellbeing", 4, "happiness", 70, "social", 60)),
+                properties("energy", 80, "hunger", 30, "health", 90, "happiness", 70, "social", 60)));
+        archetypes.put(AgentType.WORKER, new AgentArchetype(AgentType.WORKER,
+                List.of(move, new WorkAction("construction"), eat, sleep),
+                List.of(goal("WorkProductivity", 6, "income", 50, "workCompleted", true), basicNeeds),
+                properties("energy", 90, "hunger", 20, "health", 85, "income", 0, "hasWorkplace", true)));
+        archetypes.put(AgentType.MERCHANT, new AgentArchetype(AgentType.MERCHANT,
+                List.of(move, new WorkAction("trading"), eat, sleep, socialize),
+                List.of(goal("BusinessSuccess", 7, "money", 200, "income", 30), basicNeeds),
+                properties("energy", 70, "hunger", 40, "health", 80, "money", 100, "hasShop", true)));
+        archetypes.put(AgentType.ARTIST, new AgentArchetype(AgentType.ARTIST,
+                List.of(move, new WorkAction("art"), eat, sleep, socialize),
+                List.of(goal("CreativeExpression", 5, "inspiration", 80, "creativity", 90), basicNeeds),
+                properties("energy", 60, "hunger", 50, "health", 75, "creativity", 95, "inspiration", 40)));
+        archetypes.put(AgentType.SCIENTIST, new AgentArchetype(AgentType.SCIENTIST,
+                List.of(move, new WorkAction("research"), eat, sleep),
+                List.of(goal("ScientificDiscovery", 9, "knowledge", 95, "researchCompleted", true), basicNeeds),
+                properties("energy", 85, "hunger", 25, "health", 90, "knowledge", 95, "hasLab", true)));
+        // 其余类型只满足基本需求
+        for (AgentType type : AgentType.values()) {
+            archetypes.computeIfAbsent(type, t -> new AgentArchetype(t,
+                    List.of(move, eat, sleep, socialize), List.of(basicNeeds), Map.of()));
+        }
+        return archetypes;
+    }
+
+    private static Goal goal(String name, int priority, Object... desiredState) {
+        Goal goal = new Goal(name, properties(desiredState), priority);
+        goal.setPersistent(true);
+        return goal;
+    }
+
+    private static Map<String, Object> properties(Object... keyValues) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        for (int i = 0; i < keyValues.length; i += 2) {
+            map.put((String) keyValues[i], keyValues[i + 1]);
+        }
+        return map;
+    }
+}
@@ -125,10 +125,14 @@ public class AgentConfig {
     }
     
     /**
-     * 获取更新频率（毫秒）
+     * 获取更新频率（毫秒），未设置时使用智能体类型的默认值
      */
     public long getUpdateFrequency() {
-        return getBehaviorSettingOrDefault("updateFrequency", 1000L, Long.class);
+        Object value = behaviorSettings.get("updateFrequency");
+        if (value instanceof Number number) {
+            return number.longValue();
+        }
+        return type != null ? type.getDefaultUpdateFrequency() : 1000L;
     }
     
     /**
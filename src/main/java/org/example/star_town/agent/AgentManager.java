@@ -3,14 +3,21 @@ package org.example.star_town.agent;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.example.star_town.ai.blackboard.Blackboard;
+import org.example.star_town.ai.goap.GoapPlanner;
+import org.example.star_town.ai.goap.PlanCache;
+import org.example.star_town.ai.goap.PlanningService;
+import org.example.star_town.monitoring.TickPhase;
+import org.example.star_town.monitoring.TickProfiler;
 import org.example.star_town.service.BehaviorTreeConfigService;
+import org.example.star_town.world.AgentSpatialIndex;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * 智能体管理器
@@ -23,19 +30,55 @@ public class AgentManager {
     
     private final Map<String, Agent> agents = new ConcurrentHashMap<>();
     private final Blackboard blackboard;
-    private final ScheduledExecutorService scheduler;
     private final BehaviorTreeConfigService behaviorTreeService;
-    private boolean running = false;
+    private volatile boolean running = false;
     private long updateInterval = 1000; // 默认1秒更新一次
     
+    // 并行tick配置
+    @Value("${star-town.agent.parallel-tick:true}")
+    private boolean parallelTick = true;
+    @Value("${star-town.agent.tick-parallelism:0}")
+    private int tickParallelism = 0; // 0表示使用CPU核数
+    @Value("${star-town.agent.tick-batch-size:64}")
+    private int tickBatchSize = 64;
+    
+    // 按更新频率分时调度
+    @Value("${star-town.agent.frequency-scheduling:true}")
+    private boolean frequencyScheduling = true;
+    private final AgentScheduler scheduler = new AgentScheduler(256, updateInterval);
+    
+    // 所有智能体共享的规划器和计划缓存
+    private final PlanCache planCache = new PlanCache(4096);
+    private final GoapPlanner planner = new GoapPlanner(planCache);
+    private final AgentSpatialIndex spatialIndex = new AgentSpatialIndex(50, 50);
+    private final NeedsStore needsStore = new NeedsStore(); // 已注册智能体的核心需求列式存储
+    private TickProfiler profiler = new TickProfiler();
+    
+    // 异步规划配置
+    @Value("${star-town.goap.async-planning:true}")
+    private boolean asyncPlanning = true;
+    @Value("${star-town.goap.planning-threads:2}")
+    private int planningThreads = 2;
+    @Value("${star-town.goap.planning-queue-capacity:256}")
+    private int planningQueueCapacity = 256;
+    @Value("${star-town.goap.planning-budget-per-tick:32}")
+    private int planningBudgetPerTick = 32;
+    private volatile PlanningService planningService;
+    
+    private volatile AgentTickEngine tickEngine;
+    private volatile AgentTickEngine.TickStatistics lastTickStatistics = AgentTickEngine.TickStatistics.EMPTY;
+    private final AtomicLong tickCount = new AtomicLong();
+    private final AtomicLong overrunCount = new AtomicLong();
+    private final AtomicLong maxTickNanos = new AtomicLong();
+    
     public AgentManager(BehaviorTreeConfigService behaviorTreeService) {
         this.blackboard = new Blackboard();
-        this.scheduler = Executors.newScheduledThreadPool(4);
         this.behaviorTreeService = behaviorTreeService;
     }
     
     /**
      * 启动智能体管理器
+     * 智能体更新由GameWorld的模拟循环驱动，这里只标记为运行状态
      */
     public void start() {
         if (running) {
@@ -44,7 +87,8 @@ public class AgentManager {
         }
         
         running = true;
-        scheduler.scheduleAtFixedRate(this::updateAllAgents, 0, updateInterval, TimeUnit.MILLISECONDS);
+        PlanningService service = getPlanningService();
+        agents.values().forEach(agent -> agent.setPlanningService(service));
         log.info("AgentManager started with {} agents", agents.size());
     }
     
@@ -58,37 +102,249 @@ public class AgentManager {
         }
         
         running = false;
-        scheduler.shutdown();
-        try {
-            if (!scheduler.awaitTermination(5, TimeUnit.SECONDS)) {
-                scheduler.shutdownNow();
-            }
-        } catch (InterruptedException e) {
-            scheduler.shutdownNow();
-            Thread.currentThread().interrupt();
+        if (tickEngine != null) {
+            tickEngine.shutdown();
+            tickEngine = null;
+        }
+        if (planningService != null) {
+            planningService.shutdown();
+            planningService = null;
+            agents.values().forEach(agent -> agent.setPlanningService(null));
         }
         log.info("AgentManager stopped");
     }
     
     /**
-     * 更新所有智能体
+     * 更新智能体
+     * 启用按频率调度时只更新本tick到期的智能体，否则更新所有启用的智能体
      */
     public void updateAllAgents() {
+        updateAllAgents(1);
+    }
+
+    /**
+     * 推进steps个tick并更新智能体（模拟循环合并落后的tick时steps大于1）
+     * 调度器的时间轮随之推进steps个tick，期间到期的智能体更新一次，保持与游戏时间同步
+     */
+    public void updateAllAgents(long steps) {
         if (!running) {
             return;
         }
         
         try {
-            for (Agent agent : agents.values()) {
-                if (agent.getConfig().isEnabled()) {
-                    agent.update();
+            if (planningService != null) {
+                planningService.beginTick();
+            }
+            profiler.beginTick();
+            
+            AgentTickEngine.TickStatistics stats;
+            if (frequencyScheduling) {
+                // 有时间预算时每片正好让所有tick线程各处理一个批次
+                scheduler.setSliceSize(parallelTick
+                        ? getTickEngine().getParallelism() * tickBatchSize : tickBatchSize);
+                stats = scheduler.tick(this::updateAgents, steps);
+            } else {
+                List<Agent> enabledAgents = new ArrayList<>(agents.size());
+                for (Agent agent : agents.values()) {
+                    if (agent.getConfig().isEnabled() && !agent.isLowDetail()) {
+                        enabledAgents.add(agent);
+                    }
                 }
+                stats = updateAgents(enabledAgents);
             }
+            recordTick(stats);
+            
+            long dispatchStart = System.nanoTime();
+            blackboard.dispatchChanges();
+            profiler.record(TickPhase.BLACKBOARD, System.nanoTime() - dispatchStart);
+            profiler.endTick(stats.getWallNanos());
         } catch (Exception e) {
             log.error("Error updating agents: {}", e.getMessage(), e);
         }
     }
     
+    /**
+     * 更新一批智能体，按配置并行或顺序执行
+     */
+    private AgentTickEngine.TickStatistics updateAgents(List<Agent> batch) {
+        if (parallelTick) {
+            return getTickEngine().tick(batch);
+        }
+        return updateSequentially(batch);
+    }
+    
+    /**
+     * 单线程顺序更新
+     */
+    private AgentTickEngine.TickStatistics updateSequentially(List<Agent> enabledAgents) {
+        long start = System.nanoTime();
+        for (Agent agent : enabledAgents) {
+            agent.update();
+        }
+        long elapsed = System.nanoTime() - start;
+        return new AgentTickEngine.TickStatistics(enabledAgents.size(), 1, elapsed, elapsed, elapsed);
+    }
+    
+    /**
+     * 记录tick统计
+     */
+    private void recordTick(AgentTickEngine.TickStatistics stats) {
+        lastTickStatistics = stats;
+        tickCount.incrementAndGet();
+        maxTickNanos.accumulateAndGet(stats.getWallNanos(), Math::max);
+        if (stats.getWallNanos() > TimeUnit.MILLISECONDS.toNanos(updateInterval)) {
+            overrunCount.incrementAndGet();
+            log.warn("Agent tick took {} ms, exceeding update interval {} ms ({} agents, imbalance {})",
+                    String.format("%.2f", stats.getWallMillis()), updateInterval,
+                    stats.getAgentCount(), String.format("%.2f", stats.getImbalance()));
+        } else {
+            log.debug("Agent tick took {} ms ({} agents, {} batches, imbalance {})",
+                    String.format("%.2f", stats.getWallMillis()), stats.getAgentCount(),
+                    stats.getBatchCount(), String.format("%.2f", stats.getImbalance()));
+        }
+    }
+    
+    /**
+     * 获取（必要时创建）异步规划服务，未启用异步规划时返回null
+     */
+    private PlanningService getPlanningService() {
+        if (!asyncPlanning) {
+            return null;
+        }
+        PlanningService service = planningService;
+        if (service == null) {
+            synchronized (this) {
+                service = planningService;
+                if (service == null) {
+                    service = new PlanningService(planner, planningThreads, planningQueueCapacity,
+                            planningBudgetPerTick);
+                    planningService = service;
+                    log.info("Planning service started with {} workers, queue capacity {}, budget {} per tick",
+                            planningThreads, planningQueueCapacity, planningBudgetPerTick);
+                }
+            }
+        }
+        return service;
+    }
+    
+    /**
+     * 获取规划统计信息：计划缓存与异步规划服务
+     */
+    public Map<String, Object> getPlanningStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("asyncPlanning", asyncPlanning);
+        stats.put("planner", planner.getStatistics());
+        stats.put("cache", planCache.getStatistics());
+        PlanningService service = planningService;
+        if (service != null) {
+            stats.put("service", service.getStatistics());
+        }
+        return stats;
+    }
+    
+    /**
+     * 获取（必要时创建）并行tick引擎
+     */
+    private AgentTickEngine getTickEngine() {
+        AgentTickEngine engine = tickEngine;
+        if (engine == null) {
+            synchronized (this) {
+                engine = tickEngine;
+                if (engine == null) {
+                    engine = new AgentTickEngine(tickParallelism, tickBatchSize);
+                    tickEngine = engine;
+                    log.info("Parallel tick engine started with parallelism {} and batch size {}",
+                            engine.getParallelism(), engine.getBatchSize());
+                }
+            }
+        }
+        return engine;
+    }
+    
+    /**
+     * 获取tick统计信息
+     */
+    public Map<String, Object> getTickStatistics() {
+        AgentTickEngine.TickStatistics last = lastTickStatistics;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("parallelTick", parallelTick);
+        stats.put("parallelism", tickEngine != null ? tickEngine.getParallelism() : 1);
+        stats.put("batchSize", tickBatchSize);
+        stats.put("tickCount", tickCount.get());
+        stats.put("overrunCount", overrunCount.get());
+        stats.put("maxTickMillis", maxTickNanos.get() / 1_000_000.0);
+        stats.put("lastTickMillis", last.getWallMillis());
+        stats.put("lastTickAgents", last.getAgentCount());
+        stats.put("lastTickBatches", last.getBatchCount());
+        stats.put("lastBatchMaxMillis", last.getMaxBatchNanos() / 1_000_000.0);
+        stats.put("lastBatchMeanMillis", last.getMeanBatchNanos() / 1_000_000.0);
+        stats.put("lastBatchImbalance", last.getImbalance());
+        stats.put("frequencyScheduling", frequencyScheduling);
+        if (frequencyScheduling) {
+            stats.put("scheduler", scheduler.getStatistics());
+        }
+        stats.put("blackboard", blackboard.getStatistics());
+        stats.put("needsStore", needsStore.getStatistics());
+        return stats;
+    }
+    
+    /**
+     * 设置计划缓存容量，0表示不缓存
+     */
+    @Value("${star-town.goap.plan-cache-size:4096}")
+    public void setPlanCacheSize(int planCacheSize) {
+        planCache.setMaxSize(planCacheSize);
+    }
+    
+    /**
+     * 设置智能体空间索引的网格大小
+     */
+    @Value("${star-town.agent.spatial-cell-size:50}")
+    public void setSpatialCellSize(double spatialCellSize) {
+        spatialIndex.setCellSize(spatialCellSize);
+    }
+    
+    /**
+     * 设置智能体的感知半径，行为树中的附近智能体数按此半径统计
+     */
+    @Value("${star-town.agent.perception-radius:50}")
+    public void setPerceptionRadius(double perceptionRadius) {
+        spatialIndex.setPerceptionRadius(perceptionRadius);
+    }
+    
+    /**
+     * 设置性能剖析器，Spring容器中使用共享的剖析器Bean
+     */
+    @Autowired
+    public void setProfiler(TickProfiler profiler) {
+        this.profiler = profiler;
+        agents.values().forEach(agent -> agent.setProfiler(profiler));
+    }
+    
+    /**
+     * 设置每个tick更新智能体的时间预算（毫秒），0表示不限制，超出预算的智能体顺延到下一个tick
+     */
+    @Value("${star-town.agent.tick-budget-ms:0}")
+    public void setTickBudgetMillis(long tickBudgetMillis) {
+        scheduler.setBudgetNanos(TimeUnit.MILLISECONDS.toNanos(tickBudgetMillis));
+    }
+    
+    /**
+     * 设置是否按更新频率分时调度，关闭时每个tick更新所有智能体
+     */
+    public void setFrequencyScheduling(boolean frequencyScheduling) {
+        this.frequencyScheduling = frequencyScheduling;
+        log.info("Frequency scheduling {}", frequencyScheduling ? "enabled" : "disabled");
+    }
+    
+    /**
+     * 设置是否启用并行tick
+     */
+    public void setParallelTick(boolean parallelTick) {
+        this.parallelTick = parallelTick;
+        log.info("Parallel tick {}", parallelTick ? "enabled" : "disabled");
+    }
+    
     /**
      * 创建智能体
      */
@@ -99,25 +355,88 @@ public class AgentManager {
         }
         
         Agent agent = new Agent(id, name, type, config);
-        agent.setBlackboard(blackboard);
-        agent.setBehaviorTreeService(behaviorTreeService);
-        agents.put(id, agent);
+        registerAgent(agent);
         
         log.info("Created agent: {} ({})", name, type.getDisplayName());
         return agent;
     }
     
+    /**
+     * 注册已构建好的智能体（例如从快照恢复的智能体），接入共享的黑板、规划器和空间索引
+     */
+    public void registerAgent(Agent agent) {
+        wire(agent);
+        Agent previous = agents.put(agent.getId(), agent);
+        scheduler.add(agent);
+        if (previous != null && previous != agent) {
+            spatialIndex.remove(previous);
+            previous.setSpatialIndex(null);
+            previous.detachNeedsStore();
+        }
+        spatialIndex.update(agent);
+    }
+    
+    /**
+     * 仅在编号未被占用时注册智能体，并发调用时同一编号只有一个能注册成功
+     * @return 是否注册成功，编号已存在时返回false且不改动已有的智能体
+     */
+    public boolean registerIfAbsent(Agent agent) {
+        wire(agent);
+        if (agents.putIfAbsent(agent.getId(), agent) != null) {
+            // 未注册成功，释放接入时占用的需求存储槽位
+            agent.setSpatialIndex(null);
+            agent.detachNeedsStore();
+            return false;
+        }
+        scheduler.add(agent);
+        spatialIndex.update(agent);
+        return true;
+    }
+    
+    /**
+     * 接入共享的黑板、规划器、空间索引和需求存储
+     */
+    private void wire(Agent agent) {
+        agent.setBlackboard(blackboard);
+        agent.setBehaviorTreeService(behaviorTreeService);
+        agent.setPlanner(planner);
+        agent.setPlanningService(getPlanningService());
+        agent.setSpatialIndex(spatialIndex);
+        agent.setProfiler(profiler);
+        agent.attachNeedsStore(needsStore);
+    }
+    
     /**
      * 移除智能体
      */
     public void removeAgent(String agentId) {
         Agent agent = agents.remove(agentId);
         if (agent != null) {
+            scheduler.remove(agentId);
+            spatialIndex.remove(agent);
+            agent.setSpatialIndex(null);
+            agent.detachNeedsStore();
             blackboard.removeAgent(agentId);
             log.info("Removed agent: {}", agentId);
         }
     }
     
+    /**
+     * 移除所有智能体
+     */
+    public void removeAllAgents() {
+        for (Agent agent : agents.values()) {
+            spatialIndex.remove(agent);
+            agent.setSpatialIndex(null);
+            agent.detachNeedsStore();
+            blackboard.removeAgent(agent.getId());
+        }
+        int count = agents.size();
+        agents.clear();
+        scheduler.clear();
+        log.info("Removed all {} agents", count);
+    }
+    
     /**
      * 获取智能体
      */
@@ -164,6 +483,7 @@ public class AgentManager {
      */
     public void setUpdateInterval(long intervalMs) {
         this.updateInterval = intervalMs;
+        scheduler.setTickIntervalMillis(intervalMs);
         log.info("Update interval set to {} ms", intervalMs);
     }
     
@@ -0,0 +1,287 @@
+package org.example.star_town.agent;
+
+import lombok.Getter;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Function;
+
+/**
+ * 智能体tick调度器
+ * 按更新频率把智能体放进时间轮：更新周期为N个tick的智能体每N个tick到期一次，
+ * 首次到期的相位按ID散列错开，避免同频率的智能体挤在同一个tick。
+ * 每个tick只更新到期的智能体，同一tick内按优先级从高到低执行；设置了每tick时间预算时，
+ * 超出预算的到期智能体进入积压队列，下一个tick最先执行。
+ * 注册和移除可以在任意线程调用，{@link #tick}只由tick线程调用
+ */
+public class AgentScheduler {
+
+    private static final Comparator<Entry> BY_PRIORITY =
+            Comparator.comparingInt((Entry entry) -> entry.agent.getConfig().getPriority()).reversed();
+
+    private final List<Entry>[] wheel;
+    private final int wheelMask;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Entry> pending = new ConcurrentLinkedQueue<>();
+    private final ArrayDeque<Entry> backlog = new ArrayDeque<>();
+
+    @Getter
+    private volatile long tickIntervalMillis;
+    @Getter
+    private volatile long budgetNanos; // 0表示不限制
+    @Getter
+    private volatile int sliceSize;
+
+    @Getter
+    private long currentTick;
+    private volatile long lastDueCount;
+    private volatile long lastUpdatedCount;
+    private volatile long backlogCount;
+    private volatile long deferredTotal;
+
+    /**
+     * @param wheelSize 时间轮槽数，取不小于该值的2的幂；周期更长的智能体会在时间轮上多转几圈
+     * @param tickIntervalMillis 每个tick的毫秒数，用于把更新频率换算为tick周期
+     */
+    @SuppressWarnings("unchecked")
+    public AgentScheduler(int wheelSize, long tickIntervalMillis) {
+        int size = Integer.highestOneBit(Math.max(2, wheelSize) - 1) << 1;
+        this.wheel = new List[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new ArrayList<>();
+        }
+        this.wheelMask = size - 1;
+        this.sliceSize = 256;
+        setTickIntervalMillis(tickIntervalMillis);
+    }
+
+    /**
+     * 设置每个tick的毫秒数，新的周期在智能体下次被调度时生效
+     */
+    public void setTickIntervalMillis(long tickIntervalMillis) {
+        this.tickIntervalMillis = Math.max(1, tickIntervalMillis);
+    }
+
+    /**
+     * 设置每个tick更新智能体的时间预算（纳秒），0表示不限制
+     */
+    public void setBudgetNanos(long budgetNanos) {
+        this.budgetNanos = Math.max(0, budgetNanos);
+    }
+
+    /**
+     * 设置有预算时每次检查预算前更新的智能体数
+     */
+    public void setSliceSize(int sliceSize) {
+        this.sliceSize = Math.max(1, sliceSize);
+    }
+
+    /**
+     * 加入调度，同一ID重复加入时替换原来的智能体
+     */
+    public void add(Agent agent) {
+        Entry entry = new Entry(agent);
+        Entry previous = entries.put(agent.getId(), entry);
+        if (previous != null) {
+            previous.cancelled = true;
+        }
+        pending.add(entry);
+    }
+
+    /**
+     * 移出调度，时间轮中的条目在下次经过时丢弃
+     */
+    public void remove(String agentId) {
+        Entry entry = entries.remove(agentId);
+        if (entry != null) {
+            entry.cancelled = true;
+        }
+    }
+
+    /**
+     * 移出所有智能体
+     */
+    public void clear() {
+        entries.values().forEach(entry -> entry.cancelled = true);
+        entries.clear();
+    }
+
+    /**
+     * 智能体的更新周期（tick数），至少为1
+     */
+    public long periodTicks(Agent agent) {
+        long interval = tickIntervalMillis;
+        return Math.max(1, (agent.getConfig().getUpdateFrequency() + interval / 2) / interval);
+    }
+
+    /**
+     * 执行一个tick：取出到期的智能体，按预算分片交给updater更新
+     * @param updater 更新一批智能体并返回统计，通常是并行tick引擎
+     * @return 本tick合并后的统计
+     */
+    public AgentTickEngine.TickStatistics tick(Function<List<Agent>, AgentTickEngine.TickStatistics> updater) {
+        return tick(updater, 1);
+    }
+
+    /**
+     * 一次推进多个tick（模拟循环合并落后的tick时）：在这些tick中任意一个到期的智能体更新一次
+     * @param steps 推进的tick数，至少为1
+     */
+    public AgentTickEngine.TickStatistics tick(Function<List<Agent>, AgentTickEngine.TickStatistics> updater,
+                                               long steps) {
+        long start = System.nanoTime();
+        long first = currentTick;
+        long tick = first + Math.max(1, steps) - 1; // 本次推进的最后一个tick，重新调度以它为基准
+        List<Entry> due = collectDue(first, tick);
+        lastDueCount = due.size();
+
+        long budget = budgetNanos;
+        int slice = budget > 0 ? sliceSize : Math.max(1, due.size());
+        int updated = 0;
+        int index = 0;
+        int batchCount = 0;
+        long maxBatchNanos = 0;
+        long batchNanosTotal = 0;
+        List<Agent> agents = new ArrayList<>(Math.min(slice, due.size()));
+
+        while (index < due.size()) {
+            int end = Math.min(index + slice, due.size());
+            agents.clear();
+            // 停用和低细节模拟的智能体照常随时间轮转动，但不更新
+            for (int i = index; i < end; i++) {
+                Agent agent = due.get(i).agent;
+                if (agent.getConfig().isEnabled() && !agent.isLowDetail()) {
+                    agents.add(agent);
+                }
+            }
+            if (!agents.isEmpty()) {
+                AgentTickEngine.TickStatistics stats = updater.apply(agents);
+                updated += stats.getAgentCount();
+                batchCount += stats.getBatchCount();
+                maxBatchNanos = Math.max(maxBatchNanos, stats.getMaxBatchNanos());
+                batchNanosTotal += stats.getMeanBatchNanos() * stats.getBatchCount();
+            }
+            for (int i = index; i < end; i++) {
+                reschedule(due.get(i), tick);
+            }
+            index = end;
+            // 至少执行一片，保证积压队列总能前进
+            if (budget > 0 && System.nanoTime() - start >= budget) {
+                break;
+            }
+        }
+
+        for (int i = index; i < due.size(); i++) {
+            backlog.add(due.get(i));
+        }
+        backlogCount = backlog.size();
+        deferredTotal += due.size() - index;
+        lastUpdatedCount = updated;
+        currentTick = tick + 1;
+
+        long meanBatchNanos = batchCount > 0 ? batchNanosTotal / batchCount : 0;
+        return new AgentTickEngine.TickStatistics(updated, batchCount, System.nanoTime() - start,
+                maxBatchNanos, meanBatchNanos);
+    }
+
+    /**
+     * 收集[first, tick]内到期的智能体：先是上个tick的积压，再是经过的槽位中按优先级排序的到期条目
+     */
+    private List<Entry> collectDue(long first, long tick) {
+        List<Entry> due = new ArrayList<>(backlog.size() + wheel[(int) (tick & wheelMask)].size());
+        for (Entry entry : backlog) {
+            if (!entry.cancelled) {
+                due.add(entry);
+            }
+        }
+        backlog.clear();
+        int carried = due.size();
+
+        Entry added;
+        while ((added = pending.poll()) != null) {
+            if (!added.cancelled) {
+                long period = periodTicks(added.agent);
+                long offset = period > 1 ? (added.agent.getId().hashCode() & 0x7fffffff) % period : 0;
+                added.dueTick = first + offset;
+                if (added.dueTick <= tick) {
+                    due.add(added);
+                } else {
+                    wheel[(int) (added.dueTick & wheelMask)].add(added);
+                }
+            }
+        }
+
+        // 每个槽位最多经过一次，推进超过一圈时所有槽位都检查一遍
+        long last = Math.min(tick, first + wheel.length - 1);
+        for (long t = first; t <= last; t++) {
+            List<Entry> slot = wheel[(int) (t & wheelMask)];
+            int kept = 0;
+            for (int i = 0; i < slot.size(); i++) {
+                Entry entry = slot.get(i);
+                if (entry.cancelled) {
+                    continue;
+                }
+                if (entry.dueTick <= tick) {
+                    due.add(entry);
+                } else {
+                    slot.set(kept++, entry);
+                }
+            }
+            slot.subList(kept, slot.size()).clear();
+        }
+
+        due.subList(carried, due.size()).sort(BY_PRIORITY);
+        return due;
+    }
+
+    private void reschedule(Entry entry, long tick) {
+        if (entry.cancelled) {
+            return;
+        }
+        entry.dueTick = tick + periodTicks(entry.agent);
+        wheel[(int) (entry.dueTick & wheelMask)].add(entry);
+    }
+
+    /**
+     * 调度中的智能体数
+     */
+    public int getScheduledCount() {
+        return entries.size();
+    }
+
+    /**
+     * 获取调度统计信息
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("scheduledAgents", entries.size());
+        stats.put("wheelSize", wheel.length);
+        stats.put("tickIntervalMillis", tickIntervalMillis);
+        stats.put("budgetMillis", budgetNanos / 1_000_000.0);
+        stats.put("currentTick", currentTick);
+        stats.put("lastDueAgents", lastDueCount);
+        stats.put("lastUpdatedAgents", lastUpdatedCount);
+        stats.put("backlog", backlogCount);
+        stats.put("deferredTotal", deferredTotal);
+        return stats;
+    }
+
+    /**
+     * 时间轮条目
+     */
+    private static final class Entry {
+        private final Agent agent;
+        private long dueTick;
+        private volatile boolean cancelled;
+
+        private Entry(Agent agent) {
+            this.agent = agent;
+        }
+    }
+}
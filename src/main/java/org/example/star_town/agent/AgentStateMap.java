@@ -0,0 +1,292 @@
+package org.example.star_town.agent;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 智能体状态视图
+ * 接入{@link NeedsStore}后，核心需求的整数值保存在存储的列中，其余键值（以及非整数的需求值）保存在普通哈希表中；
+ * 未接入时全部保存在哈希表中。对外表现为一个普通的Map，与原来的ConcurrentHashMap一样不接受null。
+ * 读操作不加锁，接入、脱离和需求存在标记的修改在视图上互斥。
+ * 存储和槽位作为一个不可变的绑定整体发布；读到值后再确认绑定未变，
+ * 避免读到已释放并被其他智能体复用的槽位
+ */
+class AgentStateMap extends AbstractMap<String, Object> {
+
+    private static final NeedsStore.Need[] NEEDS = NeedsStore.Need.values();
+    private static final long ABSENT = Long.MIN_VALUE;
+
+    private final Map<String, Object> others = new ConcurrentHashMap<>();
+    private final Agent owner;
+    private volatile Binding binding; // 未接入时为null
+
+    AgentStateMap(Agent owner) {
+        this.owner = owner;
+    }
+
+    /**
+     * 接入需求存储，把已有的整数需求值迁移到存储的列中
+     */
+    synchronized void attach(NeedsStore target) {
+        if (binding != null && binding.store() == target) {
+            return;
+        }
+        detach();
+        int allocated = target.allocate(owner);
+        int bits = 0;
+        for (NeedsStore.Need need : NEEDS) {
+            if (others.get(need.getKey()) instanceof Integer value) {
+                target.set(allocated, need, value);
+                bits |= need.bit();
+            }
+        }
+        target.setPresentBits(allocated, bits);
+        binding = new Binding(target, allocated);
+        // 先发布存储再移除，并发读取总能在其中一处读到值
+        for (NeedsStore.Need need : NEEDS) {
+            if ((bits & need.bit()) != 0) {
+                others.remove(need.getKey());
+            }
+        }
+    }
+
+    /**
+     * 脱离需求存储，需求值复制回哈希表后释放槽位
+     */
+    synchronized void detach() {
+        Binding current = binding;
+        if (current == null) {
+            return;
+        }
+        int bits = current.store().presentBits(current.slot());
+        for (NeedsStore.Need need : NEEDS) {
+            if ((bits & need.bit()) != 0) {
+                others.put(need.getKey(), current.store().get(current.slot(), need));
+            }
+        }
+        binding = null;
+        current.store().release(current.slot());
+    }
+
+    /**
+     * 从存储中读取需求值，未接入或该需求不在存储中时返回ABSENT。
+     * 读取期间绑定发生变化时重读：脱离前值已复制回哈希表，槽位在解除绑定后才释放
+     */
+    private long readStored(NeedsStore.Need need) {
+        while (true) {
+            Binding current = binding;
+            if (current == null) {
+                return ABSENT;
+            }
+            boolean present = (current.store().presentBits(current.slot()) & need.bit()) != 0;
+            int value = current.store().get(current.slot(), need);
+            if (binding == current) {
+                return present ? value : ABSENT;
+            }
+        }
+    }
+
+    /**
+     * 读取需求值，不存在或不是整数时返回默认值
+     */
+    int getNeed(NeedsStore.Need need, int defaultValue) {
+        long stored = readStored(need);
+        if (stored != ABSENT) {
+            return (int) stored;
+        }
+        return others.get(need.getKey()) instanceof Integer value ? value : defaultValue;
+    }
+
+    /**
+     * 写入需求值
+     */
+    void setNeed(NeedsStore.Need need, int value) {
+        Binding current = binding;
+        if (current != null) {
+            synchronized (this) {
+                if (binding == current) {
+                    current.store().set(current.slot(), need, value);
+                    int bits = current.store().presentBits(current.slot());
+                    if ((bits & need.bit()) == 0) {
+                        current.store().setPresentBits(current.slot(), bits | need.bit());
+                        others.remove(need.getKey());
+                    }
+                    return;
+                }
+            }
+        }
+        others.put(need.getKey(), value);
+    }
+
+    @Override
+    public Object get(Object key) {
+        NeedsStore.Need need = key instanceof String name ? NeedsStore.Need.of(name) : null;
+        if (need != null) {
+            long stored = readStored(need);
+            if (stored != ABSENT) {
+                return (int) stored;
+            }
+        }
+        return others.get(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public Object put(String key, Object value) {
+        if (key == null || value == null) {
+            throw new NullPointerException();
+        }
+        NeedsStore.Need need = NeedsStore.Need.of(key);
+        if (need == null) {
+            return others.put(key, value);
+        }
+        Object previous = get(key);
+        if (value instanceof Integer number) {
+            setNeed(need, number);
+        } else {
+            clearNeed(need);
+            others.put(key, value);
+        }
+        return previous;
+    }
+
+    @Override
+    public Object remove(Object key) {
+        NeedsStore.Need need = key instanceof String name ? NeedsStore.Need.of(name) : null;
+        if (need == null) {
+            return others.remove(key);
+        }
+        Object previous = get(key);
+        clearNeed(need);
+        others.remove(key);
+        return previous;
+    }
+
+    private void clearNeed(NeedsStore.Need need) {
+        if (binding == null) {
+            return;
+        }
+        synchronized (this) {
+            Binding current = binding;
+            if (current != null) {
+                current.store().setPresentBits(current.slot(),
+                        current.store().presentBits(current.slot()) & ~need.bit());
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        return Integer.bitCount(presentSnapshot()) + others.size();
+    }
+
+    /**
+     * 存储中存在的需求位图，读取期间绑定变化时重读
+     */
+    private int presentSnapshot() {
+        while (true) {
+            Binding current = binding;
+            if (current == null) {
+                return 0;
+            }
+            int bits = current.store().presentBits(current.slot());
+            if (binding == current) {
+                return bits;
+            }
+        }
+    }
+
+    @Override
+    public void clear() {
+        synchronized (this) {
+            Binding current = binding;
+            if (current != null) {
+                current.store().setPresentBits(current.slot(), 0);
+            }
+        }
+        others.clear();
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<String, Object>> iterator() {
+                return new EntryIterator();
+            }
+
+            @Override
+            public int size() {
+                return AgentStateMap.this.size();
+            }
+        };
+    }
+
+    /**
+     * 先遍历存储中存在的需求，再遍历哈希表
+     * 需求值在创建时一次性复制，之后槽位被释放复用也不受影响
+     */
+    private final class EntryIterator implements Iterator<Entry<String, Object>> {
+        private final int[] values = new int[NEEDS.length];
+        private final int bits = snapshot();
+        private final Iterator<Entry<String, Object>> rest = others.entrySet().iterator();
+        private int next = advance(0);
+
+        private int snapshot() {
+            while (true) {
+                Binding current = binding;
+                if (current == null) {
+                    return 0;
+                }
+                int present = current.store().presentBits(current.slot());
+                for (NeedsStore.Need need : NEEDS) {
+                    values[need.ordinal()] = current.store().get(current.slot(), need);
+                }
+                if (binding == current) {
+                    return present;
+                }
+            }
+        }
+
+        private int advance(int from) {
+            int ordinal = from;
+            while (ordinal < NEEDS.length && (bits & NEEDS[ordinal].bit()) == 0) {
+                ordinal++;
+            }
+            return ordinal;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < NEEDS.length || rest.hasNext();
+        }
+
+        @Override
+        public Entry<String, Object> next() {
+            if (next < NEEDS.length) {
+                NeedsStore.Need need = NEEDS[next];
+                next = advance(next + 1);
+                return new SimpleImmutableEntry<>(need.getKey(), values[need.ordinal()]);
+            }
+            if (!rest.hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return rest.next();
+        }
+    }
+
+    /**
+     * 需求存储绑定：存储和槽位总是一起发布和读取
+     */
+    private record Binding(NeedsStore store, int slot) {
+    }
+}
@@ -0,0 +1,158 @@
+package org.example.star_town.agent;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 并行tick引擎
+ * 将智能体切分为批次，在ForkJoin池中以工作窃取方式并行更新，
+ * 所有批次完成后（屏障）才返回，保证下一个tick开始前本tick已全部结束
+ */
+@Slf4j
+public class AgentTickEngine {
+
+    private static final AtomicInteger POOL_SEQUENCE = new AtomicInteger();
+
+    private final ForkJoinPool pool;
+    @Getter
+    private final int parallelism;
+    @Getter
+    private final int batchSize;
+
+    public AgentTickEngine(int parallelism, int batchSize) {
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.batchSize = Math.max(1, batchSize);
+        int poolId = POOL_SEQUENCE.incrementAndGet();
+        this.pool = new ForkJoinPool(this.parallelism, forkJoinPool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+            thread.setName("agent-tick-" + poolId + "-" + thread.getPoolIndex());
+            thread.setDaemon(true);
+            return thread;
+        }, null, false);
+    }
+
+    /**
+     * 并行更新一批智能体，阻塞直到所有批次完成
+     * @return 本次tick的统计信息
+     */
+    public TickStatistics tick(List<Agent> agents) {
+        long start = System.nanoTime();
+        int batchCount = (agents.size() + batchSize - 1) / batchSize;
+        long[] batchNanos = new long[batchCount];
+
+        if (batchCount > 0) {
+            pool.invoke(new BatchTask(agents, batchNanos, 0, batchCount));
+        }
+
+        return TickStatistics.of(agents.size(), batchNanos, System.nanoTime() - start);
+    }
+
+    /**
+     * 关闭线程池
+     */
+    public void shutdown() {
+        pool.shutdown();
+        try {
+            if (!pool.awaitTermination(5, TimeUnit.SECONDS)) {
+                pool.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            pool.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 批次任务
+     * 按批次区间二分拆分，叶子任务顺序更新一个批次内的智能体
+     */
+    private final class BatchTask extends RecursiveAction {
+
+        private final List<Agent> agents;
+        private final long[] batchNanos;
+        private final int fromBatch;
+        private final int toBatch;
+
+        private BatchTask(List<Agent> agents, long[] batchNanos, int fromBatch, int toBatch) {
+            this.agents = agents;
+            this.batchNanos = batchNanos;
+            this.fromBatch = fromBatch;
+            this.toBatch = toBatch;
+        }
+
+        @Override
+        protected void compute() {
+            if (toBatch - fromBatch > 1) {
+                int mid = (fromBatch + toBatch) >>> 1;
+                invokeAll(new BatchTask(agents, batchNanos, fromBatch, mid),
+                        new BatchTask(agents, batchNanos, mid, toBatch));
+                return;
+            }
+
+            long start = System.nanoTime();
+            int from = fromBatch * batchSize;
+            int to = Math.min(from + batchSize, agents.size());
+            for (int i = from; i < to; i++) {
+                Agent agent = agents.get(i);
+                try {
+                    agent.update();
+                } catch (Exception e) {
+                    log.error("Error updating agent {}: {}", agent.getId(), e.getMessage(), e);
+                }
+            }
+            batchNanos[fromBatch] = System.nanoTime() - start;
+        }
+    }
+
+    /**
+     * 单次tick统计
+     */
+    @Getter
+    public static class TickStatistics {
+
+        public static final TickStatistics EMPTY = new TickStatistics(0, 0, 0, 0, 0);
+
+        private final int agentCount;
+        private final int batchCount;
+        private final long wallNanos;
+        private final long maxBatchNanos;
+        private final long meanBatchNanos;
+
+        public TickStatistics(int agentCount, int batchCount, long wallNanos, long maxBatchNanos, long meanBatchNanos) {
+            this.agentCount = agentCount;
+            this.batchCount = batchCount;
+            this.wallNanos = wallNanos;
+            this.maxBatchNanos = maxBatchNanos;
+            this.meanBatchNanos = meanBatchNanos;
+        }
+
+        static TickStatistics of(int agentCount, long[] batchNanos, long wallNanos) {
+            long max = 0;
+            long total = 0;
+            for (long nanos : batchNanos) {
+                max = Math.max(max, nanos);
+                total += nanos;
+            }
+            long mean = batchNanos.length > 0 ? total / batchNanos.length : 0;
+            return new TickStatistics(agentCount, batchNanos.length, wallNanos, max, mean);
+        }
+
+        /**
+         * 批次不均衡度：最慢批次耗时 / 平均批次耗时，1.0表示完全均衡
+         */
+        public double getImbalance() {
+            return meanBatchNanos > 0 ? (double) maxBatchNanos / meanBatchNanos : 1.0;
+        }
+
+        public double getWallMillis() {
+            return wallNanos / 1_000_000.0;
+        }
+    }
+}
@@ -43,6 +43,17 @@ public enum AgentType {
         };
     }
     
+    /**
+     * 默认更新频率（毫秒）
+     * 长者和访客多为背景角色，更新得更少
+     */
+    public long getDefaultUpdateFrequency() {
+        return switch (this) {
+            case ELDER, VISITOR -> 3000L;
+            default -> 1000L;
+        };
+    }
+    
     /**
      * 获取智能体属性类
      */
@@ -0,0 +1,249 @@
+package org.example.star_town.agent;
+
+import lombok.Getter;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 智能体需求列式存储
+ * 核心需求值按列保存在基本类型int数组中，每个智能体占用一个稠密槽位，
+ * 批量衰减和阈值统计是对连续数组的简单循环，不拆箱、不查哈希表。
+ * 存储按固定大小的块分配，扩容只追加新块，已分配槽位所在的数组永不替换，
+ * 因此tick线程的写入不会因为其他线程注册智能体而丢失。
+ * 智能体注册到{@link AgentManager}时接入存储，通过{@link Agent#getState()}返回的视图读写。
+ * 批量修改按槽位比较并交换，与智能体自己的写入并发时不会丢失任何一方的更新
+ */
+public final class NeedsStore {
+
+    /**
+     * 核心需求
+     */
+    @Getter
+    public enum Need {
+        HUNGER("hunger", 50),
+        ENERGY("energy", 70),
+        HAPPINESS("happiness", 60),
+        HEALTH("health", 90),
+        MONEY("money", 100),
+        INCOME("income", 0);
+
+        private static final Map<String, Need> BY_KEY = new LinkedHashMap<>();
+
+        static {
+            for (Need need : values()) {
+                BY_KEY.put(need.key, need);
+            }
+        }
+
+        private final String key;
+        private final int defaultValue;
+
+        Need(String key, int defaultValue) {
+            this.key = key;
+            this.defaultValue = defaultValue;
+        }
+
+        /**
+         * 按状态键查找需求，不是核心需求时返回null
+         */
+        public static Need of(String key) {
+            return BY_KEY.get(key);
+        }
+
+        int bit() {
+            return 1 << ordinal();
+        }
+    }
+
+    static final int CHUNK_SHIFT = 10;
+    static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final Need[] NEEDS = Need.values();
+    private static final VarHandle INT_ARRAY = MethodHandles.arrayElementVarHandle(int[].class);
+
+    private volatile Chunk[] chunks = new Chunk[0];
+    private final ArrayDeque<Integer> freeSlots = new ArrayDeque<>();
+    private int highWater; // 已使用过的最大槽位数
+    private int allocated;
+
+    /**
+     * 分配一个槽位，需求值初始为默认值但都不存在
+     */
+    synchronized int allocate(Agent owner) {
+        Integer free = freeSlots.poll();
+        int slot;
+        if (free != null) {
+            slot = free;
+        } else {
+            slot = highWater++;
+            if ((slot >>> CHUNK_SHIFT) >= chunks.length) {
+                Chunk[] grown = Arrays.copyOf(chunks, chunks.length + 1);
+                grown[chunks.length] = new Chunk();
+                chunks = grown;
+            }
+        }
+        Chunk chunk = chunks[slot >>> CHUNK_SHIFT];
+        int index = slot & CHUNK_MASK;
+        for (Need need : NEEDS) {
+            chunk.columns[need.ordinal()][index] = need.defaultValue;
+        }
+        chunk.present[index] = 0;
+        chunk.owners[index] = owner;
+        allocated++;
+        return slot;
+    }
+
+    /**
+     * 释放槽位，之后可被新的智能体复用
+     */
+    synchronized void release(int slot) {
+        Chunk chunk = chunks[slot >>> CHUNK_SHIFT];
+        int index = slot & CHUNK_MASK;
+        chunk.present[index] = 0;
+        chunk.owners[index] = null;
+        freeSlots.push(slot);
+        allocated--;
+    }
+
+    /**
+     * 读取需求值，不检查是否存在
+     */
+    int get(int slot, Need need) {
+        return chunks[slot >>> CHUNK_SHIFT].columns[need.ordinal()][slot & CHUNK_MASK];
+    }
+
+    /**
+     * 写入需求值，不改变存在标记
+     */
+    void set(int slot, Need need, int value) {
+        INT_ARRAY.setRelease(chunks[slot >>> CHUNK_SHIFT].columns[need.ordinal()], slot & CHUNK_MASK, value);
+    }
+
+    /**
+     * 槽位上存在的需求位图
+     */
+    int presentBits(int slot) {
+        return chunks[slot >>> CHUNK_SHIFT].present[slot & CHUNK_MASK];
+    }
+
+    /**
+     * 设置槽位上存在的需求位图，调用方负责同一槽位的互斥
+     */
+    void setPresentBits(int slot, int bits) {
+        chunks[slot >>> CHUNK_SHIFT].present[slot & CHUNK_MASK] = (byte) bits;
+    }
+
+    /**
+     * 所有智能体的某项需求加上delta并限制在[min, max]内
+     * 只处理存在该需求的槽位，值发生变化的智能体标记状态待持久化。
+     * 每个槽位按比较并交换更新：智能体在此期间写入的新值不会被覆盖，而是在新值上再加delta
+     * @return 值发生变化的智能体数
+     */
+    public int addClamped(Need need, int delta, int min, int max) {
+        int column = need.ordinal();
+        int bit = need.bit();
+        int limit = highWaterSnapshot();
+        Chunk[] current = chunks;
+        int changed = 0;
+        for (int c = 0; c < current.length && c * CHUNK_SIZE < limit; c++) {
+            Chunk chunk = current[c];
+            int[] values = chunk.columns[column];
+            int end = Math.min(CHUNK_SIZE, limit - c * CHUNK_SIZE);
+            for (int i = 0; i < end; i++) {
+                if ((chunk.present[i] & bit) != 0 && addClamped(values, i, delta, min, max)) {
+                    changed++;
+                    Agent owner = chunk.owners[i];
+                    if (owner != null) {
+                        owner.markDirty(Agent.DIRTY_STATE);
+                    }
+                }
+            }
+        }
+        return changed;
+    }
+
+    private static boolean addClamped(int[] values, int index, int delta, int min, int max) {
+        int value = values[index];
+        while (true) {
+            int updated = (int) Math.max(min, Math.min(max, (long) value + delta));
+            if (updated == value) {
+                return false;
+            }
+            int witness = (int) INT_ARRAY.compareAndExchange(values, index, value, updated);
+            if (witness == value) {
+                return true;
+            }
+            value = witness;
+        }
+    }
+
+    /**
+     * 某项需求高于阈值的智能体数
+     */
+    public int countAbove(Need need, int threshold) {
+        return count(need, threshold, true);
+    }
+
+    /**
+     * 某项需求低于阈值的智能体数
+     */
+    public int countBelow(Need need, int threshold) {
+        return count(need, threshold, false);
+    }
+
+    private int count(Need need, int threshold, boolean above) {
+        int column = need.ordinal();
+        int bit = need.bit();
+        int limit = highWaterSnapshot();
+        Chunk[] current = chunks;
+        int count = 0;
+        for (int c = 0; c < current.length && c * CHUNK_SIZE < limit; c++) {
+            int[] values = current[c].columns[column];
+            byte[] present = current[c].present;
+            int end = Math.min(CHUNK_SIZE, limit - c * CHUNK_SIZE);
+            for (int i = 0; i < end; i++) {
+                boolean match = above ? values[i] > threshold : values[i] < threshold;
+                count += match && (present[i] & bit) != 0 ? 1 : 0;
+            }
+        }
+        return count;
+    }
+
+    private synchronized int highWaterSnapshot() {
+        return highWater;
+    }
+
+    /**
+     * 已分配的槽位数
+     */
+    public synchronized int getAllocatedCount() {
+        return allocated;
+    }
+
+    /**
+     * 获取存储统计信息
+     */
+    public synchronized Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("allocatedSlots", allocated);
+        stats.put("highWater", highWater);
+        stats.put("freeSlots", freeSlots.size());
+        stats.put("chunks", chunks.length);
+        stats.put("chunkSize", CHUNK_SIZE);
+        return stats;
+    }
+
+    /**
+     * 存储块：每项需求一列，外加存在标记和所属智能体
+     */
+    private static final class Chunk {
+        private final int[][] columns = new int[NEEDS.length][CHUNK_SIZE];
+        private final byte[] present = new byte[CHUNK_SIZE];
+        private final Agent[] owners = new Agent[CHUNK_SIZE];
+    }
+}
@@ -1,63 +1,210 @@
 package org.example.star_town.ai.behavior;
 
+import lombok.AccessLevel;
 import lombok.Getter;
-import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 行为树执行上下文
- * 存储执行过程中的共享数据
+ * 存储执行过程中的共享数据。
+ * 已注册为{@link ContextKey}的键保存在基本类型槽位中，按槽位读写时不做哈希也不装箱；
+ * 其余键保存在通用的键值表中。上下文可通过{@link #reset()}在多次tick之间复用
  */
 @Getter
-@Setter
 @Slf4j
 public class BehaviorContext {
-    
+
     private static final Logger log = LoggerFactory.getLogger(BehaviorContext.class);
-    
+
+    @Getter(AccessLevel.NONE)
     private final Map<String, Object> data = new ConcurrentHashMap<>();
-    private final long startTime;
+    private long startTime;
     private final String agentId;
-    
+
+    // 槽位数据：整数值数组，布尔值与存在/修改标记按位保存
+    @Getter(AccessLevel.NONE)
+    private final int[] intValues = new int[ContextKey.MAX_SLOTS];
+    @Getter(AccessLevel.NONE)
+    private long booleanValues;
+    @Getter(AccessLevel.NONE)
+    private long intPresent;
+    @Getter(AccessLevel.NONE)
+    private long booleanPresent;
+    private long changedIntSlots;
+    private long changedBooleanSlots;
+
     public BehaviorContext(String agentId) {
         this.agentId = agentId;
         this.startTime = System.currentTimeMillis();
     }
-    
+
+    /**
+     * 重置上下文以便下一次tick复用
+     */
+    public void reset() {
+        data.clear();
+        intPresent = 0;
+        booleanPresent = 0;
+        booleanValues = 0;
+        changedIntSlots = 0;
+        changedBooleanSlots = 0;
+        startTime = System.currentTimeMillis();
+    }
+
+    /**
+     * 槽位是否有值
+     */
+    public boolean has(ContextKey key) {
+        long present = key.getType() == ContextKey.Type.INT ? intPresent : booleanPresent;
+        return (present & key.mask()) != 0;
+    }
+
+    /**
+     * 读取整数槽位，无值时返回0
+     */
+    public int getInt(ContextKey key) {
+        return getInt(key, 0);
+    }
+
+    /**
+     * 读取整数槽位，无值时返回默认值
+     */
+    public int getInt(ContextKey key, int defaultValue) {
+        return (intPresent & key.mask()) != 0 ? intValues[key.getSlot()] : defaultValue;
+    }
+
+    /**
+     * 写入整数槽位
+     */
+    public void putInt(ContextKey key, int value) {
+        int slot = key.getSlot();
+        long mask = key.mask();
+        if ((intPresent & mask) == 0 || intValues[slot] != value) {
+            changedIntSlots |= mask;
+        }
+        intValues[slot] = value;
+        intPresent |= mask;
+    }
+
+    /**
+     * 设置整数槽位的初始值，不记为修改
+     */
+    public void loadInt(ContextKey key, int value) {
+        intValues[key.getSlot()] = value;
+        intPresent |= key.mask();
+    }
+
+    /**
+     * 读取布尔槽位，无值时返回false
+     */
+    public boolean getBoolean(ContextKey key) {
+        return (booleanValues & booleanPresent & key.mask()) != 0;
+    }
+
+    /**
+     * 写入布尔槽位
+     */
+    public void putBoolean(ContextKey key, boolean value) {
+        long mask = key.mask();
+        if ((booleanPresent & mask) == 0 || getBoolean(key) != value) {
+            changedBooleanSlots |= mask;
+        }
+        loadBoolean(key, value);
+    }
+
+    /**
+     * 设置布尔槽位的初始值，不记为修改
+     */
+    public void loadBoolean(ContextKey key, boolean value) {
+        long mask = key.mask();
+        booleanValues = value ? booleanValues | mask : booleanValues & ~mask;
+        booleanPresent |= mask;
+    }
+
+    /**
+     * 槽位在本次tick中是否被修改
+     */
+    public boolean isChanged(ContextKey key) {
+        long changed = key.getType() == ContextKey.Type.INT ? changedIntSlots : changedBooleanSlots;
+        return (changed & key.mask()) != 0;
+    }
+
     /**
      * 存储数据
      */
     public void put(String key, Object value) {
-        if (value != null) {
-            data.put(key, value);
-        } else {
+        if (value == null) {
             log.warn("Attempted to put null value for key '{}' in BehaviorContext for agent '{}'", key, agentId);
+            return;
+        }
+        if (!putSlot(key, value)) {
+            data.put(key, value);
         }
     }
-    
+
     /**
      * 安全存储数据，如果值为null则使用默认值
      */
     public void putSafe(String key, Object value, Object defaultValue) {
-        data.put(key, value != null ? value : defaultValue);
+        Object actual = value != null ? value : defaultValue;
+        if (!putSlot(key, actual)) {
+            data.put(key, actual);
+        }
     }
-    
+
+    /**
+     * 已注册键且类型匹配时写入槽位
+     */
+    private boolean putSlot(String key, Object value) {
+        ContextKey contextKey = ContextKey.lookup(key);
+        if (contextKey == null) {
+            return false;
+        }
+        if (contextKey.getType() == ContextKey.Type.INT && value instanceof Integer intValue) {
+            putInt(contextKey, intValue);
+        } else if (contextKey.getType() == ContextKey.Type.BOOLEAN && value instanceof Boolean booleanValue) {
+            putBoolean(contextKey, booleanValue);
+        } else {
+            clearSlot(contextKey);
+            return false;
+        }
+        data.remove(key);
+        return true;
+    }
+
+    private void clearSlot(ContextKey key) {
+        if (key.getType() == ContextKey.Type.INT) {
+            intPresent &= ~key.mask();
+        } else {
+            booleanPresent &= ~key.mask();
+        }
+    }
+
     /**
      * 获取数据
      */
     @SuppressWarnings("unchecked")
     public <T> T get(String key, Class<T> type) {
-        Object value = data.get(key);
+        Object value = getValue(key);
         if (value != null && type.isAssignableFrom(value.getClass())) {
             return (T) value;
         }
         return null;
     }
-    
+
+    private Object getValue(String key) {
+        ContextKey contextKey = ContextKey.lookup(key);
+        if (contextKey != null && has(contextKey)) {
+            return contextKey.getType() == ContextKey.Type.INT ? getInt(contextKey) : getBoolean(contextKey);
+        }
+        return data.get(key);
+    }
+
     /**
      * 获取数据，带默认值
      */
@@ -66,28 +213,85 @@ public class BehaviorContext {
         T value = get(key, type);
         return value != null ? value : defaultValue;
     }
-    
+
     /**
      * 检查是否包含某个键
      */
     public boolean contains(String key) {
-        return data.containsKey(key);
+        ContextKey contextKey = ContextKey.lookup(key);
+        return (contextKey != null && has(contextKey)) || data.containsKey(key);
     }
-    
+
     /**
      * 移除数据
      */
     public Object remove(String key) {
+        ContextKey contextKey = ContextKey.lookup(key);
+        if (contextKey != null && has(contextKey)) {
+            Object value = getValue(key);
+            clearSlot(contextKey);
+            return value;
+        }
         return data.remove(key);
     }
-    
+
     /**
      * 清空所有数据
      */
     public void clear() {
         data.clear();
+        intPresent = 0;
+        booleanPresent = 0;
+    }
+
+    /**
+     * 获取所有数据的快照（包含槽位数据）
+     */
+    public Map<String, Object> getData() {
+        Map<String, Object> snapshot = new HashMap<>(data);
+        for (ContextKey key : ContextKey.registeredKeys()) {
+            if (has(key)) {
+                snapshot.put(key.getName(), key.getType() == ContextKey.Type.INT ? getInt(key) : getBoolean(key));
+            }
+        }
+        return snapshot;
     }
-    
+
+    /**
+     * 整数槽位的原始值，不检查是否存在
+     */
+    int intSlotValue(int slot) {
+        return intValues[slot];
+    }
+
+    /**
+     * 有值的整数槽位位图
+     */
+    long intPresentBits() {
+        return intPresent;
+    }
+
+    /**
+     * 有值的布尔槽位位图
+     */
+    long booleanPresentBits() {
+        return booleanPresent;
+    }
+
+    /**
+     * 布尔槽位的值位图
+     */
+    long booleanValueBits() {
+        return booleanValues & booleanPresent;
+    }
+
+    /**
+     * 通用键值表中是否有数据
+     */
+    boolean hasUnslottedData() {
+        return !data.isEmpty();
+    }
+
     /**
      * 获取执行时长
      */
@@ -28,116 +28,104 @@ public class BehaviorLibrary {
      * 初始化公共行为
      */
     private void initializeCommonBehaviors() {
-        // 公共条件节点
+        // 公共条件节点，声明读取的上下文键以便行为树在需求值未变化时跳过求值
         registerConditionNode("IsHungry", context -> {
-            Integer hunger = context.get("hunger", Integer.class);
-            return hunger != null && hunger > 70;
-        });
+            return context.getInt(ContextKey.HUNGER) > 70;
+        }).reads(ContextKey.HUNGER);
         
         registerConditionNode("IsVeryHungry", context -> {
-            Integer hunger = context.get("hunger", Integer.class);
-            return hunger != null && hunger > 90;
-        });
+            return context.getInt(ContextKey.HUNGER) > 90;
+        }).reads(ContextKey.HUNGER);
         
         registerConditionNode("IsTired", context -> {
-            Integer energy = context.get("energy", Integer.class);
-            return energy != null && energy < 30;
-        });
+            return context.has(ContextKey.ENERGY) && context.getInt(ContextKey.ENERGY) < 30;
+        }).reads(ContextKey.ENERGY);
         
         registerConditionNode("IsVeryTired", context -> {
-            Integer energy = context.get("energy", Integer.class);
-            return energy != null && energy < 10;
-        });
+            return context.has(ContextKey.ENERGY) && context.getInt(ContextKey.ENERGY) < 10;
+        }).reads(ContextKey.ENERGY);
         
         registerConditionNode("HasFood", context -> {
-            Boolean hasFood = context.get("hasFood", Boolean.class);
-            return hasFood != null && hasFood;
-        });
+            return context.getBoolean(ContextKey.HAS_FOOD);
+        }).reads(ContextKey.HAS_FOOD);
         
         registerConditionNode("HasWorkplace", context -> {
-            Boolean hasWorkplace = context.get("hasWorkplace", Boolean.class);
-            return hasWorkplace != null && hasWorkplace;
-        });
+            return context.getBoolean(ContextKey.HAS_WORKPLACE);
+        }).reads(ContextKey.HAS_WORKPLACE);
         
         registerConditionNode("HasNearbyAgents", context -> {
+            if (context.has(ContextKey.NEARBY_AGENT_COUNT)) {
+                return context.getInt(ContextKey.NEARBY_AGENT_COUNT) > 0;
+            }
             List<Object> nearbyAgents = context.get("nearbyAgents", List.class);
             return nearbyAgents != null && !nearbyAgents.isEmpty();
-        });
+        }).reads(ContextKey.NEARBY_AGENT_COUNT);
         
         registerConditionNode("LowHappiness", context -> {
-            Integer happiness = context.get("happiness", Integer.class);
-            return happiness != null && happiness < 40;
-        });
+            return context.has(ContextKey.HAPPINESS) && context.getInt(ContextKey.HAPPINESS) < 40;
+        }).reads(ContextKey.HAPPINESS);
         
         registerConditionNode("ShouldWork", context -> {
-            Integer energy = context.get("energy", Integer.class);
-            Integer hunger = context.get("hunger", Integer.class);
-            return energy != null && energy > 40 && hunger != null && hunger < 60;
-        });
+            return context.getInt(ContextKey.ENERGY) > 40
+                    && context.has(ContextKey.HUNGER) && context.getInt(ContextKey.HUNGER) < 60;
+        }).reads(ContextKey.ENERGY, ContextKey.HUNGER);
         
         // 公共动作节点
         registerActionNode("Eat", context -> {
             log.debug("Executing Eat action");
-            Integer hunger = context.get("hunger", Integer.class);
-            if (hunger != null) {
-                context.put("hunger", Math.max(0, hunger - 30));
+            if (context.has(ContextKey.HUNGER)) {
+                context.putInt(ContextKey.HUNGER, Math.max(0, context.getInt(ContextKey.HUNGER) - 30));
             }
             return BehaviorNode.Status.SUCCESS;
-        });
+        }).reads(ContextKey.HUNGER);
         
         registerActionNode("EmergencyEat", context -> {
             log.debug("Executing Emergency Eat action");
-            context.put("hunger", 20);
+            context.putInt(ContextKey.HUNGER, 20);
             return BehaviorNode.Status.SUCCESS;
-        });
+        }).reads();
         
         registerActionNode("Sleep", context -> {
             log.debug("Executing Sleep action");
-            Integer energy = context.get("energy", Integer.class);
-            if (energy != null) {
-                context.put("energy", Math.min(100, energy + 50));
+            if (context.has(ContextKey.ENERGY)) {
+                context.putInt(ContextKey.ENERGY, Math.min(100, context.getInt(ContextKey.ENERGY) + 50));
             }
             return BehaviorNode.Status.SUCCESS;
-        });
+        }).reads(ContextKey.ENERGY);
         
         registerActionNode("EmergencySleep", context -> {
             log.debug("Executing Emergency Sleep action");
-            context.put("energy", 80);
+            context.putInt(ContextKey.ENERGY, 80);
             return BehaviorNode.Status.SUCCESS;
-        });
+        }).reads();
         
         registerActionNode("Work", context -> {
             log.debug("Executing Work action");
-            Integer energy = context.get("energy", Integer.class);
-            Integer income = context.get("income", Integer.class);
-            
-            if (energy != null) {
-                context.put("energy", Math.max(0, energy - 20));
+            if (context.has(ContextKey.ENERGY)) {
+                context.putInt(ContextKey.ENERGY, Math.max(0, context.getInt(ContextKey.ENERGY) - 20));
             }
-            if (income != null) {
-                context.put("income", income + 10);
+            if (context.has(ContextKey.INCOME)) {
+                context.putInt(ContextKey.INCOME, context.getInt(ContextKey.INCOME) + 10);
             }
             
             return BehaviorNode.Status.SUCCESS;
-        });
+        }).reads(ContextKey.ENERGY, ContextKey.INCOME);
         
         registerActionNode("Socialize", context -> {
             log.debug("Executing Socialize action");
-            Integer happiness = context.get("happiness", Integer.class);
-            if (happiness != null) {
-                context.put("happiness", Math.min(100, happiness + 15));
+            if (context.has(ContextKey.HAPPINESS)) {
+                context.putInt(ContextKey.HAPPINESS, Math.min(100, context.getInt(ContextKey.HAPPINESS) + 15));
             }
             return BehaviorNode.Status.SUCCESS;
-        });
+        }).reads(ContextKey.HAPPINESS);
         
         registerActionNode("Rest", context -> {
             log.debug("Executing Rest action");
-            Integer energy = context.get("energy", Integer.class);
-            if (energy != null) {
-                context.put("energy", Math.min(100, energy + 25));
+            if (context.has(ContextKey.ENERGY)) {
+                context.putInt(ContextKey.ENERGY, Math.min(100, context.getInt(ContextKey.ENERGY) + 25));
             }
             return BehaviorNode.Status.SUCCESS;
-        });
+        }).reads(ContextKey.ENERGY);
     }
     
     /**
@@ -183,8 +171,9 @@ public class BehaviorLibrary {
     
     /**
      * 注册条件节点
+     * @return 注册的节点，可继续用{@link BehaviorNode#reads}声明读取的上下文键
      */
-    public void registerConditionNode(String name, java.util.function.Function<BehaviorContext, Boolean> condition) {
+    public BehaviorNode registerConditionNode(String name, java.util.function.Function<BehaviorContext, Boolean> condition) {
         ConditionNode node = new ConditionNode(name) {
             @Override
             protected boolean checkCondition(BehaviorContext context) {
@@ -192,12 +181,14 @@ public class BehaviorLibrary {
             }
         };
         behaviorNodes.put(name, node);
+        return node;
     }
     
     /**
      * 注册动作节点
+     * @return 注册的节点，可继续用{@link BehaviorNode#reads}声明读取的上下文键
      */
-    public void registerActionNode(String name, java.util.function.Function<BehaviorContext, BehaviorNode.Status> action) {
+    public BehaviorNode registerActionNode(String name, java.util.function.Function<BehaviorContext, BehaviorNode.Status> action) {
         ActionNode node = new ActionNode(name) {
             @Override
             protected Status doAction(BehaviorContext context) {
@@ -205,6 +196,7 @@ public class BehaviorLibrary {
             }
         };
         behaviorNodes.put(name, node);
+        return node;
     }
     
     /**
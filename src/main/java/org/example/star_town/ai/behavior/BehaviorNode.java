@@ -1,5 +1,6 @@
 package org.example.star_town.ai.behavior;
 
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 
@@ -21,6 +22,11 @@ public abstract class BehaviorNode {
     protected String name;
     protected Status status = Status.READY;
     
+    // 节点读取的上下文键，null表示未声明
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private ContextKey[] readKeys;
+    
     public BehaviorNode(String name) {
         this.name = name;
     }
@@ -32,6 +38,23 @@ public abstract class BehaviorNode {
      */
     public abstract Status execute(BehaviorContext context);
     
+    /**
+     * 声明节点读取的上下文键，不读取任何键时不传参数
+     * 节点的结果只取决于声明的键时，编译后的行为树可以在这些键都没有变化时跳过重新求值
+     * @return 节点本身，便于链式调用
+     */
+    public BehaviorNode reads(ContextKey... keys) {
+        this.readKeys = keys.clone();
+        return this;
+    }
+    
+    /**
+     * 声明的读取键，未声明时为null
+     */
+    ContextKey[] declaredReads() {
+        return readKeys;
+    }
+    
     /**
      * 重置节点状态
      */
@@ -0,0 +1,15 @@
+package org.example.star_town.ai.behavior;
+
+/**
+ * 行为树节点计时器
+ * 传给{@link CompiledBehaviorTree#tick(BehaviorContext, CompiledBehaviorTree.ExecutionState, BehaviorNodeTimer)}后，
+ * 每个条件、动作和回退节点的执行耗时都会报告给它
+ */
+@FunctionalInterface
+public interface BehaviorNodeTimer {
+
+    /**
+     * 记录一次节点执行耗时
+     */
+    void recordNode(String nodeName, long nanos);
+}
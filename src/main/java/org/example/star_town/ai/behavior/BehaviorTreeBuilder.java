@@ -121,36 +121,34 @@ public class BehaviorTreeBuilder {
         veryHungryBranch.addChild(new ConditionNode("VeryHungry") {
             @Override
             protected boolean checkCondition(BehaviorContext context) {
-                Integer hunger = context.get("hunger", Integer.class);
-                return hunger != null && hunger > 90;
+                return context.getInt(ContextKey.HUNGER) > 90;
             }
-        });
+        }.reads(ContextKey.HUNGER));
         veryHungryBranch.addChild(new ActionNode("EmergencyEat") {
             @Override
             protected Status doAction(BehaviorContext context) {
                 log.debug("Emergency eating - very hungry!");
-                context.put("hunger", 20);
+                context.putInt(ContextKey.HUNGER, 20);
                 return Status.SUCCESS;
             }
-        });
+        }.reads());
         
         // 极度疲劳
         SequenceNode veryTiredBranch = new SequenceNode("VeryTiredBranch");
         veryTiredBranch.addChild(new ConditionNode("VeryTired") {
             @Override
             protected boolean checkCondition(BehaviorContext context) {
-                Integer energy = context.get("energy", Integer.class);
-                return energy != null && energy < 10;
+                return context.has(ContextKey.ENERGY) && context.getInt(ContextKey.ENERGY) < 10;
             }
-        });
+        }.reads(ContextKey.ENERGY));
         veryTiredBranch.addChild(new ActionNode("EmergencySleep") {
             @Override
             protected Status doAction(BehaviorContext context) {
                 log.debug("Emergency sleeping - very tired!");
-                context.put("energy", 80);
+                context.putInt(ContextKey.ENERGY, 80);
                 return Status.SUCCESS;
             }
-        });
+        }.reads());
         
         urgentBranch.addChild(veryHungryBranch);
         urgentBranch.addChild(veryTiredBranch);
@@ -172,10 +170,9 @@ public class BehaviorTreeBuilder {
         socialNeedsBranch.addChild(new ConditionNode("LowHappiness") {
             @Override
             protected boolean checkCondition(BehaviorContext context) {
-                Integer happiness = context.get("happiness", Integer.class);
-                return happiness != null && happiness < 40;
+                return context.has(ContextKey.HAPPINESS) && context.getInt(ContextKey.HAPPINESS) < 40;
             }
-        });
+        }.reads(ContextKey.HAPPINESS));
         socialNeedsBranch.addChild(behaviorLibrary.getBehaviorNode("Socialize"));
         
         // 工作分支
@@ -183,11 +180,10 @@ public class BehaviorTreeBuilder {
         workBranch.addChild(new ConditionNode("ShouldWork") {
             @Override
             protected boolean checkCondition(BehaviorContext context) {
-                Integer energy = context.get("energy", Integer.class);
-                Integer hunger = context.get("hunger", Integer.class);
-                return energy != null && energy > 40 && hunger != null && hunger < 60;
+                return context.getInt(ContextKey.ENERGY) > 40
+                        && context.has(ContextKey.HUNGER) && context.getInt(ContextKey.HUNGER) < 60;
             }
-        });
+        }.reads(ContextKey.ENERGY, ContextKey.HUNGER));
         workBranch.addChild(behaviorLibrary.getBehaviorNode("Work"));
         
         normalBranch.addChild(basicNeedsBranch);
@@ -0,0 +1,122 @@
+package org.example.star_town.ai.behavior;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 行为树编译器
+ * 将节点对象图或行为树配置编译为{@link CompiledBehaviorTree}的扁平指令数组：
+ * 顺序节点编译为"子节点 + 失败跳转"，选择节点编译为"子节点 + 成功跳转"，跳转目标均为复合节点末尾
+ */
+public final class BehaviorTreeCompiler {
+
+    private final List<Integer> code = new ArrayList<>();
+    private final List<ConditionNode> conditions = new ArrayList<>();
+    private final List<ActionNode> actions = new ArrayList<>();
+    private final List<BehaviorNode> fallbackNodes = new ArrayList<>();
+
+    private BehaviorTreeCompiler() {
+    }
+
+    /**
+     * 编译节点对象图
+     */
+    public static CompiledBehaviorTree compile(BehaviorNode root) {
+        if (root == null) {
+            throw new IllegalArgumentException("Behavior tree root must not be null");
+        }
+
+        BehaviorTreeCompiler compiler = new BehaviorTreeCompiler();
+        compiler.emitNode(root);
+        return compiler.link(root.getName());
+    }
+
+    /**
+     * 编译行为树配置
+     */
+    public static CompiledBehaviorTree compile(BehaviorTreeConfig config) {
+        return compile(new BehaviorTreeBuilder().buildFromConfig(config));
+    }
+
+    /**
+     * 生成单个节点的指令
+     */
+    private void emitNode(BehaviorNode node) {
+        if (node instanceof SequenceNode sequence) {
+            emitComposite(sequence, CompiledBehaviorTree.OP_JUMP_IF_FAILURE);
+        } else if (node instanceof SelectorNode selector) {
+            emitComposite(selector, CompiledBehaviorTree.OP_JUMP_IF_SUCCESS);
+        } else if (node instanceof ConditionNode condition) {
+            emit(CompiledBehaviorTree.OP_CONDITION, conditions.size());
+            conditions.add(condition);
+        } else if (node instanceof ActionNode action) {
+            emit(CompiledBehaviorTree.OP_ACTION, actions.size());
+            actions.add(action);
+        } else {
+            // 其他节点类型无法展开，整体退回对象图执行
+            emit(CompiledBehaviorTree.OP_CALL, fallbackNodes.size());
+            fallbackNodes.add(node);
+        }
+    }
+
+    /**
+     * 生成复合节点的指令：除最后一个子节点外，每个子节点后跟一条跳到末尾的条件跳转
+     */
+    private void emitComposite(CompositeNode composite, int jumpOpcode) {
+        List<BehaviorNode> children = composite.getChildren();
+        if (children.isEmpty()) {
+            emit(CompiledBehaviorTree.OP_FAIL, 0);
+            return;
+        }
+
+        List<Integer> pendingJumps = new ArrayList<>();
+        for (int i = 0; i < children.size(); i++) {
+            emitNode(children.get(i));
+            if (i < children.size() - 1) {
+                pendingJumps.add(code.size());
+                emit(jumpOpcode, 0);
+            }
+        }
+
+        int end = code.size();
+        for (int pc : pendingJumps) {
+            code.set(pc, encode(jumpOpcode, end));
+        }
+    }
+
+    /**
+     * 链接：串联跳转并生成编译结果
+     * 跳转目标若是同类型的跳转，结果寄存器不变，可以直接跳到最终目标
+     */
+    private CompiledBehaviorTree link(String name) {
+        int[] instructions = code.stream().mapToInt(Integer::intValue).toArray();
+
+        for (int pc = 0; pc < instructions.length; pc++) {
+            int opcode = instructions[pc] & 0xFF;
+            if (opcode != CompiledBehaviorTree.OP_JUMP_IF_FAILURE && opcode != CompiledBehaviorTree.OP_JUMP_IF_SUCCESS) {
+                continue;
+            }
+            int target = instructions[pc] >>> 8;
+            while (target < instructions.length && (instructions[target] & 0xFF) == opcode) {
+                target = instructions[target] >>> 8;
+            }
+            instructions[pc] = encode(opcode, target);
+        }
+
+        return new CompiledBehaviorTree(name, instructions,
+                conditions.toArray(new ConditionNode[0]),
+                actions.toArray(new ActionNode[0]),
+                fallbackNodes.toArray(new BehaviorNode[0]));
+    }
+
+    private void emit(int opcode, int operand) {
+        code.add(encode(opcode, operand));
+    }
+
+    private static int encode(int opcode, int operand) {
+        if (operand < 0 || operand > 0xFFFFFF) {
+            throw new IllegalStateException("Behavior tree too large to compile: operand " + operand);
+        }
+        return (operand << 8) | opcode;
+    }
+}
@@ -0,0 +1,350 @@
+package org.example.star_town.ai.behavior;
+
+import lombok.Getter;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 编译后的行为树
+ * 以扁平的指令数组表示整棵树，由紧凑的解释循环执行，执行过程中不分配对象、不做虚调用以外的间接查找。
+ * 指令格式为 (操作数 &lt;&lt; 8) | 操作码，跳转目标为绝对地址。
+ * 所有节点都声明了读取的上下文键时，{@link #tickIfChanged}只在这些键的值变化或有动作运行中时才重新求值
+ */
+public final class CompiledBehaviorTree {
+
+    static final int OP_CONDITION = 1;         // 执行条件节点，结果写入结果寄存器
+    static final int OP_ACTION = 2;            // 执行动作节点，RUNNING时挂起整棵树
+    static final int OP_JUMP_IF_FAILURE = 3;   // 顺序节点：子节点失败则跳到顺序节点末尾
+    static final int OP_JUMP_IF_SUCCESS = 4;   // 选择节点：子节点成功则跳到选择节点末尾
+    static final int OP_FAIL = 5;              // 空复合节点，直接失败
+    static final int OP_CALL = 6;              // 未知节点类型，退回对象图执行
+
+    private static final int RUNNING = BehaviorNode.Status.RUNNING.ordinal();
+    private static final int SUCCESS = BehaviorNode.Status.SUCCESS.ordinal();
+    private static final int FAILURE = BehaviorNode.Status.FAILURE.ordinal();
+    private static final BehaviorNode.Status[] STATUSES = BehaviorNode.Status.values();
+
+    @Getter
+    private final String name;
+    private final int[] code;
+    private final ConditionNode[] conditions;
+    private final ActionNode[] actions;
+    private final BehaviorNode[] fallbackNodes;
+
+    // 整棵树读取的上下文键，readsDeclared为false时未知
+    @Getter
+    private final boolean readsDeclared;
+    private final int[] readIntSlots;
+    private final long readIntMask;
+    private final long readBooleanMask;
+
+    private final LongAdder evaluations = new LongAdder();
+    private final LongAdder skips = new LongAdder();
+
+    CompiledBehaviorTree(String name, int[] code, ConditionNode[] conditions, ActionNode[] actions,
+                         BehaviorNode[] fallbackNodes) {
+        this.name = name;
+        this.code = code;
+        this.conditions = conditions;
+        this.actions = actions;
+        this.fallbackNodes = fallbackNodes;
+
+        // 退回对象图执行的节点可能包含任意子树，无法确定读取的键
+        boolean declared = fallbackNodes.length == 0;
+        long intMask = 0;
+        long booleanMask = 0;
+        for (BehaviorNode node : concat(conditions, actions)) {
+            ContextKey[] keys = node.declaredReads();
+            if (keys == null) {
+                declared = false;
+                break;
+            }
+            for (ContextKey key : keys) {
+                if (key.getType() == ContextKey.Type.INT) {
+                    intMask |= key.mask();
+                } else {
+                    booleanMask |= key.mask();
+                }
+            }
+        }
+        this.readsDeclared = declared;
+        this.readIntMask = declared ? intMask : 0;
+        this.readBooleanMask = declared ? booleanMask : 0;
+        this.readIntSlots = new int[Long.bitCount(this.readIntMask)];
+        long remaining = this.readIntMask;
+        for (int i = 0; remaining != 0; i++) {
+            readIntSlots[i] = Long.numberOfTrailingZeros(remaining);
+            remaining &= remaining - 1;
+        }
+    }
+
+    private static BehaviorNode[] concat(ConditionNode[] conditions, ActionNode[] actions) {
+        BehaviorNode[] nodes = Arrays.copyOf(conditions, conditions.length + actions.length, BehaviorNode[].class);
+        System.arraycopy(actions, 0, nodes, conditions.length, actions.length);
+        return nodes;
+    }
+
+    /**
+     * 创建一份新的执行状态
+     */
+    public ExecutionState newState() {
+        return new ExecutionState(this);
+    }
+
+    /**
+     * 执行一次行为树
+     */
+    public BehaviorNode.Status tick(BehaviorContext context, ExecutionState state) {
+        return tick(context, state, null);
+    }
+
+    /**
+     * 输入变化时才执行行为树
+     * 上次求值已经结束、没有运行中的动作，且树读取的上下文键与上次求值时相同时，直接返回上次的结果。
+     * 节点的结果只取决于声明的键，所以跳过的求值与重新执行结果一致；未声明读取键的树每次都执行
+     */
+    public BehaviorNode.Status tickIfChanged(BehaviorContext context, ExecutionState state, BehaviorNodeTimer timer) {
+        checkState(state);
+        if (isUpToDate(context, state)) {
+            skips.increment();
+            return state.lastResult;
+        }
+        return tick(context, state, timer);
+    }
+
+    /**
+     * 上下文中树读取的键是否与上次求值时相同
+     * 通用键值表中的数据不在声明范围内，有数据时总是重新求值
+     */
+    private boolean isUpToDate(BehaviorContext context, ExecutionState state) {
+        if (!state.evaluated || state.resumePc >= 0 || context.hasUnslottedData()) {
+            return false;
+        }
+        if ((context.intPresentBits() & readIntMask) != state.intPresent
+                || (context.booleanPresentBits() & readBooleanMask) != state.booleanPresent
+                || (context.booleanValueBits() & readBooleanMask) != state.booleanValues) {
+            return false;
+        }
+        final int[] slots = readIntSlots;
+        for (int i = 0; i < slots.length; i++) {
+            if (context.intSlotValue(slots[i]) != state.intValues[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 记录本次求值的输入
+     */
+    private void captureInputs(BehaviorContext context, ExecutionState state) {
+        state.intPresent = context.intPresentBits() & readIntMask;
+        state.booleanPresent = context.booleanPresentBits() & readBooleanMask;
+        state.booleanValues = context.booleanValueBits() & readBooleanMask;
+        final int[] slots = readIntSlots;
+        for (int i = 0; i < slots.length; i++) {
+            state.intValues[i] = context.intSlotValue(slots[i]);
+        }
+    }
+
+    private void checkState(ExecutionState state) {
+        if (state.tree != this) {
+            throw new IllegalArgumentException("Execution state was created for a different compiled tree");
+        }
+    }
+
+    /**
+     * 执行一次行为树，timer不为null时报告每个节点的执行耗时
+     */
+    public BehaviorNode.Status tick(BehaviorContext context, ExecutionState state, BehaviorNodeTimer timer) {
+        checkState(state);
+        evaluations.increment();
+
+        final int[] code = this.code;
+        int pc = state.resumePc >= 0 ? state.resumePc : 0;
+        int result = FAILURE;
+        // 从挂起点恢复时输入可能已在多个tick间变化，结束后下一次必须重新求值
+        boolean fromStart = pc == 0 && readsDeclared;
+        state.evaluated = false;
+        if (fromStart) {
+            captureInputs(context, state);
+        }
+
+        while (pc < code.length) {
+            int instruction = code[pc];
+            int operand = instruction >>> 8;
+            long nodeStart = timer != null ? System.nanoTime() : 0;
+
+            switch (instruction & 0xFF) {
+                case OP_CONDITION:
+                    result = conditions[operand].checkCondition(context) ? SUCCESS : FAILURE;
+                    if (timer != null) {
+                        timer.recordNode(conditions[operand].getName(), System.nanoTime() - nodeStart);
+                    }
+                    pc++;
+                    break;
+
+                case OP_ACTION:
+                    result = executeAction(operand, pc, context, state);
+                    if (timer != null) {
+                        timer.recordNode(actions[operand].getName(), System.nanoTime() - nodeStart);
+                    }
+                    if (result == RUNNING) {
+                        state.resumePc = pc;
+                        return BehaviorNode.Status.RUNNING;
+                    }
+                    pc++;
+                    break;
+
+                case OP_JUMP_IF_FAILURE:
+                    pc = result == FAILURE ? operand : pc + 1;
+                    break;
+
+                case OP_JUMP_IF_SUCCESS:
+                    pc = result == SUCCESS ? operand : pc + 1;
+                    break;
+
+                case OP_FAIL:
+                    result = FAILURE;
+                    pc++;
+                    break;
+
+                case OP_CALL:
+                    result = fallbackNodes[operand].execute(context).ordinal();
+                    if (timer != null) {
+                        timer.recordNode(fallbackNodes[operand].getName(), System.nanoTime() - nodeStart);
+                    }
+                    if (result == RUNNING) {
+                        state.resumePc = pc;
+                        return BehaviorNode.Status.RUNNING;
+                    }
+                    pc++;
+                    break;
+
+                default:
+                    throw new IllegalStateException("Unknown opcode at " + pc + ": " + (instruction & 0xFF));
+            }
+        }
+
+        state.resumePc = -1;
+        state.lastResult = STATUSES[result];
+        state.evaluated = fromStart;
+        return state.lastResult;
+    }
+
+    /**
+     * 执行动作节点，处理开始时间与超时
+     */
+    private int executeAction(int actionIndex, int pc, BehaviorContext context, ExecutionState state) {
+        ActionNode action = actions[actionIndex];
+        long now = System.currentTimeMillis();
+        if (state.resumePc != pc) {
+            state.actionStartTimes[actionIndex] = now;
+        }
+        state.resumePc = -1;
+
+        if (now - state.actionStartTimes[actionIndex] > action.getTimeout()) {
+            return FAILURE;
+        }
+        return action.doAction(context).ordinal();
+    }
+
+    /**
+     * 指令数
+     */
+    public int getInstructionCount() {
+        return code.length;
+    }
+
+    /**
+     * 树中是否有节点读取指定的键，未声明读取键时视为读取所有键
+     * 调用方可据此省去装入代价较高但不会被读取的值
+     */
+    public boolean reads(ContextKey key) {
+        long mask = key.getType() == ContextKey.Type.INT ? readIntMask : readBooleanMask;
+        return !readsDeclared || (mask & key.mask()) != 0;
+    }
+
+    /**
+     * 实际执行的次数
+     */
+    public long getEvaluationCount() {
+        return evaluations.sum();
+    }
+
+    /**
+     * 因输入未变化而跳过的次数
+     */
+    public long getSkipCount() {
+        return skips.sum();
+    }
+
+    /**
+     * 反汇编指令，便于诊断
+     */
+    public String disassemble() {
+        StringBuilder sb = new StringBuilder();
+        for (int pc = 0; pc < code.length; pc++) {
+            int operand = code[pc] >>> 8;
+            sb.append(String.format("%4d  ", pc));
+            switch (code[pc] & 0xFF) {
+                case OP_CONDITION -> sb.append("COND    ").append(conditions[operand].getName());
+                case OP_ACTION -> sb.append("ACTION  ").append(actions[operand].getName());
+                case OP_JUMP_IF_FAILURE -> sb.append("JF      ").append(operand);
+                case OP_JUMP_IF_SUCCESS -> sb.append("JS      ").append(operand);
+                case OP_FAIL -> sb.append("FAIL");
+                case OP_CALL -> sb.append("CALL    ").append(fallbackNodes[operand].getName());
+                default -> sb.append("???");
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 执行状态
+     * 每个智能体一份：挂起点、各动作节点的开始时间，以及上次求值的输入和结果
+     */
+    public static final class ExecutionState {
+
+        private final CompiledBehaviorTree tree;
+        private final long[] actionStartTimes;
+        private int resumePc = -1;
+
+        private boolean evaluated;
+        private BehaviorNode.Status lastResult;
+        private final int[] intValues;
+        private long intPresent;
+        private long booleanPresent;
+        private long booleanValues;
+
+        private ExecutionState(CompiledBehaviorTree tree) {
+            this.tree = tree;
+            this.actionStartTimes = new long[tree.actions.length];
+            this.intValues = new int[tree.readIntSlots.length];
+        }
+
+        /**
+         * 是否属于指定的编译树
+         */
+        public boolean belongsTo(CompiledBehaviorTree tree) {
+            return this.tree == tree;
+        }
+
+        /**
+         * 是否有动作处于运行中
+         */
+        public boolean isRunning() {
+            return resumePc >= 0;
+        }
+
+        /**
+         * 重置执行状态
+         */
+        public void reset() {
+            resumePc = -1;
+            evaluated = false;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package org.example.star_town.ai.behavior;
+
+import lombok.Getter;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 行为树上下文键
+ * 在构建行为树时将字符串键解析为固定的槽位编号，执行时按槽位直接读写{@link BehaviorContext}中的基本类型数组。
+ * 整数键和布尔键各自编号，每类最多{@value #MAX_SLOTS}个
+ */
+@Getter
+public final class ContextKey {
+
+    /**
+     * 槽位类型
+     */
+    public enum Type {
+        INT,
+        BOOLEAN
+    }
+
+    public static final int MAX_SLOTS = 64;
+
+    private static final Map<String, ContextKey> REGISTRY = new ConcurrentHashMap<>();
+    private static int intSlotCount = 0;
+    private static int booleanSlotCount = 0;
+
+    // 常用需求键
+    public static final ContextKey HUNGER = intKey("hunger");
+    public static final ContextKey ENERGY = intKey("energy");
+    public static final ContextKey HAPPINESS = intKey("happiness");
+    public static final ContextKey INCOME = intKey("income");
+    public static final ContextKey NEARBY_AGENT_COUNT = intKey("nearbyAgentCount");
+    public static final ContextKey HAS_FOOD = booleanKey("hasFood");
+    public static final ContextKey HAS_WORKPLACE = booleanKey("hasWorkplace");
+
+    private final String name;
+    private final Type type;
+    private final int slot;
+
+    private ContextKey(String name, Type type, int slot) {
+        this.name = name;
+        this.type = type;
+        this.slot = slot;
+    }
+
+    /**
+     * 获取或注册整数键
+     */
+    public static ContextKey intKey(String name) {
+        return intern(name, Type.INT);
+    }
+
+    /**
+     * 获取或注册布尔键
+     */
+    public static ContextKey booleanKey(String name) {
+        return intern(name, Type.BOOLEAN);
+    }
+
+    /**
+     * 按名称查找已注册的键，未注册时返回null
+     */
+    public static ContextKey lookup(String name) {
+        return REGISTRY.get(name);
+    }
+
+    /**
+     * 所有已注册的键
+     */
+    static Collection<ContextKey> registeredKeys() {
+        return REGISTRY.values();
+    }
+
+    /**
+     * 当前已分配的整数槽位数
+     */
+    static synchronized int getIntSlotCount() {
+        return intSlotCount;
+    }
+
+    /**
+     * 当前已分配的布尔槽位数
+     */
+    static synchronized int getBooleanSlotCount() {
+        return booleanSlotCount;
+    }
+
+    private static synchronized ContextKey intern(String name, Type type) {
+        ContextKey existing = REGISTRY.get(name);
+        if (existing != null) {
+            if (existing.type != type) {
+                throw new IllegalArgumentException("Context key '" + name + "' is already registered as " + existing.type);
+            }
+            return existing;
+        }
+
+        int slot = type == Type.INT ? intSlotCount : booleanSlotCount;
+        if (slot >= MAX_SLOTS) {
+            throw new IllegalStateException("Too many " + type + " context keys, limit is " + MAX_SLOTS);
+        }
+        if (type == Type.INT) {
+            intSlotCount++;
+        } else {
+            booleanSlotCount++;
+        }
+
+        ContextKey key = new ContextKey(name, type, slot);
+        REGISTRY.put(name, key);
+        return key;
+    }
+
+    /**
+     * 槽位对应的位掩码
+     */
+    public long mask() {
+        return 1L << slot;
+    }
+
+    @Override
+    public String toString() {
+        return name + "(" + type + "#" + slot + ")";
+    }
+}
@@ -1,161 +1,327 @@
 package org.example.star_town.ai.blackboard;
 
-import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
 /**
  * 黑板系统
- * 智能体之间共享信息的中央存储
+ * 智能体之间共享信息的中央存储，没有全局锁：
+ * 全局数据写少读多，保存为不可变快照，写入时复制并以CAS发布，读取只需一次volatile读；
+ * 智能体数据按智能体分区，每个智能体一个独立的ConcurrentHashMap，不同智能体的写入互不竞争。
+ * 需要响应变化的智能体或系统可以按键前缀订阅，值真正改变时才产生带版本号的变更，每个tick结束时成批交付；
+ * 没有订阅者时写入不产生任何通知开销
  */
 @Slf4j
-@Getter
 public class Blackboard {
-    
-    private final Map<String, Object> globalData = new ConcurrentHashMap<>();
-    private final Map<String, Map<String, Object>> agentData = new ConcurrentHashMap<>();
-    private final ReadWriteLock lock = new ReentrantReadWriteLock();
-    
+
+    private static final int SECTION_CAPACITY = 8;
+
+    private final AtomicReference<GlobalSnapshot> global = new AtomicReference<>(GlobalSnapshot.EMPTY);
+    private final ConcurrentHashMap<String, AgentSection> agentData = new ConcurrentHashMap<>();
+
+    private volatile BlackboardSubscription[] subscriptions = new BlackboardSubscription[0];
+    private final AtomicLong changeVersion = new AtomicLong();
+
     /**
      * 设置全局数据
      */
     public void setGlobal(String key, Object value) {
-        lock.writeLock().lock();
-        try {
-            globalData.put(key, value);
-            log.debug("Set global data: {} = {}", key, value);
-        } finally {
-            lock.writeLock().unlock();
+        if (value == null) {
+            throw new NullPointerException("Blackboard values must not be null");
         }
+        GlobalSnapshot current;
+        GlobalSnapshot updated;
+        do {
+            current = global.get();
+            if (value.equals(current.data.get(key))) {
+                return;
+            }
+            Map<String, Object> data = new HashMap<>(current.data);
+            data.put(key, value);
+            updated = new GlobalSnapshot(Collections.unmodifiableMap(data), current.version + 1);
+        } while (!global.compareAndSet(current, updated));
+        notifyChange(null, key, current.data.get(key), value);
+        log.debug("Set global data: {} = {}", key, value);
     }
-    
+
     /**
      * 获取全局数据
      */
     @SuppressWarnings("unchecked")
     public <T> T getGlobal(String key, Class<T> type) {
-        lock.readLock().lock();
-        try {
-            Object value = globalData.get(key);
-            if (value != null && type.isAssignableFrom(value.getClass())) {
-                return (T) value;
-            }
-            return null;
-        } finally {
-            lock.readLock().unlock();
+        Object value = global.get().data.get(key);
+        if (value != null && type.isAssignableFrom(value.getClass())) {
+            return (T) value;
         }
+        return null;
     }
-    
+
     /**
      * 设置智能体特定数据
      */
     public void setAgent(String agentId, String key, Object value) {
-        lock.writeLock().lock();
-        try {
-            agentData.computeIfAbsent(agentId, k -> new ConcurrentHashMap<>()).put(key, value);
-            log.debug("Set agent data for {}: {} = {}", agentId, key, value);
-        } finally {
-            lock.writeLock().unlock();
+        section(agentId).put(key, value);
+        log.debug("Set agent data for {}: {} = {}", agentId, key, value);
+    }
+
+    /**
+     * 获取智能体的数据分区，不存在时创建
+     * 每个tick写入多个键的调用方可以先取分区再直接写入，省去逐键查找分区
+     */
+    public AgentSection section(String agentId) {
+        AgentSection section = agentData.get(agentId);
+        if (section == null) {
+            section = agentData.computeIfAbsent(agentId, AgentSection::new);
         }
+        return section;
     }
-    
+
     /**
      * 获取智能体特定数据
      */
     @SuppressWarnings("unchecked")
     public <T> T getAgent(String agentId, String key, Class<T> type) {
-        lock.readLock().lock();
-        try {
-            Map<String, Object> agent = agentData.get(agentId);
-            if (agent != null) {
-                Object value = agent.get(key);
-                if (value != null && type.isAssignableFrom(value.getClass())) {
-                    return (T) value;
-                }
+        AgentSection agent = agentData.get(agentId);
+        if (agent != null) {
+            Object value = agent.get(key);
+            if (value != null && type.isAssignableFrom(value.getClass())) {
+                return (T) value;
             }
-            return null;
-        } finally {
-            lock.readLock().unlock();
         }
+        return null;
     }
-    
+
     /**
      * 移除智能体数据
      */
     public void removeAgent(String agentId) {
-        lock.writeLock().lock();
-        try {
-            agentData.remove(agentId);
-            log.debug("Removed agent data for: {}", agentId);
-        } finally {
-            lock.writeLock().unlock();
+        AgentSection section = agentData.remove(agentId);
+        if (section != null && subscriptions.length > 0) {
+            section.data.forEach((key, value) -> notifyChange(agentId, key, value, null));
         }
+        log.debug("Removed agent data for: {}", agentId);
     }
-    
+
     /**
      * 检查全局数据是否存在
      */
     public boolean hasGlobal(String key) {
-        lock.readLock().lock();
-        try {
-            return globalData.containsKey(key);
-        } finally {
-            lock.readLock().unlock();
-        }
+        return global.get().data.containsKey(key);
     }
-    
+
     /**
      * 检查智能体数据是否存在
      */
     public boolean hasAgent(String agentId, String key) {
-        lock.readLock().lock();
-        try {
-            Map<String, Object> agent = agentData.get(agentId);
-            return agent != null && agent.containsKey(key);
-        } finally {
-            lock.readLock().unlock();
-        }
+        AgentSection agent = agentData.get(agentId);
+        return agent != null && agent.data.containsKey(key);
     }
-    
+
     /**
      * 获取所有全局数据
+     * 返回某一时刻的不可变快照，之后的写入不会反映到快照中
      */
     public Map<String, Object> getAllGlobal() {
-        lock.readLock().lock();
-        try {
-            return new ConcurrentHashMap<>(globalData);
-        } finally {
-            lock.readLock().unlock();
-        }
+        return global.get().data;
+    }
+
+    /**
+     * 全局数据版本号，每次全局数据发生变化时递增
+     */
+    public long getGlobalVersion() {
+        return global.get().version;
     }
-    
+
     /**
      * 获取智能体的所有数据
      */
     public Map<String, Object> getAllAgent(String agentId) {
-        lock.readLock().lock();
-        try {
-            Map<String, Object> agent = agentData.get(agentId);
-            return agent != null ? new ConcurrentHashMap<>(agent) : new ConcurrentHashMap<>();
-        } finally {
-            lock.readLock().unlock();
+        AgentSection agent = agentData.get(agentId);
+        return agent != null ? new HashMap<>(agent.data) : new HashMap<>();
+    }
+
+    /**
+     * 全局数据（只读快照）
+     */
+    public Map<String, Object> getGlobalData() {
+        return getAllGlobal();
+    }
+
+    /**
+     * 按智能体分区的数据（只读视图）
+     */
+    public Map<String, AgentSection> getAgentData() {
+        return Collections.unmodifiableMap(agentData);
+    }
+
+    /**
+     * 订阅全局数据中以指定前缀开头的键
+     * @param keyPrefix 键前缀，空字符串表示所有键
+     */
+    public BlackboardSubscription subscribeGlobal(String keyPrefix, Consumer<List<BlackboardChange>> listener) {
+        return addSubscription(new BlackboardSubscription(this, true, null, keyPrefix, listener));
+    }
+
+    /**
+     * 订阅智能体数据中以指定前缀开头的键
+     * @param agentId 智能体ID，null表示所有智能体
+     * @param keyPrefix 键前缀，空字符串表示所有键
+     */
+    public BlackboardSubscription subscribeAgent(String agentId, String keyPrefix,
+                                                 Consumer<List<BlackboardChange>> listener) {
+        return addSubscription(new BlackboardSubscription(this, false, agentId, keyPrefix, listener));
+    }
+
+    private synchronized BlackboardSubscription addSubscription(BlackboardSubscription subscription) {
+        BlackboardSubscription[] updated = Arrays.copyOf(subscriptions, subscriptions.length + 1);
+        updated[subscriptions.length] = subscription;
+        subscriptions = updated;
+        return subscription;
+    }
+
+    synchronized void unsubscribe(BlackboardSubscription subscription) {
+        subscriptions = Arrays.stream(subscriptions)
+                .filter(existing -> existing != subscription)
+                .toArray(BlackboardSubscription[]::new);
+    }
+
+    /**
+     * 记录变更：只有存在匹配的订阅时才分配版本号和变更对象
+     */
+    private void notifyChange(String agentId, String key, Object oldValue, Object newValue) {
+        BlackboardSubscription[] current = subscriptions;
+        BlackboardChange change = null;
+        for (BlackboardSubscription subscription : current) {
+            if (subscription.matches(agentId, key)) {
+                if (change == null) {
+                    change = new BlackboardChange(changeVersion.incrementAndGet(), agentId, key, oldValue, newValue);
+                }
+                subscription.enqueue(change);
+            }
+        }
+    }
+
+    /**
+     * 将积压的变更成批交付给各订阅者，通常在每个tick结束时调用
+     * @return 交付的变更数
+     */
+    public int dispatchChanges() {
+        int delivered = 0;
+        for (BlackboardSubscription subscription : subscriptions) {
+            delivered += subscription.dispatch();
+        }
+        return delivered;
+    }
+
+    /**
+     * 最近一次变更的版本号
+     */
+    public long getChangeVersion() {
+        return changeVersion.get();
+    }
+
+    /**
+     * 获取黑板统计信息
+     */
+    public Map<String, Object> getStatistics() {
+        BlackboardSubscription[] current = subscriptions;
+        long pending = 0;
+        long delivered = 0;
+        for (BlackboardSubscription subscription : current) {
+            pending += subscription.getPendingCount();
+            delivered += subscription.getDeliveredCount();
         }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("globalKeys", global.get().data.size());
+        stats.put("globalVersion", getGlobalVersion());
+        stats.put("agentSections", agentData.size());
+        stats.put("subscriptions", current.length);
+        stats.put("changeVersion", changeVersion.get());
+        stats.put("pendingChanges", pending);
+        stats.put("deliveredChanges", delivered);
+        return stats;
     }
-    
+
     /**
      * 清空所有数据
      */
     public void clear() {
-        lock.writeLock().lock();
-        try {
-            globalData.clear();
-            agentData.clear();
-            log.debug("Cleared all blackboard data");
-        } finally {
-            lock.writeLock().unlock();
+        GlobalSnapshot current;
+        do {
+            current = global.get();
+        } while (!global.compareAndSet(current, new GlobalSnapshot(Map.of(), current.version + 1)));
+        if (subscriptions.length > 0) {
+            current.data.forEach((key, value) -> notifyChange(null, key, value, null));
+            agentData.keySet().forEach(this::removeAgent);
+        }
+        agentData.clear();
+        log.debug("Cleared all blackboard data");
+    }
+
+    /**
+     * 智能体数据分区
+     * 写入值与原值相同时不产生变更通知
+     */
+    public final class AgentSection {
+
+        private final String agentId;
+        private final Map<String, Object> data = new ConcurrentHashMap<>(SECTION_CAPACITY);
+
+        private AgentSection(String agentId) {
+            this.agentId = agentId;
+        }
+
+        /**
+         * 写入键值，返回原值
+         */
+        public Object put(String key, Object value) {
+            Object previous = data.put(key, value);
+            if (previous != value && subscriptions.length > 0 && !value.equals(previous)) {
+                notifyChange(agentId, key, previous, value);
+            }
+            return previous;
         }
+
+        /**
+         * 移除键，返回原值
+         */
+        public Object remove(String key) {
+            Object previous = data.remove(key);
+            if (previous != null && subscriptions.length > 0) {
+                notifyChange(agentId, key, previous, null);
+            }
+            return previous;
+        }
+
+        /**
+         * 读取键值
+         */
+        public Object get(String key) {
+            return data.get(key);
+        }
+
+        /**
+         * 分区数据（只读视图）
+         */
+        public Map<String, Object> getData() {
+            return Collections.unmodifiableMap(data);
+        }
+    }
+
+    /**
+     * 全局数据快照
+     */
+    private record GlobalSnapshot(Map<String, Object> data, long version) {
+        private static final GlobalSnapshot EMPTY = new GlobalSnapshot(Map.of(), 0);
     }
 }
@@ -0,0 +1,22 @@
+package org.example.star_town.ai.blackboard;
+
+/**
+ * 黑板变更
+ * version在同一黑板的全部变更通知中单调递增；agentId为null表示全局数据，newValue为null表示键被移除
+ */
+public record BlackboardChange(long version, String agentId, String key, Object oldValue, Object newValue) {
+
+    /**
+     * 是否为全局数据的变更
+     */
+    public boolean isGlobal() {
+        return agentId == null;
+    }
+
+    /**
+     * 键是否被移除
+     */
+    public boolean isRemoval() {
+        return newValue == null;
+    }
+}
@@ -0,0 +1,116 @@
+package org.example.star_town.ai.blackboard;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * 黑板订阅
+ * 按作用域和键前缀过滤变更；变更在写入时进入订阅自己的队列，
+ * 由{@link Blackboard#dispatchChanges()}按版本号排序后成批交给监听器
+ */
+@Slf4j
+public class BlackboardSubscription implements AutoCloseable {
+
+    private final Blackboard blackboard;
+    @Getter
+    private final boolean global;
+    @Getter
+    private final String agentId; // 智能体作用域下为null表示所有智能体
+    @Getter
+    private final String keyPrefix;
+    private final Consumer<List<BlackboardChange>> listener;
+
+    private final ConcurrentLinkedQueue<BlackboardChange> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final AtomicLong delivered = new AtomicLong();
+    @Getter
+    private volatile long lastVersion;
+
+    BlackboardSubscription(Blackboard blackboard, boolean global, String agentId, String keyPrefix,
+                           Consumer<List<BlackboardChange>> listener) {
+        this.blackboard = blackboard;
+        this.global = global;
+        this.agentId = agentId;
+        this.keyPrefix = keyPrefix != null ? keyPrefix : "";
+        this.listener = listener;
+    }
+
+    /**
+     * 变更是否在订阅范围内
+     */
+    boolean matches(String changeAgentId, String key) {
+        if (global) {
+            if (changeAgentId != null) {
+                return false;
+            }
+        } else if (changeAgentId == null || (agentId != null && !agentId.equals(changeAgentId))) {
+            return false;
+        }
+        return key.startsWith(keyPrefix);
+    }
+
+    void enqueue(BlackboardChange change) {
+        pending.offer(change);
+        pendingCount.incrementAndGet();
+    }
+
+    /**
+     * 交付积压的变更，返回交付的数量
+     */
+    int dispatch() {
+        if (pendingCount.get() == 0) {
+            return 0;
+        }
+        List<BlackboardChange> batch = new ArrayList<>(pendingCount.get());
+        BlackboardChange change;
+        while ((change = pending.poll()) != null) {
+            batch.add(change);
+        }
+        pendingCount.addAndGet(-batch.size());
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        // 多个线程并发写入时入队顺序与版本号顺序可能不一致
+        batch.sort(Comparator.comparingLong(BlackboardChange::version));
+        lastVersion = batch.get(batch.size() - 1).version();
+        delivered.addAndGet(batch.size());
+        try {
+            listener.accept(batch);
+        } catch (Exception e) {
+            log.error("Blackboard subscriber for prefix '{}' failed: {}", keyPrefix, e.getMessage(), e);
+        }
+        return batch.size();
+    }
+
+    /**
+     * 等待交付的变更数
+     */
+    public int getPendingCount() {
+        return pendingCount.get();
+    }
+
+    /**
+     * 已交付的变更数
+     */
+    public long getDeliveredCount() {
+        return delivered.get();
+    }
+
+    /**
+     * 取消订阅，未交付的变更被丢弃
+     */
+    @Override
+    public void close() {
+        blackboard.unsubscribe(this);
+        pending.clear();
+        pendingCount.set(0);
+    }
+}
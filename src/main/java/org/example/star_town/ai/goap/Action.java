@@ -20,6 +20,15 @@ public abstract class Action {
     protected int cost;
     protected long duration; // 执行时长（毫秒）
     
+    /**
+     * 动作执行状态
+     */
+    public enum Status {
+        RUNNING,  // 执行中，下一个tick继续
+        SUCCESS,  // 执行成功
+        FAILURE   // 执行失败
+    }
+    
     public Action(String name) {
         this.name = name;
         this.preconditions = new HashMap<>();
@@ -81,7 +90,19 @@ public abstract class Action {
     }
     
     /**
-     * 执行动作（子类必须实现）
+     * 每个tick推进一次动作
+     * 从上下文的开始时间起经过duration之前返回RUNNING，之后调用{@link #execute}完成动作。
+     * 子类可以重写以实现逐tick推进的逻辑，但不能阻塞线程
+     */
+    public Status update(ActionContext context) {
+        if (context.getExecutionTime() < duration) {
+            return Status.RUNNING;
+        }
+        return execute(context) ? Status.SUCCESS : Status.FAILURE;
+    }
+    
+    /**
+     * 完成动作（子类必须实现），在动作时长结束时调用一次，不能阻塞线程
      */
     public abstract boolean execute(ActionContext context);
     
@@ -18,9 +18,13 @@ public class ActionContext {
     private final long startTime;
     
     public ActionContext(String agentId) {
+        this(agentId, System.currentTimeMillis());
+    }
+    
+    public ActionContext(String agentId, long startTime) {
         this.agentId = agentId;
         this.data = new ConcurrentHashMap<>();
-        this.startTime = System.currentTimeMillis();
+        this.startTime = startTime;
     }
     
     /**
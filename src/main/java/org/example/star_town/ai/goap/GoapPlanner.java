@@ -2,7 +2,8 @@ package org.example.star_town.ai.goap;
 
 import lombok.extern.slf4j.Slf4j;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * GOAP规划器
@@ -13,9 +14,32 @@ public class GoapPlanner {
     
     private static final int MAX_ITERATIONS = 1000;
     private static final int MAX_PLAN_LENGTH = 20;
+    private static final Map<Class<?>, Boolean> DYNAMIC_COST_CLASSES = new ConcurrentHashMap<>();
+    
+    private final PlanCache planCache;
+    
+    // 统计信息
+    private final LongAdder plans = new LongAdder();
+    private final LongAdder searches = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder totalIterations = new LongAdder();
+    private final LongAdder searchNanos = new LongAdder();
+    
+    public GoapPlanner() {
+        this(null);
+    }
+    
+    /**
+     * @param planCache 计划缓存，为null时不缓存
+     */
+    public GoapPlanner(PlanCache planCache) {
+        this.planCache = planCache;
+    }
     
     /**
      * 创建计划
+     * 搜索在位编码的状态上进行：前置条件、效果和目标预先编译为掩码，
+     * 关闭集合保存状态的64位哈希，扩展节点时不复制Map也不构造字符串键
      * @param currentState 当前状态
      * @param goal 目标
      * @param availableActions 可用动作列表
@@ -31,110 +55,201 @@ public class GoapPlanner {
             log.debug("Goal already satisfied, returning empty plan");
             return new ArrayList<>();
         }
+        plans.increment();
         
-        // 初始化搜索
-        PriorityQueue<PlanNode> openList = new PriorityQueue<>(Comparator.comparingInt(PlanNode::getFCost));
-        Set<String> closedSet = new HashSet<>();
+        if (planCache == null) {
+            Domain domain = new Domain(goal, availableActions);
+            return toActions(search(domain, domain.layout.encode(currentState), currentState, goal, availableActions), availableActions);
+        }
         
-        // 创建根节点
-        List<Action> filteredActions = availableActions.stream()
-                .filter(action -> action.canExecute(currentState))
-                .collect(Collectors.toList());
+        // 同一目标和动作集的规划域只编译一次
+        long fingerprint = PlanCache.fingerprint(goal, availableActions);
+        Domain domain = planCache.getDomain(fingerprint, () -> new Domain(goal, availableActions));
+        long[] startState = domain.layout.encode(currentState);
+        PlanCache.Key key = new PlanCache.Key(startState, goal.getName(), fingerprint);
         
-        PlanNode startNode = new PlanNode(currentState, null, null, 0, 
-                PlanNode.calculateHeuristic(currentState, goal), filteredActions);
-        openList.offer(startNode);
+        int[] cached = planCache.get(key);
+        if (cached != null) {
+            List<Action> plan = toActions(cached, availableActions);
+            // 空计划表示搜索失败的缓存结果，只有非空计划需要检查能否达成目标
+            if (validatePlan(plan, currentState, plan.isEmpty() ? null : goal)) {
+                log.debug("Reusing cached plan with {} actions for goal: {}", plan.size(), goal.getName());
+                return plan;
+            }
+            planCache.invalidate(key);
+        }
+        
+        int[] plan = search(domain, startState, currentState, goal, availableActions);
+        planCache.put(key, plan);
+        return toActions(plan, availableActions);
+    }
+    
+    /**
+     * A*搜索，返回动作下标序列
+     */
+    private int[] search(Domain domain, long[] startState, Map<String, Object> currentState, Goal goal,
+                         List<Action> actions) {
+        long start = System.nanoTime();
+        int actionCount = domain.preconditions.length;
+        
+        // 只考虑当前状态下可以执行的动作：其余动作一开始就标记为已使用
+        long[] unavailable = new long[(actionCount + 63) >>> 6];
+        for (int i = 0; i < actionCount; i++) {
+            if (!domain.preconditions[i].matches(startState)) {
+                unavailable[i >>> 6] |= 1L << i;
+            }
+        }
+        
+        // 初始化搜索
+        PriorityQueue<SearchNode> openList = new PriorityQueue<>(Comparator.comparingInt(SearchNode::fCost));
+        LongHashSet closedSet = new LongHashSet();
+        openList.offer(new SearchNode(startState, null, -1, 0, domain.goal.countUnsatisfied(startState), 0,
+                unavailable));
         
         int iterations = 0;
         
         while (!openList.isEmpty() && iterations < MAX_ITERATIONS) {
             iterations++;
             
-            PlanNode currentNode = openList.poll();
-            
-            // 创建状态标识符
-            String stateKey = createStateKey(currentNode.getState());
+            SearchNode currentNode = openList.poll();
             
             // 如果已经访问过这个状态，跳过
-            if (closedSet.contains(stateKey)) {
+            if (!closedSet.add(WorldStateLayout.hash(currentNode.state))) {
                 continue;
             }
             
-            closedSet.add(stateKey);
-            
             // 检查是否达到目标
-            if (currentNode.satisfiesGoal(goal)) {
-                List<Action> plan = currentNode.buildActionSequence();
-                log.debug("Found plan with {} actions after {} iterations", plan.size(), iterations);
+            if (domain.goal.matches(currentNode.state)) {
+                int[] plan = currentNode.buildActionSequence();
+                log.debug("Found plan with {} actions after {} iterations", plan.length, iterations);
+                recordSearch(start, iterations, true);
                 return plan;
             }
             
             // 如果计划太长，跳过
-            if (currentNode.buildActionSequence().size() >= MAX_PLAN_LENGTH) {
+            if (currentNode.depth >= MAX_PLAN_LENGTH) {
                 continue;
             }
             
-            // 扩展节点
-            expandNode(currentNode, openList, closedSet, goal);
+            // 扩展节点：每条路径上每个动作最多使用一次
+            for (int i = 0; i < actionCount; i++) {
+                if ((currentNode.usedActions[i >>> 6] & (1L << i)) != 0
+                        || !domain.preconditions[i].matches(currentNode.state)) {
+                    continue;
+                }
+                
+                long[] newState = domain.effects[i].apply(currentNode.state);
+                if (closedSet.contains(WorldStateLayout.hash(newState))) {
+                    continue;
+                }
+                
+                int actionCost = domain.dynamicCost[i]
+                        ? actions.get(i).calculateCost(domain.layout.decode(currentNode.state, currentState))
+                        : domain.costs[i];
+                long[] usedActions = currentNode.usedActions.clone();
+                usedActions[i >>> 6] |= 1L << i;
+                
+                openList.offer(new SearchNode(newState, currentNode, i, currentNode.gCost + actionCost,
+                        domain.goal.countUnsatisfied(newState), currentNode.depth + 1, usedActions));
+            }
         }
         
         log.warn("Failed to find plan for goal: {} after {} iterations", goal.getName(), iterations);
-        return new ArrayList<>();
+        recordSearch(start, iterations, false);
+        return new int[0];
+    }
+    
+    private void recordSearch(long start, int iterationCount, boolean found) {
+        searchNanos.add(System.nanoTime() - start);
+        searches.increment();
+        totalIterations.add(iterationCount);
+        if (!found) {
+            failures.increment();
+        }
     }
     
     /**
-     * 扩展节点，生成所有可能的后续节点
+     * 需要规划的请求数（目标尚未满足的createPlan调用，包括命中缓存的调用）
      */
-    private void expandNode(PlanNode currentNode, PriorityQueue<PlanNode> openList, 
-                           Set<String> closedSet, Goal goal) {
-        
-        Map<String, Object> currentState = currentNode.getState();
-        List<Action> remainingActions = currentNode.getRemainingActions();
-        
-        for (Action action : remainingActions) {
-            // 检查动作的前置条件
-            if (!action.checkPreconditions(currentState)) {
-                continue;
-            }
-            
-            // 应用动作效果
-            Map<String, Object> newState = action.applyEffects(currentState);
-            String stateKey = createStateKey(newState);
-            
-            // 如果状态已经访问过，跳过
-            if (closedSet.contains(stateKey)) {
-                continue;
-            }
-            
-            // 计算成本
-            int gCost = currentNode.getGCost() + action.calculateCost(currentState);
-            int hCost = PlanNode.calculateHeuristic(newState, goal);
-            
-            // 创建新节点
-            List<Action> newRemainingActions = new ArrayList<>(remainingActions);
-            newRemainingActions.remove(action);
-            
-            PlanNode newNode = new PlanNode(newState, action, currentNode, 
-                    gCost, hCost, newRemainingActions);
-            
-            openList.offer(newNode);
+    public long getPlanCount() {
+        return plans.sum();
+    }
+    
+    /**
+     * 实际执行的A*搜索次数
+     */
+    public long getSearchCount() {
+        return searches.sum();
+    }
+    
+    /**
+     * 未找到计划的搜索次数
+     */
+    public long getFailureCount() {
+        return failures.sum();
+    }
+    
+    /**
+     * 所有搜索累计展开的节点数
+     */
+    public long getIterationCount() {
+        return totalIterations.sum();
+    }
+    
+    /**
+     * 所有搜索累计耗时（纳秒）
+     */
+    public long getSearchNanos() {
+        return searchNanos.sum();
+    }
+    
+    /**
+     * 获取规划器统计信息
+     */
+    public Map<String, Object> getStatistics() {
+        long searchCount = searches.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("plans", plans.sum());
+        stats.put("searches", searchCount);
+        stats.put("failures", failures.sum());
+        stats.put("meanIterations", searchCount > 0 ? (double) totalIterations.sum() / searchCount : 0.0);
+        stats.put("meanSearchMicros", searchCount > 0 ? searchNanos.sum() / 1_000.0 / searchCount : 0.0);
+        return stats;
+    }
+    
+    private static List<Action> toActions(int[] plan, List<Action> availableActions) {
+        List<Action> actions = new ArrayList<>(plan.length);
+        for (int index : plan) {
+            actions.add(availableActions.get(index));
         }
+        return actions;
     }
     
     /**
-     * 创建状态的唯一标识符
+     * 动作是否重写了成本计算（需要解码状态后调用）
      */
-    private String createStateKey(Map<String, Object> state) {
-        return state.entrySet().stream()
-                .sorted(Map.Entry.comparingByKey())
-                .map(entry -> entry.getKey() + "=" + entry.getValue())
-                .collect(Collectors.joining(","));
+    private static boolean overridesCalculateCost(Action action) {
+        return DYNAMIC_COST_CLASSES.computeIfAbsent(action.getClass(), type -> {
+            try {
+                return type.getMethod("calculateCost", Map.class).getDeclaringClass() != Action.class;
+            } catch (NoSuchMethodException e) {
+                return false;
+            }
+        });
     }
     
     /**
      * 验证计划的可行性
      */
     public boolean validatePlan(List<Action> plan, Map<String, Object> initialState) {
+        return validatePlan(plan, initialState, null);
+    }
+    
+    /**
+     * 验证计划的可行性，并检查执行完后是否达成目标
+     * @param goal 目标，为null时只检查前置条件
+     */
+    public boolean validatePlan(List<Action> plan, Map<String, Object> initialState, Goal goal) {
         Map<String, Object> currentState = new HashMap<>(initialState);
         
         for (Action action : plan) {
@@ -145,6 +260,134 @@ public class GoapPlanner {
             currentState = action.applyEffects(currentState);
         }
         
+        if (goal != null && !goal.isSatisfied(currentState)) {
+            log.warn("Plan validation failed: goal {} not reached", goal.getName());
+            return false;
+        }
         return true;
     }
+    
+    /**
+     * 编译后的规划域：状态布局、目标掩码和各动作的前置条件/效果掩码
+     * 只读，可被多个线程共享
+     */
+    static final class Domain {
+        private final WorldStateLayout layout;
+        private final WorldStateLayout.StateMask goal;
+        private final WorldStateLayout.StateMask[] preconditions;
+        private final WorldStateLayout.StateMask[] effects;
+        private final int[] costs;
+        private final boolean[] dynamicCost;
+        
+        Domain(Goal goal, List<Action> actions) {
+            this.layout = WorldStateLayout.build(goal, actions);
+            this.goal = layout.compile(goal.getDesiredState());
+            int count = actions.size();
+            this.preconditions = new WorldStateLayout.StateMask[count];
+            this.effects = new WorldStateLayout.StateMask[count];
+            this.costs = new int[count];
+            this.dynamicCost = new boolean[count];
+            for (int i = 0; i < count; i++) {
+                Action action = actions.get(i);
+                preconditions[i] = layout.compile(action.getPreconditions());
+                effects[i] = layout.compile(action.getEffects());
+                costs[i] = action.getCost();
+                dynamicCost[i] = overridesCalculateCost(action);
+            }
+        }
+    }
+    
+    /**
+     * 搜索节点
+     */
+    private static final class SearchNode {
+        private final long[] state;
+        private final SearchNode parent;
+        private final int actionIndex;
+        private final int gCost;
+        private final int hCost;
+        private final int depth;
+        private final long[] usedActions;
+        
+        private SearchNode(long[] state, SearchNode parent, int actionIndex, int gCost, int hCost, int depth,
+                           long[] usedActions) {
+            this.state = state;
+            this.parent = parent;
+            this.actionIndex = actionIndex;
+            this.gCost = gCost;
+            this.hCost = hCost;
+            this.depth = depth;
+            this.usedActions = usedActions;
+        }
+        
+        private int fCost() {
+            return gCost + hCost;
+        }
+        
+        private int[] buildActionSequence() {
+            int[] sequence = new int[depth];
+            for (SearchNode node = this; node.parent != null; node = node.parent) {
+                sequence[node.depth - 1] = node.actionIndex;
+            }
+            return sequence;
+        }
+    }
+    
+    /**
+     * 基于开放寻址的long集合
+     */
+    private static final class LongHashSet {
+        private long[] keys = new long[64];
+        private boolean[] used = new boolean[64];
+        private int size;
+        
+        private boolean contains(long key) {
+            int mask = keys.length - 1;
+            for (int i = mix(key) & mask; used[i]; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        
+        private boolean add(long key) {
+            int mask = keys.length - 1;
+            int i = mix(key) & mask;
+            for (; used[i]; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    return false;
+                }
+            }
+            keys[i] = key;
+            used[i] = true;
+            if (++size * 2 > keys.length) {
+                resize();
+            }
+            return true;
+        }
+        
+        private void resize() {
+            long[] oldKeys = keys;
+            boolean[] oldUsed = used;
+            keys = new long[oldKeys.length * 2];
+            used = new boolean[oldKeys.length * 2];
+            int mask = keys.length - 1;
+            for (int j = 0; j < oldKeys.length; j++) {
+                if (oldUsed[j]) {
+                    int i = mix(oldKeys[j]) & mask;
+                    while (used[i]) {
+                        i = (i + 1) & mask;
+                    }
+                    keys[i] = oldKeys[j];
+                    used[i] = true;
+                }
+            }
+        }
+        
+        private static int mix(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
 }
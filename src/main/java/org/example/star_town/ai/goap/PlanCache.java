@@ -0,0 +1,176 @@
+package org.example.star_town.ai.goap;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * GOAP计划缓存
+ * 以"规范化状态签名 + 目标名 + 动作集指纹"为键缓存计划，按LRU淘汰。
+ * 规范化状态签名是状态在{@link WorldStateLayout}下编码的哈希，只反映规划涉及的键，
+ * 因此需求数值不同但规划意义相同的智能体可以共用同一份计划。
+ * 缓存中保存的是动作在动作列表中的下标，命中后映射回调用方自己的动作实例，
+ * 复用前验证各动作的前置条件依次满足且执行完后达成目标
+ */
+@Slf4j
+public class PlanCache {
+
+    private static final int MAX_DOMAINS = 256;
+
+    /**
+     * 缓存键
+     * 保存完整的编码状态而不只是它的64位哈希，哈希冲突的不同状态不会共用计划
+     */
+    record Key(long[] state, String goalName, long fingerprint) {
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Key key
+                    && fingerprint == key.fingerprint
+                    && goalName.equals(key.goalName)
+                    && Arrays.equals(state, key.state);
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(mix(WorldStateLayout.hash(state), fingerprint)) * 31 + goalName.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return "Key[state=" + Arrays.toString(state) + ", goalName=" + goalName
+                    + ", fingerprint=" + fingerprint + "]";
+        }
+    }
+
+    private final Map<Key, int[]> plans = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, int[]> eldest) {
+            if (size() > maxSize) {
+                evictions++;
+                return true;
+            }
+            return false;
+        }
+    };
+    private final Map<Long, GoapPlanner.Domain> domains = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, GoapPlanner.Domain> eldest) {
+            return size() > MAX_DOMAINS;
+        }
+    };
+
+    private int maxSize;
+
+    // 统计信息
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long validationFailures;
+
+    public PlanCache(int maxSize) {
+        this.maxSize = Math.max(0, maxSize);
+    }
+
+    /**
+     * 计算目标和动作集的指纹，动作顺序不同指纹也不同
+     */
+    public static long fingerprint(Goal goal, List<Action> actions) {
+        long h = mix(goal.getName().hashCode(), goal.getDesiredState().hashCode());
+        for (Action action : actions) {
+            h = mix(h, action.getClass().getName().hashCode());
+            h = mix(h, action.getName().hashCode());
+            h = mix(h, action.getCost());
+            h = mix(h, action.getPreconditions().hashCode());
+            h = mix(h, action.getEffects().hashCode());
+        }
+        return mix(h, actions.size());
+    }
+
+    private static long mix(long h, long value) {
+        h = (h ^ value) * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 29);
+    }
+
+    /**
+     * 获取编译后的规划域，不存在时编译
+     */
+    synchronized GoapPlanner.Domain getDomain(long fingerprint, Supplier<GoapPlanner.Domain> compiler) {
+        return domains.computeIfAbsent(fingerprint, key -> compiler.get());
+    }
+
+    /**
+     * 查找缓存的计划
+     */
+    synchronized int[] get(Key key) {
+        int[] plan = plans.get(key);
+        if (plan != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return plan;
+    }
+
+    /**
+     * 缓存计划
+     */
+    synchronized void put(Key key, int[] plan) {
+        if (maxSize > 0) {
+            plans.put(key, plan);
+        }
+    }
+
+    /**
+     * 缓存的计划验证失败，移除并计为未命中
+     */
+    synchronized void invalidate(Key key) {
+        plans.remove(key);
+        validationFailures++;
+        hits--;
+        misses++;
+    }
+
+    /**
+     * 调整缓存容量
+     */
+    public synchronized void setMaxSize(int maxSize) {
+        this.maxSize = Math.max(0, maxSize);
+        var iterator = plans.entrySet().iterator();
+        while (plans.size() > this.maxSize && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * 清空缓存
+     */
+    public synchronized void clear() {
+        plans.clear();
+        domains.clear();
+        log.info("Plan cache cleared");
+    }
+
+    /**
+     * 获取缓存统计信息
+     */
+    public synchronized Map<String, Object> getStatistics() {
+        long lookups = hits + misses;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", plans.size());
+        stats.put("maxSize", maxSize);
+        stats.put("domains", domains.size());
+        stats.put("hits", hits);
+        stats.put("misses", misses);
+        stats.put("hitRate", lookups > 0 ? (double) hits / lookups : 0.0);
+        stats.put("evictions", evictions);
+        stats.put("validationFailures", validationFailures);
+        return stats;
+    }
+}
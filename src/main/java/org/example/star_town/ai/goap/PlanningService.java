@@ -0,0 +1,201 @@
+package org.example.star_town.ai.goap;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 异步规划服务
+ * 在专用工作线程上执行GOAP规划，避免耗时的A*搜索阻塞tick线程。
+ * 请求队列有界，每个tick可提交的请求数有预算；队列已满或预算用尽时提交返回null，调用方在下一个tick重试
+ */
+@Slf4j
+public class PlanningService {
+
+    private final GoapPlanner planner;
+    private final ThreadPoolExecutor executor;
+    @Getter
+    private final int workerCount;
+    @Getter
+    private final int queueCapacity;
+    @Getter
+    private final int budgetPerTick;
+    private final AtomicInteger remainingBudget = new AtomicInteger();
+
+    // 统计信息
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong cancelled = new AtomicLong();
+    private final AtomicLong deferred = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong totalPlanningNanos = new AtomicLong();
+    private final AtomicLong maxPlanningNanos = new AtomicLong();
+
+    /**
+     * @param workerCount 工作线程数
+     * @param queueCapacity 等待队列容量
+     * @param budgetPerTick 每个tick最多提交的请求数，0表示不限
+     */
+    public PlanningService(GoapPlanner planner, int workerCount, int queueCapacity, int budgetPerTick) {
+        this.planner = planner;
+        this.workerCount = Math.max(1, workerCount);
+        this.queueCapacity = Math.max(1, queueCapacity);
+        this.budgetPerTick = Math.max(0, budgetPerTick);
+        this.remainingBudget.set(this.budgetPerTick);
+
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(this.workerCount, this.workerCount, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(this.queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "goap-planner-" + threadIndex.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * 新tick开始，恢复提交预算
+     */
+    public void beginTick() {
+        remainingBudget.set(budgetPerTick);
+    }
+
+    /**
+     * 提交规划请求
+     * 状态和动作列表会被复制，调用方之后可以继续修改自己的状态
+     * @return 规划请求；本tick预算用尽或队列已满时返回null
+     */
+    public PlanRequest submit(String agentId, Map<String, Object> state, Goal goal, List<Action> actions) {
+        if (budgetPerTick > 0 && remainingBudget.getAndDecrement() <= 0) {
+            deferred.incrementAndGet();
+            return null;
+        }
+
+        Map<String, Object> stateSnapshot = new HashMap<>(state);
+        List<Action> actionSnapshot = new ArrayList<>(actions);
+        try {
+            Future<List<Action>> future = executor.submit(() -> plan(stateSnapshot, goal, actionSnapshot));
+            submitted.incrementAndGet();
+            return new PlanRequest(agentId, goal, future);
+        } catch (RejectedExecutionException e) {
+            if (budgetPerTick > 0) {
+                remainingBudget.incrementAndGet(); // 未被接受的请求不占用本tick预算
+            }
+            rejected.incrementAndGet();
+            log.debug("Planning queue full, deferring plan request from agent {}", agentId);
+            return null;
+        }
+    }
+
+    private List<Action> plan(Map<String, Object> state, Goal goal, List<Action> actions) {
+        long start = System.nanoTime();
+        try {
+            return planner.createPlan(state, goal, actions);
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            completed.incrementAndGet();
+            totalPlanningNanos.addAndGet(elapsed);
+            maxPlanningNanos.accumulateAndGet(elapsed, Math::max);
+        }
+    }
+
+    /**
+     * 等待中的请求数
+     */
+    public int getQueuedCount() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * 关闭服务，丢弃未开始的请求
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 获取规划服务统计信息
+     */
+    public Map<String, Object> getStatistics() {
+        long completedCount = completed.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("workers", workerCount);
+        stats.put("queueCapacity", queueCapacity);
+        stats.put("budgetPerTick", budgetPerTick);
+        stats.put("queued", getQueuedCount());
+        stats.put("active", executor.getActiveCount());
+        stats.put("submitted", submitted.get());
+        stats.put("completed", completedCount);
+        stats.put("cancelled", cancelled.get());
+        stats.put("deferred", deferred.get());
+        stats.put("rejected", rejected.get());
+        stats.put("meanPlanningMillis", completedCount > 0 ? totalPlanningNanos.get() / 1_000_000.0 / completedCount : 0.0);
+        stats.put("maxPlanningMillis", maxPlanningNanos.get() / 1_000_000.0);
+        return stats;
+    }
+
+    /**
+     * 规划请求
+     */
+    @Getter
+    public class PlanRequest {
+
+        private final String agentId;
+        private final Goal goal;
+        private final Future<List<Action>> future;
+
+        private PlanRequest(String agentId, Goal goal, Future<List<Action>> future) {
+            this.agentId = agentId;
+            this.goal = goal;
+            this.future = future;
+        }
+
+        /**
+         * 规划是否已结束（完成、失败或取消）
+         */
+        public boolean isDone() {
+            return future.isDone();
+        }
+
+        /**
+         * 获取规划结果，规划失败或被取消时返回空计划
+         * 只应在{@link #isDone()}为true后调用
+         */
+        public List<Action> getPlan() {
+            if (future.isCancelled()) {
+                return new ArrayList<>();
+            }
+            try {
+                return future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return new ArrayList<>();
+            } catch (ExecutionException e) {
+                log.error("Planning failed for agent {}: {}", agentId, e.getCause().getMessage(), e.getCause());
+                return new ArrayList<>();
+            }
+        }
+
+        /**
+         * 取消请求：尚未开始的请求不再执行，已开始的请求结果被丢弃
+         */
+        public void cancel() {
+            if (future.cancel(false)) {
+                cancelled.incrementAndGet();
+                executor.remove((Runnable) future);
+            }
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package org.example.star_town.ai.goap;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 世界状态位布局
+ * 为一次规划涉及的所有键分配位字段，并为每个键建立取值字典：
+ * 编码0表示"不存在或取值不在字典中"，1..n对应前置条件、效果和目标中出现过的取值。
+ * 规划过程中只有效果会修改状态，而效果的取值都在字典中，因此编码0的键始终保持初始状态的原值，编码是精确的
+ */
+public final class WorldStateLayout {
+
+    private final Map<String, Field> fields = new LinkedHashMap<>();
+    private final List<Field> fieldList = new ArrayList<>();
+    private int words;
+    private int usedBits = Long.SIZE; // 当前字已使用的位数，初始值促使分配第一个字
+
+    private WorldStateLayout() {
+    }
+
+    /**
+     * 根据目标和动作构建布局
+     */
+    public static WorldStateLayout build(Goal goal, List<Action> actions) {
+        Map<String, Map<Object, Integer>> dictionaries = new LinkedHashMap<>();
+        collect(dictionaries, goal.getDesiredState());
+        for (Action action : actions) {
+            collect(dictionaries, action.getPreconditions());
+            collect(dictionaries, action.getEffects());
+        }
+
+        WorldStateLayout layout = new WorldStateLayout();
+        dictionaries.forEach(layout::addField);
+        return layout;
+    }
+
+    private static void collect(Map<String, Map<Object, Integer>> dictionaries, Map<String, Object> values) {
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            Map<Object, Integer> dictionary = dictionaries.computeIfAbsent(entry.getKey(), key -> new HashMap<>());
+            dictionary.putIfAbsent(entry.getValue(), dictionary.size() + 1);
+        }
+    }
+
+    private void addField(String key, Map<Object, Integer> dictionary) {
+        int width = Math.max(1, Long.SIZE - Long.numberOfLeadingZeros(dictionary.size()));
+        if (width > Long.SIZE - 1) {
+            throw new IllegalStateException("Too many distinct values for state key: " + key);
+        }
+        // 字段不跨字，放不下时换到下一个字
+        if (usedBits + width > Long.SIZE) {
+            words++;
+            usedBits = 0;
+        }
+
+        Object[] values = new Object[dictionary.size() + 1];
+        dictionary.forEach((value, code) -> values[code] = value);
+
+        Field field = new Field(key, words - 1, usedBits, width, dictionary, values);
+        usedBits += width;
+        fields.put(key, field);
+        fieldList.add(field);
+    }
+
+    /**
+     * 状态占用的long字数
+     */
+    public int getWords() {
+        return words;
+    }
+
+    /**
+     * 编码状态
+     */
+    public long[] encode(Map<String, Object> state) {
+        long[] encoded = new long[words];
+        for (Field field : fieldList) {
+            Object value = state.get(field.key);
+            Integer code = value != null ? field.dictionary.get(value) : null;
+            if (code != null) {
+                encoded[field.word] |= (long) code << field.shift;
+            }
+        }
+        return encoded;
+    }
+
+    /**
+     * 解码状态：编码0的键保留初始状态中的原值
+     */
+    public Map<String, Object> decode(long[] state, Map<String, Object> initialState) {
+        Map<String, Object> decoded = new HashMap<>(initialState);
+        for (Field field : fieldList) {
+            int code = field.get(state);
+            if (code != 0) {
+                decoded.put(field.key, field.values[code]);
+            }
+        }
+        return decoded;
+    }
+
+    /**
+     * 将一组键值要求编译为掩码
+     */
+    public StateMask compile(Map<String, Object> requirements) {
+        long[] mask = new long[words];
+        long[] value = new long[words];
+        Field[] required = new Field[requirements.size()];
+        int[] codes = new int[requirements.size()];
+
+        int i = 0;
+        for (Map.Entry<String, Object> entry : requirements.entrySet()) {
+            Field field = fields.get(entry.getKey());
+            int code = field.dictionary.get(entry.getValue());
+            mask[field.word] |= field.mask();
+            value[field.word] |= (long) code << field.shift;
+            required[i] = field;
+            codes[i] = code;
+            i++;
+        }
+        return new StateMask(mask, value, required, codes);
+    }
+
+    /**
+     * 计算状态的64位哈希
+     */
+    public static long hash(long[] state) {
+        if (state.length == 1) {
+            return state[0]; // 单字状态直接作为键，不会冲突
+        }
+        long h = 0x9E3779B97F4A7C15L;
+        for (long word : state) {
+            h ^= word;
+            h *= 0xBF58476D1CE4E5B9L;
+            h ^= h >>> 31;
+        }
+        return h;
+    }
+
+    /**
+     * 位字段
+     */
+    private static final class Field {
+        private final String key;
+        private final int word;
+        private final int shift;
+        private final int width;
+        private final Map<Object, Integer> dictionary;
+        private final Object[] values;
+
+        private Field(String key, int word, int shift, int width, Map<Object, Integer> dictionary, Object[] values) {
+            this.key = key;
+            this.word = word;
+            this.shift = shift;
+            this.width = width;
+            this.dictionary = dictionary;
+            this.values = values;
+        }
+
+        private long mask() {
+            return ((1L << width) - 1) << shift;
+        }
+
+        private int get(long[] state) {
+            return (int) ((state[word] & mask()) >>> shift);
+        }
+    }
+
+    /**
+     * 编译后的键值要求
+     * 用作前置条件和目标时按掩码比较，用作效果时按掩码覆盖
+     */
+    public static final class StateMask {
+        private final long[] mask;
+        private final long[] value;
+        private final Field[] fields;
+        private final int[] codes;
+
+        private StateMask(long[] mask, long[] value, Field[] fields, int[] codes) {
+            this.mask = mask;
+            this.value = value;
+            this.fields = fields;
+            this.codes = codes;
+        }
+
+        /**
+         * 状态是否满足全部要求
+         */
+        public boolean matches(long[] state) {
+            for (int i = 0; i < mask.length; i++) {
+                if ((state[i] & mask[i]) != value[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * 返回应用效果后的新状态
+         */
+        public long[] apply(long[] state) {
+            long[] result = new long[state.length];
+            for (int i = 0; i < state.length; i++) {
+                result[i] = (state[i] & ~mask[i]) | value[i];
+            }
+            return result;
+        }
+
+        /**
+         * 不满足的要求数量
+         */
+        public int countUnsatisfied(long[] state) {
+            int count = 0;
+            for (int i = 0; i < fields.length; i++) {
+                if (fields[i].get(state) != codes[i]) {
+                    count++;
+                }
+            }
+            return count;
+        }
+    }
+}
@@ -6,6 +6,7 @@ import org.example.star_town.agent.Agent;
 import org.example.star_town.agent.AgentManager;
 import org.example.star_town.ai.goap.Goal;
 import org.example.star_town.ai.goap.Action;
+import org.example.star_town.service.AgentPersistenceService;
 import org.example.star_town.service.AgentService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -26,6 +27,7 @@ public class AgentController {
     
     private final AgentManager agentManager;
     private final AgentService agentService;
+    private final AgentPersistenceService agentPersistenceService;
     
     /**
      * 获取智能体详细信息
@@ -242,6 +244,24 @@ public class AgentController {
         }
     }
     
+    /**
+     * 检查点：批量保存所有智能体
+     */
+    @PostMapping("/checkpoint")
+    public ResponseEntity<Map<String, Object>> checkpointAgents() {
+        try {
+            int written = agentPersistenceService.checkpointAll();
+            return ResponseEntity.ok(Map.of(
+                    "message", "Agents checkpointed successfully",
+                    "agentCount", written
+            ));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                    "message", "Failed to checkpoint agents: " + e.getMessage()
+            ));
+        }
+    }
+    
     /**
      * 从数据库加载智能体
      */
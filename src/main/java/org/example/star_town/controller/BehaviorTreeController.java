@@ -4,6 +4,7 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.example.star_town.ai.behavior.BehaviorNode;
 import org.example.star_town.ai.behavior.BehaviorTreeConfig;
+import org.example.star_town.ai.behavior.CompiledBehaviorTree;
 import org.example.star_town.agent.Agent;
 import org.example.star_town.agent.AgentManager;
 import org.example.star_town.agent.AgentType;
@@ -172,6 +173,27 @@ public class BehaviorTreeController {
         }
     }
     
+    /**
+     * 编译行为树配置并返回反汇编结果
+     */
+    @PostMapping("/compile")
+    public ResponseEntity<Map<String, Object>> compileTree(@RequestBody BehaviorTreeConfig config) {
+        try {
+            CompiledBehaviorTree compiled = behaviorTreeService.compileBehaviorTree(config);
+
+            return ResponseEntity.ok(Map.of(
+                    "success", true,
+                    "instructionCount", compiled.getInstructionCount(),
+                    "disassembly", compiled.disassemble()
+            ));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                    "success", false,
+                    "message", "Failed to compile behavior tree: " + e.getMessage()
+            ));
+        }
+    }
+
     /**
      * 清除行为树缓存
      */
@@ -7,6 +7,7 @@ import org.example.star_town.ai.behavior.BehaviorNode;
 import org.example.star_town.agent.Agent;
 import org.example.star_town.agent.AgentManager;
 import org.example.star_town.agent.AgentType;
+import org.example.star_town.service.AgentPersistenceService;
 import org.example.star_town.service.BehaviorTreeConfigService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -27,6 +28,7 @@ public class DiagnosticController {
 
     private final AgentManager agentManager;
     private final BehaviorTreeConfigService behaviorTreeService;
+    private final AgentPersistenceService agentPersistenceService;
     private final BehaviorLibrary behaviorLibrary = BehaviorLibrary.getInstance();
 
     /**
@@ -57,6 +59,46 @@ public class DiagnosticController {
         return ResponseEntity.ok(diagnostics);
     }
 
+    /**
+     * 获取智能体tick性能统计
+     */
+    @GetMapping("/tick")
+    public ResponseEntity<Map<String, Object>> getTickStatistics() {
+        return ResponseEntity.ok(agentManager.getTickStatistics());
+    }
+
+    /**
+     * 获取tick分阶段剖析报告：各阶段耗时分位数、最慢的智能体和行为树节点
+     */
+    @GetMapping("/profile")
+    public ResponseEntity<Map<String, Object>> getProfile() {
+        return ResponseEntity.ok(agentManager.getProfiler().getReport());
+    }
+    
+    /**
+     * 获取编译行为树的执行统计：实际求值与跳过的次数
+     */
+    @GetMapping("/behavior-trees")
+    public ResponseEntity<Map<String, Object>> getBehaviorTreeStatistics() {
+        return ResponseEntity.ok(behaviorTreeService.getCompiledTreeStatistics());
+    }
+    
+    /**
+     * 获取GOAP规划统计：计划缓存与异步规划服务
+     */
+    @GetMapping("/planner")
+    public ResponseEntity<Map<String, Object>> getPlannerStatistics() {
+        return ResponseEntity.ok(agentManager.getPlanningStatistics());
+    }
+
+    /**
+     * 获取写后持久化统计：刷新耗时、批大小和写入延迟
+     */
+    @GetMapping("/persistence")
+    public ResponseEntity<Map<String, Object>> getPersistenceStatistics() {
+        return ResponseEntity.ok(agentPersistenceService.getStatistics());
+    }
+
     /**
      * 测试特定智能体的行为树
      */
@@ -104,6 +104,14 @@ public class EventController {
         return ResponseEntity.ok(stats);
     }
     
+    /**
+     * 获取异步事件管道统计
+     */
+    @GetMapping("/pipeline")
+    public ResponseEntity<Map<String, Object>> getPipelineStatistics() {
+        return ResponseEntity.ok(gameEventService.getPipelineStatistics());
+    }
+    
     /**
      * 获取事件详情
      */
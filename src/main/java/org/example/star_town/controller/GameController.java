@@ -5,11 +5,14 @@ import lombok.extern.slf4j.Slf4j;
 import org.example.star_town.agent.Agent;
 import org.example.star_town.agent.AgentManager;
 import org.example.star_town.agent.AgentType;
+import org.example.star_town.service.AgentSpawnService;
 import org.example.star_town.world.GameWorld;
+import org.example.star_town.world.InterestRegion;
 import org.example.star_town.world.Position;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 
@@ -25,6 +28,7 @@ public class GameController {
     
     private final GameWorld gameWorld;
     private final AgentManager agentManager;
+    private final AgentSpawnService agentSpawnService;
     
     /**
      * 获取游戏状态
@@ -47,6 +51,36 @@ public class GameController {
         ));
     }
     
+    /**
+     * 保存世界快照
+     */
+    @PostMapping("/snapshot/save")
+    public ResponseEntity<Map<String, Object>> saveSnapshot() {
+        try {
+            return ResponseEntity.ok(gameWorld.saveSnapshot());
+        } catch (IOException e) {
+            log.error("Failed to save world snapshot: {}", e.getMessage(), e);
+            return ResponseEntity.internalServerError().body(Map.of(
+                    "message", "Failed to save snapshot: " + e.getMessage()
+            ));
+        }
+    }
+    
+    /**
+     * 从快照恢复世界
+     */
+    @PostMapping("/snapshot/restore")
+    public ResponseEntity<Map<String, Object>> restoreSnapshot() {
+        try {
+            return ResponseEntity.ok(gameWorld.restoreSnapshot());
+        } catch (IOException | RuntimeException e) {
+            log.error("Failed to restore world snapshot: {}", e.getMessage(), e);
+            return ResponseEntity.internalServerError().body(Map.of(
+                    "message", "Failed to restore snapshot: " + e.getMessage()
+            ));
+        }
+    }
+    
     /**
      * 获取所有智能体
      */
@@ -99,6 +133,20 @@ public class GameController {
         }
     }
     
+    /**
+     * 批量生成智能体，按类型权重、位置分布和需求取值范围并行创建
+     */
+    @PostMapping("/agents/spawn")
+    public ResponseEntity<Map<String, Object>> spawnAgents(@RequestBody AgentSpawnService.SpawnRequest request) {
+        try {
+            return ResponseEntity.ok(agentSpawnService.spawn(request));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                    "message", e.getMessage()
+            ));
+        }
+    }
+    
     /**
      * 移除智能体
      */
@@ -180,6 +228,49 @@ public class GameController {
         return ResponseEntity.ok(Map.of("message", "All agents reset successfully"));
     }
     
+    /**
+     * 获取关注区域和细节层次统计
+     */
+    @GetMapping("/interest-regions")
+    public ResponseEntity<Map<String, Object>> getInterestRegions() {
+        return ResponseEntity.ok(Map.of(
+                "regions", gameWorld.getLevelOfDetail().getRegions(),
+                "statistics", gameWorld.getLevelOfDetail().getStatistics()
+        ));
+    }
+    
+    /**
+     * 添加或更新关注区域，区域外的智能体在下一个tick切换为低细节模拟
+     */
+    @PutMapping("/interest-regions/{regionId}")
+    public ResponseEntity<Map<String, Object>> putInterestRegion(
+            @PathVariable String regionId,
+            @RequestBody InterestRegionRequest request) {
+        
+        if (request.getRadius() <= 0) {
+            return ResponseEntity.badRequest().body(Map.of(
+                    "message", "Radius must be positive"
+            ));
+        }
+        InterestRegion region = new InterestRegion(regionId, request.getX(), request.getY(), request.getRadius());
+        gameWorld.getLevelOfDetail().putRegion(region);
+        return ResponseEntity.ok(Map.of(
+                "message", "Interest region saved",
+                "region", region
+        ));
+    }
+    
+    /**
+     * 移除关注区域，移除最后一个区域后所有智能体恢复完整模拟
+     */
+    @DeleteMapping("/interest-regions/{regionId}")
+    public ResponseEntity<Map<String, Object>> removeInterestRegion(@PathVariable String regionId) {
+        if (gameWorld.getLevelOfDetail().removeRegion(regionId) == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(Map.of("message", "Interest region removed"));
+    }
+    
     /**
      * 创建智能体请求
      */
@@ -225,4 +316,23 @@ public class GameController {
         public double getY() { return y; }
         public void setY(double y) { this.y = y; }
     }
+    
+    /**
+     * 关注区域请求
+     */
+    public static class InterestRegionRequest {
+        private double x;
+        private double y;
+        private double radius;
+        
+        // Getters and setters
+        public double getX() { return x; }
+        public void setX(double x) { this.x = x; }
+        
+        public double getY() { return y; }
+        public void setY(double y) { this.y = y; }
+        
+        public double getRadius() { return radius; }
+        public void setRadius(double radius) { this.radius = radius; }
+    }
 }
@@ -0,0 +1,143 @@
+package org.example.star_town.monitoring;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.RequiredArgsConstructor;
+import org.example.star_town.agent.Agent;
+import org.example.star_town.agent.AgentManager;
+import org.example.star_town.agent.NeedsStore;
+import org.example.star_town.ai.goap.GoapPlanner;
+import org.example.star_town.service.GameEventPipeline;
+import org.example.star_town.service.GameEventService;
+import org.example.star_town.world.AgentSpatialIndex;
+import org.example.star_town.world.GameWorld;
+import org.example.star_town.world.WorldObjectIndex;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * 模拟吞吐量指标
+ * 计数器和计时器直接读取各组件已有的累计统计，采集时才取值，不在热路径上增加记录开销。
+ * tick耗时分位数由{@link TickProfilerMetrics}按阶段导出（phase=tick）
+ */
+@Component
+@RequiredArgsConstructor
+public class SimulationMetrics implements MeterBinder {
+
+    private final AgentManager agentManager;
+    private final GameWorld gameWorld;
+    private final GameEventService gameEventService;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        bindTicks(registry);
+        bindAgents(registry);
+        bindPlanner(registry);
+        bindEvents(registry);
+        bindSpatialQueries(registry);
+    }
+
+    private void bindTicks(MeterRegistry registry) {
+        FunctionCounter.builder("startown.ticks", agentManager, manager -> manager.getTickCount().get())
+                .description("Completed agent ticks")
+                .register(registry);
+        FunctionCounter.builder("startown.tick.overruns", agentManager, manager -> manager.getOverrunCount().get())
+                .description("Agent ticks that exceeded the update interval")
+                .register(registry);
+        TimeGauge.builder("startown.tick.last", agentManager, TimeUnit.NANOSECONDS,
+                        manager -> manager.getLastTickStatistics().getWallNanos())
+                .description("Wall time of the most recent agent tick")
+                .register(registry);
+    }
+
+    private void bindAgents(MeterRegistry registry) {
+        Gauge.builder("startown.agents", agentManager, AgentManager::getAgentCount)
+                .description("Registered agents")
+                .register(registry);
+        for (Agent.AgentStatus status : Agent.AgentStatus.values()) {
+            Gauge.builder("startown.agents.status", agentManager,
+                            manager -> manager.getStatusStatistics().getOrDefault(status, 0))
+                    .description("Agents per status")
+                    .tag("status", status.name().toLowerCase())
+                    .register(registry);
+        }
+        // 与行为库中IsHungry、IsTired、LowHappiness条件的阈值一致，按列扫描需求存储
+        NeedsStore needs = agentManager.getNeedsStore();
+        bindNeedGauge(registry, "hungry", needs, store -> store.countAbove(NeedsStore.Need.HUNGER, 70));
+        bindNeedGauge(registry, "tired", needs, store -> store.countBelow(NeedsStore.Need.ENERGY, 30));
+        bindNeedGauge(registry, "unhappy", needs, store -> store.countBelow(NeedsStore.Need.HAPPINESS, 40));
+    }
+
+    private void bindNeedGauge(MeterRegistry registry, String need, NeedsStore needs,
+                               ToDoubleFunction<NeedsStore> count) {
+        Gauge.builder("startown.agents.needs", needs, count)
+                .description("Registered agents whose need crosses the behavior tree threshold")
+                .tag("need", need)
+                .register(registry);
+    }
+
+    private void bindPlanner(MeterRegistry registry) {
+        GoapPlanner planner = agentManager.getPlanner();
+        FunctionCounter.builder("startown.goap.plans", planner, GoapPlanner::getPlanCount)
+                .description("Plan requests for unsatisfied goals, including plan cache hits")
+                .register(registry);
+        FunctionCounter.builder("startown.goap.plan.failures", planner, GoapPlanner::getFailureCount)
+                .description("Searches that found no plan")
+                .register(registry);
+        FunctionCounter.builder("startown.goap.plan.iterations", planner, GoapPlanner::getIterationCount)
+                .description("Search nodes expanded by the A* planner")
+                .register(registry);
+        FunctionTimer.builder("startown.goap.plan.search", planner,
+                        GoapPlanner::getSearchCount, GoapPlanner::getSearchNanos, TimeUnit.NANOSECONDS)
+                .description("A* plan searches")
+                .register(registry);
+    }
+
+    private void bindEvents(MeterRegistry registry) {
+        bindEventCounter(registry, "published", GameEventPipeline::getPublishedCount);
+        bindEventCounter(registry, "written", GameEventPipeline::getWrittenCount);
+        bindEventCounter(registry, "failed", GameEventPipeline::getFailedCount);
+        bindEventCounter(registry, "dropped", GameEventPipeline::getDroppedCount);
+        bindEventCounter(registry, "sampled_out", GameEventPipeline::getSampledOutCount);
+        FunctionCounter.builder("startown.events.batches", gameEventService,
+                        service -> pipelineValue(service, GameEventPipeline::getBatchCount))
+                .description("Event batches flushed to the database")
+                .register(registry);
+        Gauge.builder("startown.events.buffered", gameEventService,
+                        service -> pipelineValue(service, GameEventPipeline::getBufferedCount))
+                .description("Events queued in the async pipeline")
+                .register(registry);
+    }
+
+    private void bindEventCounter(MeterRegistry registry, String result, ToLongFunction<GameEventPipeline> value) {
+        FunctionCounter.builder("startown.events", gameEventService, service -> pipelineValue(service, value))
+                .description("Game events handled by the async pipeline")
+                .tag("result", result)
+                .register(registry);
+    }
+
+    private static double pipelineValue(GameEventService service, ToLongFunction<GameEventPipeline> value) {
+        GameEventPipeline pipeline = service.getEventPipeline();
+        return pipeline != null ? value.applyAsLong(pipeline) : 0;
+    }
+
+    private void bindSpatialQueries(MeterRegistry registry) {
+        FunctionTimer.builder("startown.spatial.query", agentManager.getSpatialIndex(),
+                        AgentSpatialIndex::getQueryCount, AgentSpatialIndex::getQueryNanos, TimeUnit.NANOSECONDS)
+                .description("Spatial index queries")
+                .tag("index", "agents")
+                .register(registry);
+        FunctionTimer.builder("startown.spatial.query", gameWorld.getObjectIndex(),
+                        WorldObjectIndex::getQueryCount, WorldObjectIndex::getQueryNanos, TimeUnit.NANOSECONDS)
+                .description("Spatial index queries")
+                .tag("index", "objects")
+                .register(registry);
+    }
+}
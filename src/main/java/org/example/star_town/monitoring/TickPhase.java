@@ -0,0 +1,25 @@
+package org.example.star_town.monitoring;
+
+import lombok.Getter;
+
+/**
+ * tick阶段
+ */
+@Getter
+public enum TickPhase {
+    TICK("tick"),                      // 一次完整的智能体tick（墙钟时间）
+    AGENT("agent"),                    // 单个智能体的一次更新
+    BEHAVIOR_TREE("behavior_tree"),    // 行为树执行，包括装载上下文和邻居计数
+    GOAP_PLAN("goap_plan"),            // 空闲和思考状态：选择目标、同步规划或提交/取回异步规划
+    ACTION_EXECUTE("action_execute"),  // 推进当前动作并应用效果
+    BLACKBOARD("blackboard"),          // 写入黑板和交付变更通知
+    SPATIAL_INDEX("spatial_index"),    // 世界对象空间索引同步
+    NEED_DECAY("need_decay"),          // 按列批量衰减所有智能体的需求
+    EVENTS("events");                  // 发布游戏事件
+
+    private final String name;
+
+    TickPhase(String name) {
+        this.name = name;
+    }
+}
@@ -0,0 +1,332 @@
+package org.example.star_town.monitoring;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.example.star_town.ai.behavior.BehaviorNodeTimer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * tick分阶段性能剖析器
+ * 每个阶段一个HdrHistogram Recorder，多线程无锁记录，按时间窗口轮转；
+ * 窗口结束时生成报告：各阶段耗时分位数、本窗口内最慢的智能体和累计耗时最多的行为树节点。
+ * 智能体内部的阶段只在采样tick中计时，避免每个智能体每个tick都调用System.nanoTime
+ */
+@Slf4j
+@Component
+public class TickProfiler implements BehaviorNodeTimer {
+
+    private static final TickPhase[] PHASES = TickPhase.values();
+
+    @Getter
+    @Value("${star-town.profiler.enabled:true}")
+    private volatile boolean enabled = true;
+    @Getter
+    @Value("${star-town.profiler.sample-interval:10}")
+    private int sampleInterval = 10; // 每隔多少个tick采样一次智能体内部阶段
+    @Getter
+    @Value("${star-town.profiler.window-seconds:10}")
+    private long windowSeconds = 10;
+    @Getter
+    private int topN = 10;
+
+    private final Recorder[] recorders = new Recorder[PHASES.length];
+    private final LongAdder[] totalNanos = new LongAdder[PHASES.length];
+    private final LongAdder[] counts = new LongAdder[PHASES.length];
+
+    private volatile boolean sampling;
+    private long tickCounter; // 只由tick线程访问
+    private long windowStartNanos = System.nanoTime();
+    private volatile TopCosts topAgents = new TopCosts(topN);
+    private volatile Map<String, NodeCost> nodeCosts = new ConcurrentHashMap<>();
+    private volatile Histogram[] lastWindow = new Histogram[PHASES.length];
+    private volatile Map<String, Object> lastReport = Map.of();
+
+    public TickProfiler() {
+        for (int i = 0; i < PHASES.length; i++) {
+            recorders[i] = new Recorder(3);
+            totalNanos[i] = new LongAdder();
+            counts[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * 设置每个窗口报告的最慢智能体和节点数
+     */
+    @Value("${star-town.profiler.top-n:10}")
+    public void setTopN(int topN) {
+        this.topN = Math.max(1, topN);
+        this.topAgents = new TopCosts(this.topN);
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        if (!enabled) {
+            sampling = false;
+        }
+    }
+
+    public void setSampleInterval(int sampleInterval) {
+        this.sampleInterval = Math.max(1, sampleInterval);
+    }
+
+    public void setWindowSeconds(long windowSeconds) {
+        this.windowSeconds = Math.max(1, windowSeconds);
+    }
+
+    /**
+     * 新tick开始，决定本tick是否采样智能体内部阶段
+     */
+    public void beginTick() {
+        sampling = enabled && tickCounter++ % Math.max(1, sampleInterval) == 0;
+    }
+
+    /**
+     * tick结束：记录tick耗时，窗口到期时轮转
+     */
+    public void endTick(long tickNanos) {
+        record(TickPhase.TICK, tickNanos);
+        sampling = false;
+        long now = System.nanoTime();
+        if (now - windowStartNanos >= TimeUnit.SECONDS.toNanos(windowSeconds)) {
+            rotate(now);
+        }
+    }
+
+    /**
+     * 当前tick是否采样智能体内部阶段
+     */
+    public boolean isSampling() {
+        return sampling;
+    }
+
+    /**
+     * 记录一次阶段耗时
+     */
+    public void record(TickPhase phase, long nanos) {
+        if (!enabled || nanos < 0) {
+            return;
+        }
+        int index = phase.ordinal();
+        recorders[index].recordValue(nanos);
+        totalNanos[index].add(nanos);
+        counts[index].increment();
+    }
+
+    /**
+     * 记录一个智能体的一次完整更新
+     */
+    public void recordAgent(String agentId, long nanos) {
+        record(TickPhase.AGENT, nanos);
+        topAgents.offer(agentId, nanos);
+    }
+
+    @Override
+    public void recordNode(String nodeName, long nanos) {
+        nodeCosts.computeIfAbsent(nodeName, name -> new NodeCost()).add(nanos);
+    }
+
+    /**
+     * 结束当前窗口并生成报告
+     */
+    public synchronized void rotate() {
+        rotate(System.nanoTime());
+    }
+
+    private synchronized void rotate(long now) {
+        double windowMillis = (now - windowStartNanos) / 1_000_000.0;
+        windowStartNanos = now;
+
+        Histogram[] histograms = new Histogram[PHASES.length];
+        for (int i = 0; i < PHASES.length; i++) {
+            histograms[i] = recorders[i].getIntervalHistogram();
+        }
+        TopCosts agents = topAgents;
+        topAgents = new TopCosts(topN);
+        Map<String, NodeCost> nodes = nodeCosts;
+        nodeCosts = new ConcurrentHashMap<>();
+
+        Map<String, Object> phases = new LinkedHashMap<>();
+        for (TickPhase phase : PHASES) {
+            phases.put(phase.getName(), describe(histograms[phase.ordinal()]));
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("windowMillis", windowMillis);
+        report.put("ticks", histograms[TickPhase.TICK.ordinal()].getTotalCount());
+        report.put("phases", phases);
+        report.put("slowestAgents", agents.snapshot());
+        report.put("slowestNodes", describeNodes(nodes));
+
+        lastWindow = histograms;
+        lastReport = report;
+    }
+
+    private static Map<String, Object> describe(Histogram histogram) {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long count = histogram.getTotalCount();
+        stats.put("count", count);
+        if (count > 0) {
+            stats.put("meanMicros", histogram.getMean() / 1_000.0);
+            stats.put("p50Micros", histogram.getValueAtPercentile(50) / 1_000.0);
+            stats.put("p90Micros", histogram.getValueAtPercentile(90) / 1_000.0);
+            stats.put("p99Micros", histogram.getValueAtPercentile(99) / 1_000.0);
+            stats.put("p999Micros", histogram.getValueAtPercentile(99.9) / 1_000.0);
+            stats.put("maxMicros", histogram.getMaxValue() / 1_000.0);
+            stats.put("totalMillis", histogram.getMean() * count / 1_000_000.0);
+        }
+        return stats;
+    }
+
+    private List<Map<String, Object>> describeNodes(Map<String, NodeCost> nodes) {
+        List<Map.Entry<String, NodeCost>> entries = new ArrayList<>(nodes.entrySet());
+        entries.sort(Comparator.comparingLong((Map.Entry<String, NodeCost> e) -> e.getValue().nanos.sum()).reversed());
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (Map.Entry<String, NodeCost> entry : entries.subList(0, Math.min(topN, entries.size()))) {
+            long calls = entry.getValue().calls.sum();
+            long nanos = entry.getValue().nanos.sum();
+            Map<String, Object> node = new LinkedHashMap<>();
+            node.put("node", entry.getKey());
+            node.put("calls", calls);
+            node.put("totalMicros", nanos / 1_000.0);
+            node.put("meanNanos", calls > 0 ? nanos / calls : 0);
+            result.add(node);
+        }
+        return result;
+    }
+
+    /**
+     * 阶段累计耗时（纳秒）
+     */
+    public long getTotalNanos(TickPhase phase) {
+        return totalNanos[phase.ordinal()].sum();
+    }
+
+    /**
+     * 阶段累计记录次数
+     */
+    public long getCount(TickPhase phase) {
+        return counts[phase.ordinal()].sum();
+    }
+
+    /**
+     * 上一个完整窗口中阶段耗时的分位数（秒），窗口内没有记录时为0
+     */
+    public double getWindowPercentileSeconds(TickPhase phase, double percentile) {
+        Histogram histogram = lastWindow[phase.ordinal()];
+        if (histogram == null || histogram.getTotalCount() == 0) {
+            return 0.0;
+        }
+        long nanos = percentile >= 100 ? histogram.getMaxValue() : histogram.getValueAtPercentile(percentile);
+        return nanos / 1_000_000_000.0;
+    }
+
+    /**
+     * 获取剖析报告：配置、累计统计和上一个完整窗口的报告
+     */
+    public Map<String, Object> getReport() {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("enabled", enabled);
+        report.put("sampleInterval", sampleInterval);
+        report.put("windowSeconds", windowSeconds);
+        report.put("topN", topN);
+
+        Map<String, Object> cumulative = new LinkedHashMap<>();
+        for (TickPhase phase : PHASES) {
+            long count = getCount(phase);
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("count", count);
+            stats.put("totalMillis", getTotalNanos(phase) / 1_000_000.0);
+            stats.put("meanMicros", count > 0 ? getTotalNanos(phase) / 1_000.0 / count : 0.0);
+            cumulative.put(phase.getName(), stats);
+        }
+        report.put("cumulative", cumulative);
+        report.put("lastWindow", lastReport);
+        return report;
+    }
+
+    /**
+     * 行为树节点累计耗时
+     */
+    private static final class NodeCost {
+        private final LongAdder nanos = new LongAdder();
+        private final LongAdder calls = new LongAdder();
+
+        private void add(long elapsed) {
+            nanos.add(elapsed);
+            calls.increment();
+        }
+    }
+
+    /**
+     * 窗口内单次耗时最大的N个智能体
+     * 未超过当前门槛的记录只做一次volatile读，门槛随窗口内的记录迅速升高，因此很少进入同步块
+     */
+    private static final class TopCosts {
+        private final int capacity;
+        private final Map<String, Long> costs = new HashMap<>();
+        private volatile long threshold;
+
+        private TopCosts(int capacity) {
+            this.capacity = capacity;
+        }
+
+        private void offer(String agentId, long nanos) {
+            if (nanos <= threshold) {
+                return;
+            }
+            synchronized (this) {
+                Long previous = costs.get(agentId);
+                if (previous != null) {
+                    if (nanos > previous) {
+                        costs.put(agentId, nanos);
+                    }
+                } else if (costs.size() < capacity) {
+                    costs.put(agentId, nanos);
+                } else {
+                    String cheapest = null;
+                    long cheapestCost = Long.MAX_VALUE;
+                    for (Map.Entry<String, Long> entry : costs.entrySet()) {
+                        if (entry.getValue() < cheapestCost) {
+                            cheapest = entry.getKey();
+                            cheapestCost = entry.getValue();
+                        }
+                    }
+                    if (nanos <= cheapestCost) {
+                        return;
+                    }
+                    costs.remove(cheapest);
+                    costs.put(agentId, nanos);
+                }
+                if (costs.size() >= capacity) {
+                    threshold = costs.values().stream().mapToLong(Long::longValue).min().orElse(0);
+                }
+            }
+        }
+
+        private synchronized List<Map<String, Object>> snapshot() {
+            List<Map<String, Object>> result = new ArrayList<>();
+            costs.entrySet().stream()
+                    .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                    .forEach(entry -> {
+                        Map<String, Object> agent = new LinkedHashMap<>();
+                        agent.put("agentId", entry.getKey());
+                        agent.put("maxMicros", entry.getValue() / 1_000.0);
+                        result.add(agent);
+                    });
+            return result;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package org.example.star_town.monitoring;
+
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 将tick剖析数据注册到Micrometer
+ * 每个阶段一个FunctionTimer（累计次数和总耗时），以及上一个完整窗口的p50/p99/max分位数
+ */
+@Component
+@RequiredArgsConstructor
+public class TickProfilerMetrics implements MeterBinder {
+
+    private static final double[][] QUANTILES = {{50, 0.5}, {99, 0.99}, {100, 1.0}};
+
+    private final TickProfiler profiler;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (TickPhase phase : TickPhase.values()) {
+            FunctionTimer.builder("startown.tick.phase", profiler,
+                            p -> p.getCount(phase), p -> p.getTotalNanos(phase), TimeUnit.NANOSECONDS)
+                    .description("Time spent in each simulation tick phase")
+                    .tag("phase", phase.getName())
+                    .register(registry);
+
+            for (double[] quantile : QUANTILES) {
+                Gauge.builder("startown.tick.phase.window", profiler,
+                                p -> p.getWindowPercentileSeconds(phase, quantile[0]))
+                        .description("Tick phase latency quantile over the last profiler window")
+                        .tag("phase", phase.getName())
+                        .tag("quantile", quantile[1] == 1.0 ? "max" : String.valueOf(quantile[1]))
+                        .baseUnit("seconds")
+                        .register(registry);
+            }
+        }
+    }
+}
@@ -0,0 +1,332 @@
+package org.example.star_town.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.star_town.agent.Agent;
+import org.example.star_town.agent.AgentManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 智能体写后持久化服务
+ * 智能体在tick中修改位置、状态等时只设置脏标记，同一智能体在两次刷新之间的多次修改合并为一行写入。
+ * 后台线程按固定间隔收集有脏标记的智能体，用JDBC批量UPDATE只写入变化的列组：
+ * 仅位置或运行状态变化时不序列化JSON；数据库中尚不存在的智能体改为批量INSERT
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AgentPersistenceService {
+
+    private static final String UPDATE_CORE_SQL = "UPDATE agents SET position_x = ?, position_y = ?, status = ?, "
+            + "last_active = ?, updated_at = ? WHERE id = ?";
+    private static final String UPDATE_FULL_SQL = "UPDATE agents SET name = ?, type = ?, position_x = ?, position_y = ?, "
+            + "status = ?, state_json = ?, memory_json = ?, config_json = ?, last_active = ?, updated_at = ? WHERE id = ?";
+    private static final String INSERT_SQL = "INSERT INTO agents (id, name, type, position_x, position_y, status, "
+            + "state_json, memory_json, config_json, created_at, updated_at, last_active, is_active) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final int JSON_FLAGS = Agent.DIRTY_STATE | Agent.DIRTY_MEMORY | Agent.DIRTY_CONFIG;
+
+    private final AgentManager agentManager;
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    @Value("${star-town.persistence.write-behind:true}")
+    private boolean writeBehind = true;
+    @Value("${star-town.persistence.flush-interval-ms:5000}")
+    private long flushIntervalMillis = 5000;
+    @Value("${star-town.persistence.batch-size:500}")
+    private int batchSize = 500;
+    private ScheduledExecutorService flusher;
+
+    // 统计信息
+    private long flushCount;
+    private long rowsWritten;
+    private long rowsInserted;
+    private long rowsFailed;
+    private double lastFlushMillis;
+    private double maxFlushMillis;
+    private int lastFlushRows;
+    private int maxBatchRows;
+    private long lastLagMillis;
+    private long maxLagMillis;
+
+    /**
+     * 启动定时刷新
+     */
+    @PostConstruct
+    public void start() {
+        if (!writeBehind) {
+            return;
+        }
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "agent-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis,
+                TimeUnit.MILLISECONDS);
+        log.info("Agent write-behind persistence started, flush interval {} ms, batch size {}",
+                flushIntervalMillis, batchSize);
+    }
+
+    /**
+     * 停止定时刷新，并写入剩余的修改
+     */
+    @PreDestroy
+    public void stop() {
+        if (flusher != null) {
+            flusher.shutdown();
+            try {
+                flusher.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            flusher = null;
+        }
+        if (writeBehind) {
+            flushQuietly();
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            log.error("Agent write-behind flush failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 写入所有有脏标记的智能体
+     * @return 写入的行数
+     */
+    public synchronized int flush() {
+        long start = System.nanoTime();
+        long now = System.currentTimeMillis();
+        List<Agent> dirtyAgents = new ArrayList<>();
+        for (Agent agent : agentManager.getAllAgents()) {
+            if (agent.hasPendingChanges()) {
+                dirtyAgents.add(agent);
+            }
+        }
+        if (dirtyAgents.isEmpty()) {
+            return 0;
+        }
+
+        int written = 0;
+        for (int from = 0; from < dirtyAgents.size(); from += batchSize) {
+            written += writeBatch(dirtyAgents.subList(from, Math.min(from + batchSize, dirtyAgents.size())), now);
+        }
+
+        double elapsedMillis = (System.nanoTime() - start) / 1_000_000.0;
+        flushCount++;
+        lastFlushMillis = elapsedMillis;
+        maxFlushMillis = Math.max(maxFlushMillis, elapsedMillis);
+        lastFlushRows = written;
+        log.debug("Flushed {} dirty agents in {} ms", written, String.format("%.2f", elapsedMillis));
+        return written;
+    }
+
+    /**
+     * 一批智能体：按变化的列组分成两条批量UPDATE，未更新到的行批量INSERT
+     */
+    private int writeBatch(List<Agent> agents, long now) {
+        List<Row> coreRows = new ArrayList<>();
+        List<Row> fullRows = new ArrayList<>();
+        long oldestChange = now;
+        for (Agent agent : agents) {
+            long since = agent.pendingChangesSince();
+            int flags = agent.drainDirtyFlags();
+            if (flags == 0) {
+                continue;
+            }
+            oldestChange = Math.min(oldestChange, since);
+            Row row = new Row(agent, flags);
+            try {
+                if ((flags & JSON_FLAGS) != 0) {
+                    row.serialize(objectMapper);
+                    fullRows.add(row);
+                } else {
+                    coreRows.add(row);
+                }
+            } catch (JsonProcessingException e) {
+                log.error("Error serializing agent data for agent {}: {}", agent.getId(), e.getMessage());
+                agent.markDirty(flags);
+                rowsFailed++;
+            }
+        }
+
+        Timestamp timestamp = new Timestamp(now);
+        List<Row> missing = new ArrayList<>();
+        int written = 0;
+        try {
+            written += update(UPDATE_CORE_SQL, coreRows, timestamp, missing, false);
+            written += update(UPDATE_FULL_SQL, fullRows, timestamp, missing, true);
+            written += insert(missing, timestamp);
+        } catch (Exception e) {
+            // 写入失败的智能体恢复脏标记，下次刷新重试
+            for (Row row : coreRows) {
+                row.agent.markDirty(row.flags);
+            }
+            for (Row row : fullRows) {
+                row.agent.markDirty(row.flags);
+            }
+            rowsFailed += coreRows.size() + fullRows.size();
+            log.error("Failed to write {} agents: {}", coreRows.size() + fullRows.size(), e.getMessage(), e);
+            return 0;
+        }
+
+        rowsWritten += written;
+        maxBatchRows = Math.max(maxBatchRows, written);
+        lastLagMillis = now - oldestChange;
+        maxLagMillis = Math.max(maxLagMillis, lastLagMillis);
+        return written;
+    }
+
+    private int update(String sql, List<Row> rows, Timestamp timestamp, List<Row> missing, boolean full) {
+        if (rows.isEmpty()) {
+            return 0;
+        }
+        int[][] counts = jdbcTemplate.batchUpdate(sql, rows, rows.size(), (ps, row) -> {
+            Agent agent = row.agent;
+            int index = 1;
+            if (full) {
+                ps.setString(index++, agent.getName());
+                ps.setString(index++, agent.getType().name());
+            }
+            ps.setDouble(index++, agent.getPosition().getX());
+            ps.setDouble(index++, agent.getPosition().getY());
+            ps.setString(index++, agent.getStatus().name());
+            if (full) {
+                ps.setString(index++, row.stateJson);
+                ps.setString(index++, row.memoryJson);
+                ps.setString(index++, row.configJson);
+            }
+            ps.setTimestamp(index++, timestamp);
+            ps.setTimestamp(index++, timestamp);
+            ps.setString(index, agent.getId());
+        });
+
+        int updated = 0;
+        for (int i = 0; i < rows.size(); i++) {
+            int count = counts[0][i];
+            if (count == 0) {
+                missing.add(rows.get(i));
+            } else if (count > 0 || count == Statement.SUCCESS_NO_INFO) {
+                updated++;
+            }
+        }
+        return updated;
+    }
+
+    private int insert(List<Row> rows, Timestamp timestamp) throws JsonProcessingException {
+        if (rows.isEmpty()) {
+            return 0;
+        }
+        for (Row row : rows) {
+            if (row.stateJson == null) {
+                row.serialize(objectMapper);
+            }
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, rows, rows.size(), (ps, row) -> {
+            Agent agent = row.agent;
+            ps.setString(1, agent.getId());
+            ps.setString(2, agent.getName());
+            ps.setString(3, agent.getType().name());
+            ps.setDouble(4, agent.getPosition().getX());
+            ps.setDouble(5, agent.getPosition().getY());
+            ps.setString(6, agent.getStatus().name());
+            ps.setString(7, row.stateJson);
+            ps.setString(8, row.memoryJson);
+            ps.setString(9, row.configJson);
+            ps.setTimestamp(10, timestamp);
+            ps.setTimestamp(11, timestamp);
+            ps.setTimestamp(12, timestamp);
+            ps.setBoolean(13, true);
+        });
+        rowsInserted += rows.size();
+        return rows.size();
+    }
+
+    /**
+     * 检查点：把所有智能体的全部字段写入数据库
+     * @return 写入的行数
+     */
+    public int checkpointAll() {
+        for (Agent agent : agentManager.getAllAgents()) {
+            agent.markDirty(Agent.DIRTY_ALL);
+        }
+        int written = flush();
+        log.info("Checkpointed {} agents", written);
+        return written;
+    }
+
+    /**
+     * 获取写后持久化统计信息
+     */
+    public synchronized Map<String, Object> getStatistics() {
+        int pending = 0;
+        long oldestChange = System.currentTimeMillis();
+        for (Agent agent : agentManager.getAllAgents()) {
+            if (agent.hasPendingChanges()) {
+                pending++;
+                oldestChange = Math.min(oldestChange, agent.pendingChangesSince());
+            }
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("writeBehind", writeBehind);
+        stats.put("flushIntervalMillis", flushIntervalMillis);
+        stats.put("batchSize", batchSize);
+        stats.put("pendingAgents", pending);
+        stats.put("currentLagMillis", pending > 0 ? System.currentTimeMillis() - oldestChange : 0);
+        stats.put("flushCount", flushCount);
+        stats.put("rowsWritten", rowsWritten);
+        stats.put("rowsInserted", rowsInserted);
+        stats.put("rowsFailed", rowsFailed);
+        stats.put("lastFlushMillis", lastFlushMillis);
+        stats.put("maxFlushMillis", maxFlushMillis);
+        stats.put("lastFlushRows", lastFlushRows);
+        stats.put("maxBatchRows", maxBatchRows);
+        stats.put("lastLagMillis", lastLagMillis);
+        stats.put("maxLagMillis", maxLagMillis);
+        return stats;
+    }
+
+    /**
+     * 待写入的一行，JSON列只在需要时序列化
+     */
+    private static final class Row {
+        private final Agent agent;
+        private final int flags;
+        private String stateJson;
+        private String memoryJson;
+        private String configJson;
+
+        private Row(Agent agent, int flags) {
+            this.agent = agent;
+            this.flags = flags;
+        }
+
+        private void serialize(ObjectMapper objectMapper) throws JsonProcessingException {
+            stateJson = objectMapper.writeValueAsString(agent.getState());
+            memoryJson = objectMapper.writeValueAsString(agent.getMemory());
+            configJson = objectMapper.writeValueAsString(agent.getConfig());
+        }
+    }
+}
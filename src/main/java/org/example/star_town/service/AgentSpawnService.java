@@ -0,0 +1,236 @@
+package org.example.star_town.service;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.example.star_town.agent.Agent;
+import org.example.star_town.agent.AgentArchetype;
+import org.example.star_town.agent.AgentManager;
+import org.example.star_town.agent.AgentType;
+import org.example.star_town.world.GameWorld;
+import org.example.star_town.world.Position;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+/**
+ * 智能体批量生成服务
+ * 按类型权重、位置分布和需求取值范围一次生成大量智能体。
+ * 智能体按类型原型创建，共享动作和目标实例；创建和注册在公共ForkJoin池中并行执行，
+ * 每个智能体的随机数由种子和序号确定，相同请求在任意并行度下生成相同的智能体
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AgentSpawnService {
+
+    // 需求值的取值范围
+    private static final int MIN_NEED = 0;
+    private static final int MAX_NEED = 100;
+
+    private final AgentManager agentManager;
+    private final GameWorld gameWorld;
+
+    @Setter
+    @Value("${star-town.spawn.max-batch-size:200000}")
+    private int maxBatchSize = 200000;
+
+    private final AtomicLong nextIndex = new AtomicLong(); // 未指定起始序号时接着上一批编号
+
+    /**
+     * 批量生成智能体
+     * @return 生成统计
+     * @throws IllegalArgumentException 请求参数不合法
+     */
+    public Map<String, Object> spawn(SpawnRequest request) {
+        validate(request);
+        long start = System.nanoTime();
+        int count = request.getCount();
+        long firstIndex = request.getStartIndex() != null
+                ? request.getStartIndex()
+                : nextIndex.getAndAdd(count);
+        long seed = request.getSeed() != null ? request.getSeed() : ThreadLocalRandom.current().nextLong();
+
+        AgentType[] types = request.getTypes().keySet().toArray(new AgentType[0]);
+        double[] cumulative = new double[types.length];
+        double total = 0;
+        for (int i = 0; i < types.length; i++) {
+            total += request.getTypes().get(types[i]);
+            cumulative[i] = total;
+        }
+        double[] area = resolveArea(request);
+        double[][] clusters = request.getDistribution() == Distribution.CLUSTERED
+                ? clusterCenters(request, area, seed)
+                : null;
+
+        AtomicInteger skipped = new AtomicInteger();
+        Map<AgentType, AtomicInteger> created = new EnumMap<>(AgentType.class);
+        for (AgentType type : types) {
+            created.put(type, new AtomicInteger());
+        }
+        double weightTotal = total;
+        Map<String, Range> needs = request.getNeeds() != null ? request.getNeeds() : Map.of();
+        IntStream.range(0, count).parallel().forEach(i -> {
+            String id = request.getIdPrefix() + "-" + (firstIndex + i);
+            SplittableRandom random = new SplittableRandom(seed + (firstIndex + i) * 0x9E3779B97F4A7C15L);
+            AgentType type = pickType(types, cumulative, random.nextDouble(weightTotal));
+            Agent agent = AgentArchetype.of(type).instantiate(id, id,
+                    position(request, area, clusters, random));
+            needs.forEach((key, range) -> agent.setState(key, range.sample(random)));
+            // 编号已被占用（包括并发的另一批请求）时跳过，不替换已有的智能体
+            if (agentManager.registerIfAbsent(agent)) {
+                created.get(type).incrementAndGet();
+            } else {
+                skipped.incrementAndGet();
+            }
+        });
+
+        long elapsedNanos = System.nanoTime() - start;
+        Map<String, Object> result = new LinkedHashMap<>();
+        int createdTotal = count - skipped.get();
+        result.put("requested", count);
+        result.put("created", createdTotal);
+        result.put("skipped", skipped.get());
+        Map<String, Integer> byType = new LinkedHashMap<>();
+        created.forEach((type, counter) -> byType.put(type.name(), counter.get()));
+        result.put("byType", byType);
+        result.put("firstId", request.getIdPrefix() + "-" + firstIndex);
+        result.put("seed", seed);
+        result.put("durationMillis", elapsedNanos / 1_000_000.0);
+        result.put("totalAgents", agentManager.getAgentCount());
+        log.info("Spawned {} agents ({} skipped) in {} ms", createdTotal, skipped.get(), elapsedNanos / 1_000_000);
+        return result;
+    }
+
+    private void validate(SpawnRequest request) {
+        if (request.getCount() <= 0 || request.getCount() > maxBatchSize) {
+            throw new IllegalArgumentException("Count must be between 1 and " + maxBatchSize);
+        }
+        if (request.getIdPrefix() == null || request.getIdPrefix().isBlank()) {
+            throw new IllegalArgumentException("Id prefix must not be blank");
+        }
+        if (request.getTypes() == null || request.getTypes().isEmpty()) {
+            throw new IllegalArgumentException("At least one agent type is required");
+        }
+        for (Map.Entry<AgentType, Double> entry : request.getTypes().entrySet()) {
+            if (entry.getKey() == null || entry.getValue() == null || !(entry.getValue() > 0)) {
+                throw new IllegalArgumentException("Type weights must be positive");
+            }
+        }
+        Map<String, Range> needs = request.getNeeds() != null ? request.getNeeds() : Map.of();
+        for (Map.Entry<String, Range> entry : needs.entrySet()) {
+            Range range = entry.getValue();
+            if (range == null || range.getMin() < MIN_NEED || range.getMax() > MAX_NEED
+                    || range.getMin() > range.getMax()) {
+                throw new IllegalArgumentException("Range for " + entry.getKey()
+                        + " must lie within " + MIN_NEED + ".." + MAX_NEED);
+            }
+        }
+        if (request.getDistribution() == Distribution.CLUSTERED
+                && (request.getClusters() <= 0 || request.getClusterRadius() <= 0)) {
+            throw new IllegalArgumentException("Clustered distribution needs positive clusters and cluster radius");
+        }
+    }
+
+    /**
+     * 生成区域{x, y, width, height}，未指定时为整个世界
+     */
+    private double[] resolveArea(SpawnRequest request) {
+        if (request.getWidth() > 0 && request.getHeight() > 0) {
+            return new double[]{request.getX(), request.getY(), request.getWidth(), request.getHeight()};
+        }
+        return new double[]{0, 0, gameWorld.getWorldWidth(), gameWorld.getWorldHeight()};
+    }
+
+    private static double[][] clusterCenters(SpawnRequest request, double[] area, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        double[][] centers = new double[request.getClusters()][];
+        for (int i = 0; i < centers.length; i++) {
+            centers[i] = new double[]{area[0] + random.nextDouble() * area[2], area[1] + random.nextDouble() * area[3]};
+        }
+        return centers;
+    }
+
+    private static Position position(SpawnRequest request, double[] area, double[][] clusters,
+                                     SplittableRandom random) {
+        if (clusters == null) {
+            return new Position(area[0] + random.nextDouble() * area[2], area[1] + random.nextDouble() * area[3]);
+        }
+        // 围绕随机簇中心的二维正态分布，结果限制在生成区域内
+        double[] center = clusters[random.nextInt(clusters.length)];
+        double angle = random.nextDouble() * 2 * Math.PI;
+        double distance = request.getClusterRadius() * Math.sqrt(-2 * Math.log(1 - random.nextDouble()));
+        double x = Math.max(area[0], Math.min(area[0] + area[2], center[0] + distance * Math.cos(angle)));
+        double y = Math.max(area[1], Math.min(area[1] + area[3], center[1] + distance * Math.sin(angle)));
+        return new Position(x, y);
+    }
+
+    private static AgentType pickType(AgentType[] types, double[] cumulative, double value) {
+        for (int i = 0; i < types.length - 1; i++) {
+            if (value < cumulative[i]) {
+                return types[i];
+            }
+        }
+        return types[types.length - 1];
+    }
+
+    /**
+     * 位置分布
+     */
+    public enum Distribution {
+        UNIFORM,    // 在区域内均匀分布
+        CLUSTERED   // 聚集在若干随机中心附近
+    }
+
+    /**
+     * 批量生成请求
+     */
+    @Getter
+    @Setter
+    public static class SpawnRequest {
+        private int count;
+        private String idPrefix = "agent";
+        private Long startIndex; // 为null时接着上一批编号
+        private Map<AgentType, Double> types = Map.of(AgentType.RESIDENT, 1.0); // 类型及权重
+        private Distribution distribution = Distribution.UNIFORM;
+        private double x;
+        private double y;
+        private double width; // 宽或高不大于0时使用整个世界
+        private double height;
+        private int clusters = 8;
+        private double clusterRadius = 50;
+        private Map<String, Range> needs = Map.of(); // 初始状态值的均匀取值范围
+        private Long seed; // 为null时随机
+    }
+
+    /**
+     * 闭区间整数取值范围
+     */
+    @Getter
+    @Setter
+    public static class Range {
+        private int min;
+        private int max;
+
+        public Range() {
+        }
+
+        public Range(int min, int max) {
+            this.min = min;
+            this.max = max;
+        }
+
+        int sample(SplittableRandom random) {
+            return min == max ? min : random.nextInt(min, max + 1);
+        }
+    }
+}
@@ -6,12 +6,15 @@ import lombok.extern.slf4j.Slf4j;
 import org.example.star_town.ai.behavior.BehaviorLibrary;
 import org.example.star_town.ai.behavior.BehaviorNode;
 import org.example.star_town.ai.behavior.BehaviorTreeBuilder;
+import org.example.star_town.ai.behavior.BehaviorTreeCompiler;
 import org.example.star_town.ai.behavior.BehaviorTreeConfig;
+import org.example.star_town.ai.behavior.CompiledBehaviorTree;
 import org.example.star_town.agent.Agent;
 import org.example.star_town.agent.AgentType;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 行为树配置服务
@@ -23,25 +26,51 @@ import java.util.*;
 public class BehaviorTreeConfigService {
     
     private final ObjectMapper objectMapper;
-    private final Map<AgentType, BehaviorNode> behaviorTreeCache = new HashMap<>();
+    private final Map<AgentType, BehaviorNode> behaviorTreeCache = new ConcurrentHashMap<>();
+    private final Map<AgentType, CompiledBehaviorTree> compiledTreeCache = new ConcurrentHashMap<>();
     private final BehaviorTreeBuilder treeBuilder = new BehaviorTreeBuilder();
     
     /**
      * 获取智能体的行为树
      */
     public BehaviorNode getBehaviorTree(Agent agent) {
-        AgentType type = agent.getType();
-        
-        // 从缓存获取
-        if (behaviorTreeCache.containsKey(type)) {
-            return behaviorTreeCache.get(type);
-        }
-        
-        // 构建新的行为树
-        BehaviorNode tree = buildBehaviorTreeForType(type);
-        behaviorTreeCache.put(type, tree);
-        
-        return tree;
+        // 从缓存获取，不存在时构建新的行为树（并行tick下可能被多个线程同时调用）
+        return behaviorTreeCache.computeIfAbsent(agent.getType(), this::buildBehaviorTreeForType);
+    }
+    
+    /**
+     * 获取智能体类型共享的编译行为树
+     * 各智能体的执行状态由调用方通过{@link CompiledBehaviorTree#newState()}持有
+     */
+    public CompiledBehaviorTree getCompiledBehaviorTree(Agent agent) {
+        return compiledTreeCache.computeIfAbsent(agent.getType(),
+                type -> BehaviorTreeCompiler.compile(getBehaviorTree(agent)));
+    }
+    
+    /**
+     * 获取各类型编译行为树的执行统计：实际求值次数和因输入未变化跳过的次数
+     */
+    public Map<String, Object> getCompiledTreeStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        compiledTreeCache.forEach((type, tree) -> {
+            long evaluations = tree.getEvaluationCount();
+            long skips = tree.getSkipCount();
+            Map<String, Object> treeStats = new LinkedHashMap<>();
+            treeStats.put("instructions", tree.getInstructionCount());
+            treeStats.put("readsDeclared", tree.isReadsDeclared());
+            treeStats.put("evaluations", evaluations);
+            treeStats.put("skips", skips);
+            treeStats.put("skipRate", evaluations + skips > 0 ? (double) skips / (evaluations + skips) : 0.0);
+            stats.put(type.name(), treeStats);
+        });
+        return stats;
+    }
+    
+    /**
+     * 编译行为树配置
+     */
+    public CompiledBehaviorTree compileBehaviorTree(BehaviorTreeConfig config) {
+        return BehaviorTreeCompiler.compile(config);
     }
     
     /**
@@ -182,6 +211,7 @@ public class BehaviorTreeConfigService {
      */
     public void clearCache() {
         behaviorTreeCache.clear();
+        compiledTreeCache.clear();
         log.info("Behavior tree cache cleared");
     }
     
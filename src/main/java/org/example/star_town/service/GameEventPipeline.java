@@ -0,0 +1,310 @@
+package org.example.star_town.service;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 异步事件记录管道
+ * 调用方把事件写入有界的多生产者单消费者环形缓冲区后立即返回；
+ * 单个后台写线程批量取出事件，攒够一批或超过刷新间隔时交给{@link BatchWriter}一次写入。
+ * 缓冲区满时按背压策略处理，调用方线程永远不会等待数据库
+ */
+@Slf4j
+public class GameEventPipeline {
+
+    /**
+     * 背压策略
+     */
+    public enum BackpressurePolicy {
+        DROP,   // 缓冲区满时丢弃新事件
+        BLOCK,  // 缓冲区满时等待写线程腾出空间，超过等待时限后丢弃
+        SAMPLE  // 缓冲区超过高水位后按比例采样，满时丢弃
+    }
+
+    /**
+     * 待写入的事件，数据在写线程上序列化，发布后不应再修改
+     */
+    public record PendingEvent(String type, String sourceAgentId, String targetAgentId, Long worldObjectId,
+                               String description, Map<String, Object> data, Double positionX, Double positionY,
+                               LocalDateTime timestamp) {
+    }
+
+    /**
+     * 批量写入器
+     */
+    @FunctionalInterface
+    public interface BatchWriter {
+        void write(List<PendingEvent> batch) throws Exception;
+    }
+
+    private static final double SAMPLE_HIGH_WATER_MARK = 0.75;
+
+    private final BatchWriter writer;
+    private final MpscRingBuffer<PendingEvent> buffer;
+    @Getter
+    private final int batchSize;
+    @Getter
+    private final long flushIntervalMillis;
+    @Getter
+    private final BackpressurePolicy policy;
+    @Getter
+    private final int sampleRate;
+    @Getter
+    private final long blockTimeoutMillis;
+    private final Thread writerThread;
+    private volatile boolean running = true; // 写线程是否继续攒批
+    private volatile boolean closed; // 是否拒绝新事件
+    private final AtomicInteger activePublishers = new AtomicInteger(); // 已通过关闭检查、尚未返回的发布调用
+
+    // 统计信息
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong sampledOut = new AtomicLong();
+    private final AtomicLong blocked = new AtomicLong();
+    private final AtomicLong sampleCounter = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong maxBatchNanos = new AtomicLong();
+
+    /**
+     * @param capacity 缓冲区容量，向上取整为2的幂
+     * @param batchSize 每批最多写入的事件数
+     * @param flushIntervalMillis 未攒够一批时的最长等待时间
+     * @param sampleRate SAMPLE策略下高水位以上每sampleRate个事件保留一个
+     * @param blockTimeoutMillis BLOCK策略下的最长等待时间
+     */
+    public GameEventPipeline(BatchWriter writer, int capacity, int batchSize, long flushIntervalMillis,
+                             BackpressurePolicy policy, int sampleRate, long blockTimeoutMillis) {
+        this.writer = writer;
+        this.buffer = new MpscRingBuffer<>(capacity);
+        this.batchSize = Math.max(1, batchSize);
+        this.flushIntervalMillis = Math.max(1, flushIntervalMillis);
+        this.policy = policy;
+        this.sampleRate = Math.max(1, sampleRate);
+        this.blockTimeoutMillis = Math.max(0, blockTimeoutMillis);
+        this.writerThread = new Thread(this::runWriter, "game-event-writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    /**
+     * 发布事件
+     * @return 事件是否进入缓冲区
+     */
+    public boolean publish(PendingEvent event) {
+        // 先登记再检查关闭标记：关闭方设置标记后等待登记清零，不会有事件在最后一次取出后才进入缓冲区
+        activePublishers.incrementAndGet();
+        try {
+            if (closed) {
+                dropped.incrementAndGet();
+                return false;
+            }
+            return offer(event);
+        } finally {
+            activePublishers.decrementAndGet();
+        }
+    }
+
+    private boolean offer(PendingEvent event) {
+        if (policy == BackpressurePolicy.SAMPLE && buffer.size() >= buffer.capacity() * SAMPLE_HIGH_WATER_MARK
+                && sampleCounter.getAndIncrement() % sampleRate != 0) {
+            sampledOut.incrementAndGet();
+            return false;
+        }
+
+        boolean accepted = buffer.offer(event);
+        if (!accepted && policy == BackpressurePolicy.BLOCK) {
+            accepted = offerBlocking(event);
+        }
+        if (!accepted) {
+            dropped.incrementAndGet();
+            return false;
+        }
+
+        published.incrementAndGet();
+        if (buffer.size() >= batchSize) {
+            LockSupport.unpark(writerThread);
+        }
+        return true;
+    }
+
+    private boolean offerBlocking(PendingEvent event) {
+        blocked.incrementAndGet();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(blockTimeoutMillis);
+        LockSupport.unpark(writerThread);
+        while (running && System.nanoTime() < deadline) {
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(100));
+            if (buffer.offer(event)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 写线程：攒批或超时后写入
+     */
+    private void runWriter() {
+        List<PendingEvent> batch = new ArrayList<>(batchSize);
+        long flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        long lastFlush = System.nanoTime();
+        while (running) {
+            buffer.drainTo(batch, batchSize - batch.size());
+            long now = System.nanoTime();
+            if (batch.size() >= batchSize || (!batch.isEmpty() && now - lastFlush >= flushIntervalNanos)) {
+                flush(batch);
+                lastFlush = System.nanoTime();
+            } else {
+                LockSupport.parkNanos(this, Math.max(0, flushIntervalNanos - (now - lastFlush)));
+                if (batch.isEmpty() && buffer.size() == 0) {
+                    lastFlush = System.nanoTime(); // 空闲时从下一个事件开始计时
+                }
+            }
+        }
+        // 关闭时写完剩余事件
+        do {
+            buffer.drainTo(batch, batchSize - batch.size());
+            flush(batch);
+        } while (buffer.size() > 0);
+    }
+
+    private void flush(List<PendingEvent> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            writer.write(batch);
+            written.addAndGet(batch.size());
+        } catch (Exception e) {
+            failed.addAndGet(batch.size());
+            log.error("Failed to write {} events: {}", batch.size(), e.getMessage(), e);
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            batches.incrementAndGet();
+            maxBatchNanos.accumulateAndGet(elapsed, Math::max);
+            batch.clear();
+        }
+    }
+
+    /**
+     * 等待缓冲区中的事件被取走并写入，主要用于关闭前和测试
+     * @return 是否在超时前写完
+     */
+    public boolean awaitDrained(long timeoutMillis) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (System.nanoTime() < deadline) {
+            if (written.get() + failed.get() >= published.get()) {
+                return true;
+            }
+            LockSupport.unpark(writerThread);
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        return false;
+    }
+
+    /**
+     * 关闭管道，写完缓冲区中剩余的事件
+     * 先拒绝新事件并等待进行中的发布返回，再停止写线程，写线程退出前取空缓冲区
+     */
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        while (activePublishers.get() > 0) {
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(100));
+        }
+        running = false;
+        LockSupport.unpark(writerThread);
+        try {
+            writerThread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        log.info("Game event pipeline closed, {} events written, {} dropped", written.get(), dropped.get());
+    }
+
+    /**
+     * 进入缓冲区的事件数
+     */
+    public long getPublishedCount() {
+        return published.get();
+    }
+
+    /**
+     * 已写入数据库的事件数
+     */
+    public long getWrittenCount() {
+        return written.get();
+    }
+
+    /**
+     * 写入失败的事件数
+     */
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    /**
+     * 因缓冲区已满或管道已关闭而丢弃的事件数
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * SAMPLE策略下被采样丢弃的事件数
+     */
+    public long getSampledOutCount() {
+        return sampledOut.get();
+    }
+
+    /**
+     * 已写入的批次数
+     */
+    public long getBatchCount() {
+        return batches.get();
+    }
+
+    /**
+     * 缓冲区中等待写入的事件数
+     */
+    public int getBufferedCount() {
+        return buffer.size();
+    }
+
+    /**
+     * 获取管道统计信息
+     */
+    public Map<String, Object> getStatistics() {
+        long batchCount = batches.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("policy", policy);
+        stats.put("capacity", buffer.capacity());
+        stats.put("buffered", buffer.size());
+        stats.put("batchSize", batchSize);
+        stats.put("flushIntervalMillis", flushIntervalMillis);
+        stats.put("published", published.get());
+        stats.put("written", written.get());
+        stats.put("failed", failed.get());
+        stats.put("dropped", dropped.get());
+        stats.put("sampledOut", sampledOut.get());
+        stats.put("blocked", blocked.get());
+        stats.put("batches", batchCount);
+        stats.put("meanBatchSize", batchCount > 0 ? (double) (written.get() + failed.get()) / batchCount : 0.0);
+        stats.put("maxBatchMillis", maxBatchNanos.get() / 1_000_000.0);
+        return stats;
+    }
+}
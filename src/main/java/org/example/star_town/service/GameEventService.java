@@ -2,14 +2,21 @@ package org.example.star_town.service;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.example.star_town.model.GameEventEntity;
+import org.example.star_town.monitoring.TickPhase;
+import org.example.star_town.monitoring.TickProfiler;
 import org.example.star_town.repository.GameEventRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -24,6 +31,101 @@ public class GameEventService {
     
     private final GameEventRepository gameEventRepository;
     private final ObjectMapper objectMapper;
+    private final JdbcTemplate jdbcTemplate;
+    private final TickProfiler tickProfiler;
+    
+    // 异步事件管道配置
+    @Value("${star-town.events.async:true}")
+    private boolean asyncEvents = true;
+    @Value("${star-town.events.buffer-capacity:8192}")
+    private int bufferCapacity = 8192;
+    @Value("${star-town.events.batch-size:256}")
+    private int batchSize = 256;
+    @Value("${star-town.events.flush-interval-ms:200}")
+    private long flushIntervalMillis = 200;
+    @Value("${star-town.events.backpressure:DROP}")
+    private GameEventPipeline.BackpressurePolicy backpressure = GameEventPipeline.BackpressurePolicy.DROP;
+    @Value("${star-town.events.sample-rate:10}")
+    private int sampleRate = 10;
+    @Value("${star-town.events.block-timeout-ms:50}")
+    private long blockTimeoutMillis = 50;
+    private GameEventPipeline eventPipeline;
+    
+    /**
+     * 启动异步事件管道
+     */
+    @PostConstruct
+    public void startPipeline() {
+        if (asyncEvents) {
+            eventPipeline = new GameEventPipeline(new JdbcEventBatchWriter(jdbcTemplate, objectMapper),
+                    bufferCapacity, batchSize, flushIntervalMillis, backpressure, sampleRate, blockTimeoutMillis);
+            log.info("Game event pipeline started: capacity {}, batch size {}, flush interval {} ms, backpressure {}",
+                    bufferCapacity, batchSize, flushIntervalMillis, backpressure);
+        }
+    }
+    
+    /**
+     * 关闭异步事件管道，写完剩余事件
+     */
+    @PreDestroy
+    public void stopPipeline() {
+        if (eventPipeline != null) {
+            eventPipeline.close();
+        }
+    }
+    
+    /**
+     * 异步发布游戏事件
+     */
+    public void publishEvent(String type, String description, Map<String, Object> data) {
+        publishEvent(type, null, null, null, description, data, null, null);
+    }
+    
+    /**
+     * 异步发布智能体事件
+     */
+    public void publishAgentEvent(String type, String agentId, String description, Map<String, Object> data) {
+        publishEvent(type, agentId, null, null, description, data, null, null);
+    }
+    
+    /**
+     * 异步发布完整事件
+     * 事件进入异步管道后立即返回，由后台线程批量写入；未启用异步管道时同步记录。
+     * 管道已满时按背压策略处理，事件可能被丢弃
+     */
+    public void publishEvent(String type, String sourceAgentId, String targetAgentId,
+                             Long worldObjectId, String description, Map<String, Object> data,
+                             Double positionX, Double positionY) {
+        long start = System.nanoTime();
+        GameEventPipeline pipeline = eventPipeline;
+        if (pipeline == null) {
+            recordEvent(type, sourceAgentId, targetAgentId, worldObjectId, description, data, positionX, positionY);
+        } else {
+            pipeline.publish(new GameEventPipeline.PendingEvent(type, sourceAgentId, targetAgentId, worldObjectId,
+                    description, data, positionX, positionY, LocalDateTime.now()));
+        }
+        tickProfiler.record(TickPhase.EVENTS, System.nanoTime() - start);
+    }
+    
+    /**
+     * 获取异步事件管道，未启用时返回null
+     */
+    public GameEventPipeline getEventPipeline() {
+        return eventPipeline;
+    }
+    
+    /**
+     * 获取异步事件管道统计信息
+     */
+    public Map<String, Object> getPipelineStatistics() {
+        GameEventPipeline pipeline = eventPipeline;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("async", pipeline != null);
+        if (pipeline != null) {
+            stats.putAll(pipeline.getStatistics());
+        }
+        return stats;
+    }
     
     /**
      * 记录游戏事件
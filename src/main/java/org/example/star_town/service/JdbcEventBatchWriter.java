@@ -0,0 +1,71 @@
+package org.example.star_town.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.List;
+
+/**
+ * 基于JDBC批量插入的事件写入器
+ * 绕过JPA逐条持久化，一批事件一次批量INSERT；事件数据在写线程上序列化为JSON
+ */
+public class JdbcEventBatchWriter implements GameEventPipeline.BatchWriter {
+
+    private static final String INSERT_SQL = "INSERT INTO game_events "
+            + "(type, source_agent_id, target_agent_id, world_object_id, description, data_json, "
+            + "position_x, position_y, timestamp, severity, is_processed) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    public JdbcEventBatchWriter(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public void write(List<GameEventPipeline.PendingEvent> batch) throws Exception {
+        String[] dataJson = new String[batch.size()];
+        for (int i = 0; i < batch.size(); i++) {
+            Object data = batch.get(i).data();
+            dataJson[i] = data != null ? objectMapper.writeValueAsString(data) : null;
+        }
+
+        jdbcTemplate.batchUpdate(INSERT_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                GameEventPipeline.PendingEvent event = batch.get(i);
+                ps.setString(1, event.type());
+                ps.setString(2, event.sourceAgentId());
+                ps.setString(3, event.targetAgentId());
+                setNullable(ps, 4, event.worldObjectId(), Types.BIGINT);
+                ps.setString(5, event.description());
+                ps.setString(6, dataJson[i]);
+                setNullable(ps, 7, event.positionX(), Types.DOUBLE);
+                setNullable(ps, 8, event.positionY(), Types.DOUBLE);
+                ps.setTimestamp(9, Timestamp.valueOf(event.timestamp()));
+                ps.setString(10, "INFO");
+                ps.setBoolean(11, false);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return batch.size();
+            }
+        });
+    }
+
+    private static void setNullable(PreparedStatement ps, int index, Object value, int sqlType) throws SQLException {
+        if (value == null) {
+            ps.setNull(index, sqlType);
+        } else {
+            ps.setObject(index, value, sqlType);
+        }
+    }
+}
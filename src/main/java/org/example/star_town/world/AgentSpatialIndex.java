@@ -0,0 +1,212 @@
+package org.example.star_town.world;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.example.star_town.agent.Agent;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * 智能体空间哈希索引
+ * 按固定大小的网格划分世界，网格键为打包的long（见{@link GridCells}）。
+ * 智能体位置变化时增量更新：只有跨越网格时才从旧网格移到新网格。
+ * 邻近查询只访问覆盖查询圆的网格，代价与附近的智能体数成正比，而不是与智能体总数成正比。
+ * 支持并行tick中多个智能体同时移动和查询
+ */
+@Slf4j
+public class AgentSpatialIndex {
+
+    @Getter
+    private volatile double cellSize;
+    @Getter
+    private volatile double perceptionRadius;
+
+    private final Map<Long, Set<Agent>> cells = new ConcurrentHashMap<>();
+    private final Map<String, Long> agentCells = new ConcurrentHashMap<>();
+    private final LongAdder queryCount = new LongAdder();
+    private final LongAdder queryNanos = new LongAdder();
+
+    public AgentSpatialIndex(double cellSize, double perceptionRadius) {
+        if (cellSize <= 0) {
+            throw new IllegalArgumentException("Cell size must be positive: " + cellSize);
+        }
+        this.cellSize = cellSize;
+        this.perceptionRadius = perceptionRadius;
+    }
+
+    /**
+     * 插入智能体或在其移动后更新所在网格
+     */
+    public void update(Agent agent) {
+        Position position = agent.getPosition();
+        if (position == null) {
+            remove(agent);
+            return;
+        }
+        long newKey = GridCells.cellKey(position.getX(), position.getY(), cellSize);
+        // 同一智能体的更新在compute中串行执行，保证它只出现在一个网格中
+        agentCells.compute(agent.getId(), (id, oldKey) -> {
+            if (oldKey != null && oldKey == newKey) {
+                return oldKey;
+            }
+            if (oldKey != null) {
+                removeFromCell(oldKey, agent);
+            }
+            // 在compute中加入，避免网格被最后一个离开的智能体移除后加入到已脱离映射的集合中
+            cells.compute(newKey, (key, members) -> {
+                Set<Agent> cell = members != null ? members : ConcurrentHashMap.newKeySet();
+                cell.add(agent);
+                return cell;
+            });
+            return newKey;
+        });
+    }
+
+    /**
+     * 移除智能体
+     */
+    public void remove(Agent agent) {
+        agentCells.computeIfPresent(agent.getId(), (id, oldKey) -> {
+            removeFromCell(oldKey, agent);
+            return null;
+        });
+    }
+
+    private void removeFromCell(long key, Agent agent) {
+        cells.computeIfPresent(key, (k, members) -> {
+            members.remove(agent);
+            return members.isEmpty() ? null : members;
+        });
+    }
+
+    /**
+     * 遍历距离(x, y)不超过radius的智能体
+     */
+    public void forEachNearby(double x, double y, double radius, Consumer<Agent> consumer) {
+        double radiusSquared = radius * radius;
+        int minX = GridCells.cellCoord(x - radius, cellSize);
+        int maxX = GridCells.cellCoord(x + radius, cellSize);
+        int minY = GridCells.cellCoord(y - radius, cellSize);
+        int maxY = GridCells.cellCoord(y + radius, cellSize);
+
+        for (int cellX = minX; cellX <= maxX; cellX++) {
+            for (int cellY = minY; cellY <= maxY; cellY++) {
+                Set<Agent> members = cells.get(GridCells.cellKey(cellX, cellY));
+                if (members == null) {
+                    continue;
+                }
+                for (Agent agent : members) {
+                    Position position = agent.getPosition();
+                    double dx = position.getX() - x;
+                    double dy = position.getY() - y;
+                    if (dx * dx + dy * dy <= radiusSquared) {
+                        consumer.accept(agent);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 查询距离(x, y)不超过radius的智能体
+     */
+    public List<Agent> query(double x, double y, double radius) {
+        long start = System.nanoTime();
+        List<Agent> result = new ArrayList<>();
+        forEachNearby(x, y, radius, result::add);
+        queryNanos.add(System.nanoTime() - start);
+        queryCount.increment();
+        return result;
+    }
+
+    /**
+     * 统计感知半径内除自己以外的智能体数量
+     */
+    public int countNeighbors(Agent agent) {
+        Position position = agent.getPosition();
+        if (position == null) {
+            return 0;
+        }
+        int[] count = new int[1];
+        forEachNearby(position.getX(), position.getY(), perceptionRadius, other -> {
+            if (other != agent) {
+                count[0]++;
+            }
+        });
+        return count[0];
+    }
+
+    /**
+     * 修改网格大小，按新网格重建索引
+     */
+    public synchronized void setCellSize(double cellSize) {
+        if (cellSize <= 0) {
+            throw new IllegalArgumentException("Cell size must be positive: " + cellSize);
+        }
+        if (cellSize == this.cellSize) {
+            return;
+        }
+        List<Agent> indexed = new ArrayList<>();
+        cells.values().forEach(indexed::addAll);
+        cells.clear();
+        agentCells.clear();
+        this.cellSize = cellSize;
+        indexed.forEach(this::update);
+        log.info("Agent spatial index rebuilt with cell size {}", cellSize);
+    }
+
+    /**
+     * 修改感知半径
+     */
+    public void setPerceptionRadius(double perceptionRadius) {
+        this.perceptionRadius = perceptionRadius;
+    }
+
+    /**
+     * 已索引的智能体数
+     */
+    public int size() {
+        return agentCells.size();
+    }
+
+    /**
+     * 邻近查询次数（不含邻居计数）
+     */
+    public long getQueryCount() {
+        return queryCount.sum();
+    }
+
+    /**
+     * 邻近查询累计耗时（纳秒）
+     */
+    public long getQueryNanos() {
+        return queryNanos.sum();
+    }
+
+    /**
+     * 获取索引统计信息
+     */
+    public Map<String, Object> getStatistics() {
+        int maxOccupancy = 0;
+        for (Set<Agent> members : cells.values()) {
+            maxOccupancy = Math.max(maxOccupancy, members.size());
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("cellSize", cellSize);
+        stats.put("perceptionRadius", perceptionRadius);
+        stats.put("agents", size());
+        stats.put("occupiedCells", cells.size());
+        stats.put("maxCellOccupancy", maxOccupancy);
+        long queries = queryCount.sum();
+        stats.put("queries", queries);
+        stats.put("meanQueryMicros", queries > 0 ? queryNanos.sum() / 1_000.0 / queries : 0.0);
+        return stats;
+    }
+}
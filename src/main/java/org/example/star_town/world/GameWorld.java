@@ -1,14 +1,22 @@
 package org.example.star_town.world;
 
+import jakarta.annotation.PreDestroy;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import org.example.star_town.agent.Agent;
 import org.example.star_town.agent.AgentManager;
+import org.example.star_town.agent.NeedsStore;
 import org.example.star_town.model.WorldObjectEntity;
+import org.example.star_town.monitoring.TickPhase;
 import org.example.star_town.service.GameEventService;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -27,14 +35,50 @@ public class GameWorld {
     
     private double worldWidth = 1000.0;
     private double worldHeight = 1000.0;
-    private long gameTime = 0; // 游戏时间（游戏tick数）
-    private boolean paused = false;
+    private volatile long gameTime = 0; // 游戏时间（游戏tick数）
+    private volatile boolean paused = false;
+    
+    // 模拟循环配置
+    @Value("${star-town.game.tick-rate:1000}")
+    private long tickRate = 1000; // 每个tick的毫秒数
+    @Value("${star-town.game.max-catch-up-ticks:3}")
+    private int maxCatchUpTicks = 3;
+    @Value("${star-town.game.overrun-policy:SKIP}")
+    private SimulationLoop.OverrunPolicy overrunPolicy = SimulationLoop.OverrunPolicy.SKIP;
+    
+    // 需求衰减配置：每隔若干tick饥饿度上升、精力下降，间隔为0时关闭
+    @Value("${star-town.needs.decay-interval-ticks:60}")
+    private int needDecayIntervalTicks = 60;
+    @Value("${star-town.needs.hunger-increase:1}")
+    private int hungerIncrease = 1;
+    @Value("${star-town.needs.energy-decrease:1}")
+    private int energyDecrease = 1;
+    
+    // 快照配置：启动恢复和关闭保存默认都不开启
+    @Value("${star-town.snapshot.path:data/world.snapshot}")
+    private String snapshotPath = "data/world.snapshot";
+    @Value("${star-town.snapshot.restore-on-startup:false}")
+    private boolean restoreSnapshotOnStartup = false;
+    @Value("${star-town.snapshot.save-on-shutdown:false}")
+    private boolean saveSnapshotOnShutdown = false;
+    
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private final Object tickLock = new Object();
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private SimulationLoop simulationLoop;
     
     // 世界对象映射
     private final Map<Long, WorldObjectEntity> worldObjects = new ConcurrentHashMap<>();
     
     // 位置索引（用于快速查找附近对象）
-    private final Map<String, List<Long>> spatialIndex = new ConcurrentHashMap<>();
+    @Setter(AccessLevel.NONE)
+    private final WorldObjectIndex objectIndex = new WorldObjectIndex(100);
+    
+    // 关注区域与智能体细节层次
+    @Setter(AccessLevel.NONE)
+    private final LevelOfDetailManager levelOfDetail = new LevelOfDetailManager();
     
     public GameWorld(AgentManager agentManager, GameEventService gameEventService) {
         this.agentManager = agentManager;
@@ -42,26 +86,178 @@ public class GameWorld {
     }
     
     /**
-     * 更新游戏世界
+     * 设置重新划分细节层次的间隔（tick数）
      */
-    public void update() {
-        if (paused) {
+    @Value("${star-town.lod.refresh-interval-ticks:5}")
+    public void setLodRefreshIntervalTicks(int refreshIntervalTicks) {
+        levelOfDetail.setRefreshIntervalTicks(refreshIntervalTicks);
+    }
+    
+    /**
+     * 设置低细节模拟中需求值趋向稳态的半衰期（秒）
+     */
+    @Value("${star-town.lod.needs-half-life-seconds:600}")
+    public void setLodNeedsHalfLifeSeconds(long halfLifeSeconds) {
+        levelOfDetail.getNeedsModel().setHalfLifeMillis(halfLifeSeconds * 1000);
+    }
+    
+    /**
+     * 启动固定步长模拟循环
+     * 这是驱动智能体更新的唯一入口
+     */
+    public synchronized void start() {
+        if (simulationLoop != null && simulationLoop.isRunning()) {
+            log.warn("Game world is already running");
             return;
         }
         
-        gameTime++;
+        agentManager.setUpdateInterval(tickRate);
+        agentManager.start();
+        simulationLoop = new SimulationLoop(this::advance, tickRate, maxCatchUpTicks, overrunPolicy);
+        simulationLoop.start();
+        log.info("Game world started, tick rate {} ms", tickRate);
+    }
+    
+    /**
+     * 停止模拟循环
+     */
+    @PreDestroy
+    public synchronized void stop() {
+        boolean wasRunning = simulationLoop != null;
+        if (simulationLoop != null) {
+            simulationLoop.stop();
+            simulationLoop = null;
+        }
+        agentManager.stop();
         
-        // 更新所有智能体
-        agentManager.updateAllAgents();
+        if (wasRunning && saveSnapshotOnShutdown) {
+            try {
+                saveSnapshot();
+            } catch (IOException e) {
+                log.error("Failed to save world snapshot on shutdown: {}", e.getMessage(), e);
+            }
+        }
+    }
+    
+    /**
+     * 保存世界快照到配置的路径
+     * 写入期间持有tick锁，快照反映两个tick之间的一致状态
+     * @return 快照信息
+     */
+    public Map<String, Object> saveSnapshot() throws IOException {
+        Path file = Path.of(snapshotPath);
+        long start = System.nanoTime();
+        long bytes;
+        int agentCount;
+        synchronized (tickLock) {
+            List<Agent> agents = agentManager.getAllAgents();
+            agentCount = agents.size();
+            bytes = WorldSnapshot.write(file, gameTime, agents, new ArrayList<>(worldObjects.values()));
+        }
+        double elapsedMillis = (System.nanoTime() - start) / 1_000_000.0;
+        log.info("Saved world snapshot to {}: {} agents, {} bytes in {} ms",
+                file, agentCount, bytes, String.format("%.1f", elapsedMillis));
         
-        // 处理空间索引更新
-        updateSpatialIndex();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("path", file.toAbsolutePath().toString());
+        result.put("agentCount", agentCount);
+        result.put("objectCount", worldObjects.size());
+        result.put("bytes", bytes);
+        result.put("elapsedMillis", elapsedMillis);
+        return result;
+    }
+    
+    /**
+     * 从配置的路径恢复世界快照，替换当前的智能体、世界对象和游戏时间
+     * @return 快照信息
+     */
+    public Map<String, Object> restoreSnapshot() throws IOException {
+        Path file = Path.of(snapshotPath);
+        long start = System.nanoTime();
+        WorldSnapshot snapshot = WorldSnapshot.read(file);
+        synchronized (tickLock) {
+            agentManager.removeAllAgents();
+            for (Long objectId : new ArrayList<>(worldObjects.keySet())) {
+                worldObjects.remove(objectId);
+                objectIndex.remove(objectId);
+            }
+            for (WorldObjectEntity object : snapshot.getWorldObjects()) {
+                worldObjects.put(object.getId(), object);
+                objectIndex.update(object);
+            }
+            snapshot.getAgents().forEach(agentManager::registerAgent);
+            gameTime = snapshot.getGameTime();
+        }
+        double elapsedMillis = (System.nanoTime() - start) / 1_000_000.0;
+        log.info("Restored world snapshot from {}: {} agents, {} objects, game time {} in {} ms",
+                file, snapshot.getAgents().size(), snapshot.getWorldObjects().size(), gameTime,
+                String.format("%.1f", elapsedMillis));
         
-        // 处理碰撞检测
-        handleCollisions();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("path", file.toAbsolutePath().toString());
+        result.put("agentCount", snapshot.getAgents().size());
+        result.put("objectCount", snapshot.getWorldObjects().size());
+        result.put("gameTime", gameTime);
+        result.put("elapsedMillis", elapsedMillis);
+        return result;
+    }
+    
+    /**
+     * 启动时恢复快照：未启用或快照不存在时返回false
+     */
+    public boolean restoreSnapshotOnStartup() {
+        if (!restoreSnapshotOnStartup || !Files.exists(Path.of(snapshotPath))) {
+            return false;
+        }
+        try {
+            restoreSnapshot();
+            return true;
+        } catch (IOException | RuntimeException e) {
+            log.error("Failed to restore world snapshot from {}: {}", snapshotPath, e.getMessage(), e);
+            return false;
+        }
+    }
+    
+    /**
+     * 更新游戏世界（手动推进一步）
+     */
+    public void update() {
+        advance(1);
+    }
+    
+    /**
+     * 推进游戏世界
+     * 按顺序执行智能体、空间索引、碰撞和交互阶段；与模拟循环共用同一把锁，不会并发执行
+     * @param steps 推进的游戏时间步数（合并tick时大于1）。游戏时间和调度器时间轮推进steps步，
+     *              各阶段只执行一次，其间到期的智能体各更新一次；动作进度按真实时间计算。
+     *              合并的步数记录在循环统计的coalescedTicks中
+     */
+    private void advance(long steps) {
+        if (paused) {
+            return;
+        }
         
-        // 处理交互
-        handleInteractions();
+        synchronized (tickLock) {
+            gameTime += steps;
+            
+            // 更新所有智能体
+            agentManager.updateAllAgents(steps);
+            
+            // 需求随游戏时间衰减
+            decayNeeds(steps);
+            
+            // 按关注区域切换智能体的细节层次
+            levelOfDetail.refresh(agentManager.getAgents().values(), gameTime, tickRate);
+            
+            // 处理空间索引更新
+            updateSpatialIndex();
+            
+            // 处理碰撞检测
+            handleCollisions();
+            
+            // 处理交互
+            handleInteractions();
+        }
         
         log.debug("Game world updated, time: {}", gameTime);
     }
@@ -71,9 +267,9 @@ public class GameWorld {
      */
     public void addWorldObject(WorldObjectEntity object) {
         worldObjects.put(object.getId(), object);
-        updateObjectInSpatialIndex(object);
+        objectIndex.update(object);
         
-        gameEventService.recordEvent("OBJECT_CREATED", 
+        gameEventService.publishEvent("OBJECT_CREATED", 
                 "World object created: " + object.getName(), 
                 Map.of("objectId", object.getId(), "type", object.getType()));
         
@@ -87,9 +283,9 @@ public class GameWorld {
     public void removeWorldObject(Long objectId) {
         WorldObjectEntity object = worldObjects.remove(objectId);
         if (object != null) {
-            removeObjectFromSpatialIndex(object);
+            objectIndex.remove(objectId);
             
-            gameEventService.recordEvent("OBJECT_REMOVED", 
+            gameEventService.publishEvent("OBJECT_REMOVED", 
                     "World object removed: " + object.getName(), 
                     Map.of("objectId", objectId, "type", object.getType()));
             
@@ -105,37 +301,27 @@ public class GameWorld {
     }
     
     /**
-     * 获取附近的世界对象
+     * 更新世界对象：位置或尺寸变化后重新登记到空间索引
      */
-    public List<WorldObjectEntity> getNearbyObjects(double x, double y, double radius) {
-        List<WorldObjectEntity> nearby = new ArrayList<>();
-        
-        // 使用空间索引快速查找
-        String key = getSpatialKey(x, y);
-        List<String> nearbyKeys = getNearbySpatialKeys(x, y, radius);
-        
-        for (String spatialKey : nearbyKeys) {
-            List<Long> objectIds = spatialIndex.get(spatialKey);
-            if (objectIds != null) {
-                for (Long objectId : objectIds) {
-                    WorldObjectEntity object = worldObjects.get(objectId);
-                    if (object != null && isWithinRadius(object, x, y, radius)) {
-                        nearby.add(object);
-                    }
-                }
-            }
+    public void updateWorldObject(WorldObjectEntity object) {
+        if (worldObjects.containsKey(object.getId())) {
+            worldObjects.put(object.getId(), object);
+            objectIndex.update(object);
         }
-        
-        return nearby;
+    }
+    
+    /**
+     * 获取附近的世界对象（包围盒与查询圆相交）
+     */
+    public List<WorldObjectEntity> getNearbyObjects(double x, double y, double radius) {
+        return objectIndex.query(x, y, radius);
     }
     
     /**
      * 获取附近的智能体
      */
     public List<Agent> getNearbyAgents(double x, double y, double radius) {
-        return agentManager.getAllAgents().stream()
-                .filter(agent -> agent.getPosition().distanceTo(new Position(x, y)) <= radius)
-                .toList();
+        return agentManager.getSpatialIndex().query(x, y, radius);
     }
     
     /**
@@ -169,12 +355,13 @@ public class GameWorld {
     public boolean moveAgent(Agent agent, Position targetPosition) {
         // 检查目标位置是否可用
         if (isPositionAvailable(targetPosition.getX(), targetPosition.getY(), 1, 1)) {
-            agent.setPosition(targetPosition);
+            Position fromPosition = agent.getPosition();
+            agent.setPosition(targetPosition); // 同时更新空间索引
             
-            gameEventService.recordAgentEvent("AGENT_MOVED", agent.getId(),
+            gameEventService.publishAgentEvent("AGENT_MOVED", agent.getId(),
                     "Agent moved to " + targetPosition,
-                    Map.of("fromX", agent.getPosition().getX(), 
-                           "fromY", agent.getPosition().getY(),
+                    Map.of("fromX", fromPosition.getX(), 
+                           "fromY", fromPosition.getY(),
                            "toX", targetPosition.getX(), 
                            "toY", targetPosition.getY()));
             
@@ -189,7 +376,7 @@ public class GameWorld {
      */
     public void setPaused(boolean paused) {
         this.paused = paused;
-        gameEventService.recordEvent("GAME_PAUSED", 
+        gameEventService.publishEvent("GAME_PAUSED", 
                 "Game " + (paused ? "paused" : "resumed"), 
                 Map.of("paused", paused, "gameTime", gameTime));
         
@@ -207,79 +394,51 @@ public class GameWorld {
         stats.put("agentCount", agentManager.getAgentCount());
         stats.put("paused", paused);
         stats.put("agentStatusStats", agentManager.getStatusStatistics());
+        stats.put("agentSpatialIndex", agentManager.getSpatialIndex().getStatistics());
+        stats.put("objectSpatialIndex", objectIndex.getStatistics());
+        stats.put("tickStats", agentManager.getTickStatistics());
+        stats.put("levelOfDetail", levelOfDetail.getStatistics());
+        SimulationLoop loop = simulationLoop;
+        if (loop != null) {
+            stats.put("loopStats", loop.getStatistics());
+        }
         
         return stats;
     }
     
     /**
-     * 更新空间索引
+     * 按列批量衰减需求，合并的tick跨过几个间隔就衰减几次
+     * 在智能体更新之后执行，此时tick线程都已结束，不会与智能体自己的写入重叠；
+     * tick之外的写入（如接口修改状态）由需求存储逐槽位的比较并交换保证不丢失。
+     * 低细节模拟的智能体同样衰减，恢复完整模拟时由统计模型的推算值覆盖
      */
-    private void updateSpatialIndex() {
-        // 这里可以实现增量更新逻辑
-        // 为了简化，我们重新构建整个索引
-        spatialIndex.clear();
-        for (WorldObjectEntity object : worldObjects.values()) {
-            updateObjectInSpatialIndex(object);
+    private void decayNeeds(long steps) {
+        if (needDecayIntervalTicks <= 0) {
+            return;
         }
-    }
-    
-    /**
-     * 将对象添加到空间索引
-     */
-    private void updateObjectInSpatialIndex(WorldObjectEntity object) {
-        String key = getSpatialKey(object.getPositionX(), object.getPositionY());
-        spatialIndex.computeIfAbsent(key, k -> new ArrayList<>()).add(object.getId());
-    }
-    
-    /**
-     * 从空间索引移除对象
-     */
-    private void removeObjectFromSpatialIndex(WorldObjectEntity object) {
-        String key = getSpatialKey(object.getPositionX(), object.getPositionY());
-        List<Long> objects = spatialIndex.get(key);
-        if (objects != null) {
-            objects.remove(object.getId());
-            if (objects.isEmpty()) {
-                spatialIndex.remove(key);
-            }
+        long intervals = gameTime / needDecayIntervalTicks - (gameTime - steps) / needDecayIntervalTicks;
+        if (intervals <= 0) {
+            return;
         }
+        long start = System.nanoTime();
+        int times = (int) Math.min(intervals, 100); // 需求取值范围为0..100，更多次数没有区别
+        NeedsStore needs = agentManager.getNeedsStore();
+        int changed = needs.addClamped(NeedsStore.Need.HUNGER, hungerIncrease * times, 0, 100)
+                + needs.addClamped(NeedsStore.Need.ENERGY, -energyDecrease * times, 0, 100);
+        agentManager.getProfiler().record(TickPhase.NEED_DECAY, System.nanoTime() - start);
+        log.debug("Decayed needs {} times, {} values changed", times, changed);
     }
     
     /**
-     * 获取空间索引键
-     */
-    private String getSpatialKey(double x, double y) {
-        // 使用网格划分空间，每个网格大小为100x100
-        int gridX = (int) (x / 100);
-        int gridY = (int) (y / 100);
-        return gridX + "," + gridY;
-    }
-    
-    /**
-     * 获取附近的空间索引键
+     * 同步空间索引，只重新登记位置或尺寸发生变化的对象
      */
-    private List<String> getNearbySpatialKeys(double x, double y, double radius) {
-        List<String> keys = new ArrayList<>();
-        int gridRadius = (int) Math.ceil(radius / 100) + 1;
-        
-        int centerX = (int) (x / 100);
-        int centerY = (int) (y / 100);
-        
-        for (int dx = -gridRadius; dx <= gridRadius; dx++) {
-            for (int dy = -gridRadius; dy <= gridRadius; dy++) {
-                keys.add((centerX + dx) + "," + (centerY + dy));
-            }
+    private void updateSpatialIndex() {
+        long start = System.nanoTime();
+        int reindexed = objectIndex.refresh(worldObjects.values());
+        agentManager.getProfiler().record(TickPhase.SPATIAL_INDEX, System.nanoTime() - start);
+        if (reindexed > 0) {
+            log.debug("Reindexed {} moved world objects", reindexed);
         }
-        
-        return keys;
-    }
-    
-    /**
-     * 检查是否在半径内
-     */
-    private boolean isWithinRadius(WorldObjectEntity object, double x, double y, double radius) {
-        double distance = Math.sqrt(Math.pow(object.getPositionX() - x, 2) + Math.pow(object.getPositionY() - y, 2));
-        return distance <= radius;
     }
     
     /**
@@ -0,0 +1,46 @@
+package org.example.star_town.world;
+
+/**
+ * 网格单元工具
+ * 将二维网格坐标打包为一个long键，替代"x,y"字符串键，避免拼接字符串和哈希字符串
+ */
+public final class GridCells {
+
+    private GridCells() {
+    }
+
+    /**
+     * 世界坐标所在的网格坐标
+     */
+    public static int cellCoord(double value, double cellSize) {
+        return (int) Math.floor(value / cellSize);
+    }
+
+    /**
+     * 网格坐标打包为键：高32位为x，低32位为y
+     */
+    public static long cellKey(int cellX, int cellY) {
+        return ((long) cellX << 32) | (cellY & 0xFFFFFFFFL);
+    }
+
+    /**
+     * 世界坐标所在网格的键
+     */
+    public static long cellKey(double x, double y, double cellSize) {
+        return cellKey(cellCoord(x, cellSize), cellCoord(y, cellSize));
+    }
+
+    /**
+     * 从键中取出网格x坐标
+     */
+    public static int cellX(long key) {
+        return (int) (key >> 32);
+    }
+
+    /**
+     * 从键中取出网格y坐标
+     */
+    public static int cellY(long key) {
+        return (int) key;
+    }
+}
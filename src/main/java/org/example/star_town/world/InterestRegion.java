@@ -0,0 +1,26 @@
+package org.example.star_town.world;
+
+/**
+ * 关注区域
+ * 有观察者的圆形区域，区域内的智能体运行完整AI，区域外的智能体降为低细节模拟
+ */
+public record InterestRegion(String id, double x, double y, double radius) {
+
+    public InterestRegion {
+        if (id == null || id.isBlank()) {
+            throw new IllegalArgumentException("Interest region id must not be blank");
+        }
+        if (radius <= 0) {
+            throw new IllegalArgumentException("Interest region radius must be positive: " + radius);
+        }
+    }
+
+    /**
+     * 位置是否在区域内
+     */
+    public boolean contains(Position position) {
+        double dx = position.getX() - x;
+        double dy = position.getY() - y;
+        return dx * dx + dy * dy <= radius * radius;
+    }
+}
@@ -0,0 +1,157 @@
+package org.example.star_town.world;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.example.star_town.agent.Agent;
+import org.example.star_town.agent.NeedsStore;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 智能体细节层次管理
+ * 没有配置关注区域时所有智能体都运行完整AI；配置后，不在任何关注区域内的智能体切换为低细节模拟，
+ * 跳过行为树、GOAP和黑板更新，需求值由{@link StatisticalNeedsModel}在恢复时按离开的游戏时长一次性推算。
+ * 每隔若干tick在两个tick之间重新划分一次，区域变化后的下一个tick立即重新划分
+ */
+@Slf4j
+public class LevelOfDetailManager {
+
+    private final Map<String, InterestRegion> regions = new ConcurrentHashMap<>();
+    @Getter
+    private final StatisticalNeedsModel needsModel = new StatisticalNeedsModel();
+
+    @Getter
+    private int refreshIntervalTicks = 5;
+    private volatile boolean regionsChanged;
+    private long lastRefreshTime = Long.MIN_VALUE / 2; // 减法不溢出，第一次调用即划分
+
+    private volatile int lowDetailCount;
+    private volatile long demotedTotal;
+    private volatile long promotedTotal;
+
+    public void setRefreshIntervalTicks(int refreshIntervalTicks) {
+        this.refreshIntervalTicks = Math.max(1, refreshIntervalTicks);
+    }
+
+    /**
+     * 添加或替换关注区域
+     */
+    public void putRegion(InterestRegion region) {
+        regions.put(region.id(), region);
+        regionsChanged = true;
+        log.info("Interest region {} set to ({}, {}) radius {}", region.id(), region.x(), region.y(), region.radius());
+    }
+
+    /**
+     * 移除关注区域
+     * @return 被移除的区域，不存在时为null
+     */
+    public InterestRegion removeRegion(String regionId) {
+        InterestRegion removed = regions.remove(regionId);
+        if (removed != null) {
+            regionsChanged = true;
+            log.info("Interest region {} removed", regionId);
+        }
+        return removed;
+    }
+
+    /**
+     * 所有关注区域
+     */
+    public List<InterestRegion> getRegions() {
+        return new ArrayList<>(regions.values());
+    }
+
+    /**
+     * 是否启用细节层次：至少配置了一个关注区域
+     */
+    public boolean isEnabled() {
+        return !regions.isEmpty();
+    }
+
+    /**
+     * 按需重新划分智能体的细节层次，在两个tick之间由tick线程调用
+     * @param gameTime 当前游戏时间（tick数）
+     * @param tickMillis 每个tick代表的毫秒数
+     */
+    public void refresh(Collection<Agent> agents, long gameTime, long tickMillis) {
+        boolean changed = regionsChanged;
+        if (!changed && gameTime - lastRefreshTime < refreshIntervalTicks) {
+            return;
+        }
+        // 未启用且没有低细节智能体时无事可做
+        if (!changed && regions.isEmpty() && lowDetailCount == 0) {
+            lastRefreshTime = gameTime;
+            return;
+        }
+        regionsChanged = false;
+        lastRefreshTime = gameTime;
+
+        InterestRegion[] current = regions.values().toArray(new InterestRegion[0]);
+        int lowDetail = 0;
+        int demoted = 0;
+        int promoted = 0;
+        for (Agent agent : agents) {
+            boolean observed = current.length == 0 || isObserved(agent.getPosition(), current);
+            if (observed && agent.isLowDetail()) {
+                promote(agent, gameTime, tickMillis);
+                promoted++;
+            } else if (!observed) {
+                if (!agent.isLowDetail()) {
+                    agent.enterLowDetail(gameTime);
+                    demoted++;
+                }
+                lowDetail++;
+            }
+        }
+
+        lowDetailCount = lowDetail;
+        demotedTotal += demoted;
+        promotedTotal += promoted;
+        if (demoted > 0 || promoted > 0) {
+            log.debug("Level of detail refreshed: {} demoted, {} promoted, {} in low detail",
+                    demoted, promoted, lowDetail);
+        }
+    }
+
+    private static boolean isObserved(Position position, InterestRegion[] current) {
+        if (position == null) {
+            return false;
+        }
+        for (InterestRegion region : current) {
+            if (region.contains(position)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 恢复完整模拟：按离开的游戏时长推算需求值
+     */
+    private void promote(Agent agent, long gameTime, long tickMillis) {
+        long elapsedMillis = Math.max(0, gameTime - agent.getLowDetailSince()) * tickMillis;
+        agent.exitLowDetail(needsModel.projectNeeds(agent.getNeed(NeedsStore.Need.HUNGER),
+                agent.getNeed(NeedsStore.Need.ENERGY), elapsedMillis));
+    }
+
+    /**
+     * 获取细节层次统计信息
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", isEnabled());
+        stats.put("regions", regions.size());
+        stats.put("refreshIntervalTicks", refreshIntervalTicks);
+        stats.put("lowDetailAgents", lowDetailCount);
+        stats.put("demotedTotal", demotedTotal);
+        stats.put("promotedTotal", promotedTotal);
+        stats.put("needsHalfLifeMillis", needsModel.getHalfLifeMillis());
+        return stats;
+    }
+}
@@ -0,0 +1,193 @@
+package org.example.star_town.world;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongConsumer;
+import java.util.function.LongSupplier;
+
+/**
+ * 固定步长模拟循环
+ * 在专用线程上按固定时间步长驱动tick；落后时最多追赶若干步，
+ * 超出部分按策略丢弃或合并，避免tick无限堆积
+ */
+@Slf4j
+public class SimulationLoop implements Runnable {
+
+    /**
+     * 落后过多时的处理策略
+     */
+    public enum OverrunPolicy {
+        SKIP,     // 丢弃多余的tick，游戏时间随之变慢
+        // 将多余的tick合并为一次执行：游戏时间和调度器时间轮按合并的步数推进，
+        // 其间到期的智能体只更新一次，不按步数重复执行；动作时长按真实时间计算
+        COALESCE
+    }
+
+    private final LongConsumer tick;
+    private final LongSupplier clock; // 纳秒时钟，测试中可替换
+    @Getter
+    private final long stepNanos;
+    @Getter
+    private final int maxCatchUpTicks;
+    @Getter
+    private final OverrunPolicy overrunPolicy;
+
+    private volatile boolean running = false;
+    private Thread thread;
+
+    // 统计信息
+    private final AtomicLong executedTicks = new AtomicLong();
+    private final AtomicLong droppedTicks = new AtomicLong(); // SKIP策略丢弃的步数
+    private final AtomicLong coalescedTicks = new AtomicLong(); // COALESCE策略合并进其他tick的步数
+    private final AtomicLong overrunTicks = new AtomicLong();
+    private volatile long lastTickNanos;
+    private volatile long maxTickNanos;
+    private volatile long lastLagNanos;
+    private volatile long maxLagNanos;
+
+    /**
+     * @param tick 每步回调，参数为本次推进的步数（COALESCE策略下可能大于1）
+     */
+    public SimulationLoop(LongConsumer tick, long stepMillis, int maxCatchUpTicks, OverrunPolicy overrunPolicy) {
+        this(tick, stepMillis, maxCatchUpTicks, overrunPolicy, System::nanoTime);
+    }
+
+    /**
+     * @param clock 纳秒时钟
+     */
+    public SimulationLoop(LongConsumer tick, long stepMillis, int maxCatchUpTicks, OverrunPolicy overrunPolicy,
+                          LongSupplier clock) {
+        this.tick = tick;
+        this.clock = clock;
+        this.stepNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, stepMillis));
+        this.maxCatchUpTicks = Math.max(0, maxCatchUpTicks);
+        this.overrunPolicy = overrunPolicy;
+    }
+
+    /**
+     * 启动循环线程
+     */
+    public synchronized void start() {
+        if (running) {
+            log.warn("Simulation loop is already running");
+            return;
+        }
+        running = true;
+        thread = new Thread(this, "game-loop");
+        thread.setDaemon(true);
+        thread.start();
+        log.info("Simulation loop started with step {} ms", TimeUnit.NANOSECONDS.toMillis(stepNanos));
+    }
+
+    /**
+     * 停止循环线程并等待当前tick结束
+     */
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(thread);
+        try {
+            thread.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        thread = null;
+        log.info("Simulation loop stopped");
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public void run() {
+        long nextTick = clock.getAsLong();
+
+        while (running) {
+            long wait = nextTick - clock.getAsLong();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+                continue;
+            }
+            nextTick = runDue(nextTick);
+        }
+    }
+
+    /**
+     * 执行一次到期的tick
+     * @param nextTick 本次tick的计划时间
+     * @return 下一次tick的计划时间；尚未到期时原样返回
+     */
+    long runDue(long nextTick) {
+        long lag = clock.getAsLong() - nextTick;
+        if (lag < 0) {
+            return nextTick;
+        }
+
+        // 落后超过允许追赶的步数时，丢弃或合并多余的步
+        long steps = 1;
+        long behind = lag / stepNanos;
+        if (behind > maxCatchUpTicks) {
+            long excess = behind - maxCatchUpTicks;
+            nextTick += excess * stepNanos;
+            lag -= excess * stepNanos;
+            if (overrunPolicy == OverrunPolicy.COALESCE) {
+                steps += excess;
+                coalescedTicks.addAndGet(excess);
+            } else {
+                droppedTicks.addAndGet(excess);
+            }
+        }
+
+        lastLagNanos = lag;
+        if (lag > maxLagNanos) {
+            maxLagNanos = lag;
+        }
+
+        long start = clock.getAsLong();
+        try {
+            tick.accept(steps);
+        } catch (Exception e) {
+            log.error("Error running simulation tick: {}", e.getMessage(), e);
+        }
+        long elapsed = clock.getAsLong() - start;
+
+        executedTicks.incrementAndGet();
+        lastTickNanos = elapsed;
+        if (elapsed > maxTickNanos) {
+            maxTickNanos = elapsed;
+        }
+        if (elapsed > stepNanos) {
+            overrunTicks.incrementAndGet();
+        }
+
+        return nextTick + stepNanos;
+    }
+
+    /**
+     * 获取循环统计信息
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("running", running);
+        stats.put("stepMillis", TimeUnit.NANOSECONDS.toMillis(stepNanos));
+        stats.put("overrunPolicy", overrunPolicy);
+        stats.put("executedTicks", executedTicks.get());
+        stats.put("droppedTicks", droppedTicks.get());
+        stats.put("coalescedTicks", coalescedTicks.get());
+        stats.put("overrunTicks", overrunTicks.get());
+        stats.put("lastTickMillis", lastTickNanos / 1_000_000.0);
+        stats.put("maxTickMillis", maxTickNanos / 1_000_000.0);
+        stats.put("lastLagMillis", lastLagNanos / 1_000_000.0);
+        stats.put("maxLagMillis", maxLagNanos / 1_000_000.0);
+        return stats;
+    }
+}
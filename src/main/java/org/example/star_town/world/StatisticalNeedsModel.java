@@ -0,0 +1,60 @@
+package org.example.star_town.world;
+
+import lombok.Getter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 统计需求模型
+ * 低细节模拟中的智能体不再逐tick决策，需求值按平均行为趋向稳态：
+ * v(t) = 稳态值 + (v0 - 稳态值) * 2^(-t / 半衰期)。
+ * 闭式求值，不论离开多久都只需在恢复完整模拟时计算一次
+ */
+@Getter
+public class StatisticalNeedsModel {
+
+    private long halfLifeMillis = 600_000;
+    private int hungerEquilibrium = 45;
+    private int energyEquilibrium = 60;
+
+    public void setHalfLifeMillis(long halfLifeMillis) {
+        this.halfLifeMillis = Math.max(1, halfLifeMillis);
+    }
+
+    public void setHungerEquilibrium(int hungerEquilibrium) {
+        this.hungerEquilibrium = clamp(hungerEquilibrium);
+    }
+
+    public void setEnergyEquilibrium(int energyEquilibrium) {
+        this.energyEquilibrium = clamp(energyEquilibrium);
+    }
+
+    /**
+     * 推算经过elapsedMillis后的需求值
+     */
+    public int project(int value, int equilibrium, long elapsedMillis) {
+        if (elapsedMillis <= 0) {
+            return value;
+        }
+        double remaining = Math.pow(0.5, (double) elapsedMillis / halfLifeMillis);
+        return clamp((int) Math.round(equilibrium + (value - equilibrium) * remaining));
+    }
+
+    /**
+     * 推算饥饿度和精力
+     * @param hunger 进入低细节模拟时的饥饿度
+     * @param energy 进入低细节模拟时的精力
+     * @return 状态键到推算值的映射
+     */
+    public Map<String, Integer> projectNeeds(int hunger, int energy, long elapsedMillis) {
+        Map<String, Integer> needs = new LinkedHashMap<>();
+        needs.put("hunger", project(hunger, hungerEquilibrium, elapsedMillis));
+        needs.put("energy", project(energy, energyEquilibrium, elapsedMillis));
+        return needs;
+    }
+
+    private static int clamp(int value) {
+        return Math.max(0, Math.min(100, value));
+    }
+}
@@ -0,0 +1,298 @@
+package org.example.star_town.world;
+
+import org.example.star_town.model.WorldObjectEntity;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 世界对象空间索引
+ * 对象按包围盒登记到其覆盖的所有网格中，每个网格用long数组保存对象id。
+ * 索引记录每个对象上次登记时的位置和尺寸，只有位置或尺寸变化时才重新登记，
+ * 因此每个tick的同步只是逐个比较坐标，不再清空重建。
+ * 查询并发执行，修改互斥
+ */
+public class WorldObjectIndex {
+
+    private static final int INITIAL_CELL_CAPACITY = 4;
+
+    private final double cellSize;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, long[]> cells = new HashMap<>(); // 下标0保存数量，其后为对象id
+    private final Map<Long, Entry> entries = new HashMap<>();
+    private long reindexCount;
+    private final LongAdder queryCount = new LongAdder();
+    private final LongAdder queryNanos = new LongAdder();
+
+    public WorldObjectIndex(double cellSize) {
+        if (cellSize <= 0) {
+            throw new IllegalArgumentException("Cell size must be positive: " + cellSize);
+        }
+        this.cellSize = cellSize;
+    }
+
+    /**
+     * 登记对象，已登记的对象在位置或尺寸变化时重新登记
+     * @return 是否修改了索引
+     */
+    public boolean update(WorldObjectEntity object) {
+        lock.writeLock().lock();
+        try {
+            return updateLocked(object);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 同步一批对象，只重新登记位置或尺寸发生变化的对象
+     * @return 重新登记的对象数
+     */
+    public int refresh(Iterable<WorldObjectEntity> objects) {
+        // 先在读锁下找出变化的对象，大多数tick没有对象移动，无需获取写锁
+        List<WorldObjectEntity> changed = null;
+        lock.readLock().lock();
+        try {
+            for (WorldObjectEntity object : objects) {
+                Entry entry = entries.get(object.getId());
+                if (entry == null || !entry.matches(object)) {
+                    if (changed == null) {
+                        changed = new ArrayList<>();
+                    }
+                    changed.add(object);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (changed == null) {
+            return 0;
+        }
+
+        int reindexed = 0;
+        lock.writeLock().lock();
+        try {
+            for (WorldObjectEntity object : changed) {
+                if (updateLocked(object)) {
+                    reindexed++;
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return reindexed;
+    }
+
+    private boolean updateLocked(WorldObjectEntity object) {
+        Entry entry = entries.get(object.getId());
+        if (entry != null) {
+            if (entry.matches(object)) {
+                return false;
+            }
+            unlink(entry);
+        }
+        entry = new Entry(object, cellSize);
+        entries.put(object.getId(), entry);
+        link(entry);
+        reindexCount++;
+        return true;
+    }
+
+    /**
+     * 移除对象
+     */
+    public void remove(Long objectId) {
+        lock.writeLock().lock();
+        try {
+            Entry entry = entries.remove(objectId);
+            if (entry != null) {
+                unlink(entry);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void link(Entry entry) {
+        for (int cellX = entry.minCellX; cellX <= entry.maxCellX; cellX++) {
+            for (int cellY = entry.minCellY; cellY <= entry.maxCellY; cellY++) {
+                long key = GridCells.cellKey(cellX, cellY);
+                long[] cell = cells.get(key);
+                if (cell == null) {
+                    cell = new long[INITIAL_CELL_CAPACITY + 1];
+                } else if (cell[0] + 1 == cell.length) {
+                    cell = Arrays.copyOf(cell, cell.length * 2 - 1);
+                }
+                cell[(int) ++cell[0]] = entry.id;
+                cells.put(key, cell);
+            }
+        }
+    }
+
+    private void unlink(Entry entry) {
+        for (int cellX = entry.minCellX; cellX <= entry.maxCellX; cellX++) {
+            for (int cellY = entry.minCellY; cellY <= entry.maxCellY; cellY++) {
+                long key = GridCells.cellKey(cellX, cellY);
+                long[] cell = cells.get(key);
+                if (cell == null) {
+                    continue;
+                }
+                int size = (int) cell[0];
+                for (int i = 1; i <= size; i++) {
+                    if (cell[i] == entry.id) {
+                        // 用最后一个元素填补空位，不移动其余元素
+                        cell[i] = cell[size];
+                        cell[0] = --size;
+                        break;
+                    }
+                }
+                if (size == 0) {
+                    cells.remove(key);
+                }
+            }
+        }
+    }
+
+    /**
+     * 查询包围盒与以(x, y)为圆心、radius为半径的圆相交的对象，每个对象只返回一次
+     */
+    public List<WorldObjectEntity> query(double x, double y, double radius) {
+        long start = System.nanoTime();
+        List<WorldObjectEntity> result = new ArrayList<>();
+        int minX = GridCells.cellCoord(x - radius, cellSize);
+        int maxX = GridCells.cellCoord(x + radius, cellSize);
+        int minY = GridCells.cellCoord(y - radius, cellSize);
+        int maxY = GridCells.cellCoord(y + radius, cellSize);
+        double radiusSquared = radius * radius;
+
+        lock.readLock().lock();
+        try {
+            for (int cellX = minX; cellX <= maxX; cellX++) {
+                for (int cellY = minY; cellY <= maxY; cellY++) {
+                    long[] cell = cells.get(GridCells.cellKey(cellX, cellY));
+                    if (cell == null) {
+                        continue;
+                    }
+                    int size = (int) cell[0];
+                    for (int i = 1; i <= size; i++) {
+                        Entry entry = entries.get(cell[i]);
+                        // 跨多个网格的对象只在查询范围内它覆盖的第一个网格中报告，无需去重集合
+                        if (cellX == Math.max(entry.minCellX, minX) && cellY == Math.max(entry.minCellY, minY)
+                                && entry.distanceSquared(x, y) <= radiusSquared) {
+                            result.add(entry.object);
+                        }
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        queryNanos.add(System.nanoTime() - start);
+        queryCount.increment();
+        return result;
+    }
+
+    /**
+     * 已登记的对象数
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 查询次数
+     */
+    public long getQueryCount() {
+        return queryCount.sum();
+    }
+
+    /**
+     * 查询累计耗时（纳秒）
+     */
+    public long getQueryNanos() {
+        return queryNanos.sum();
+    }
+
+    /**
+     * 获取索引统计信息
+     */
+    public Map<String, Object> getStatistics() {
+        lock.readLock().lock();
+        try {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("cellSize", cellSize);
+            stats.put("objects", entries.size());
+            stats.put("occupiedCells", cells.size());
+            stats.put("reindexCount", reindexCount);
+            long queries = queryCount.sum();
+            stats.put("queries", queries);
+            stats.put("meanQueryMicros", queries > 0 ? queryNanos.sum() / 1_000.0 / queries : 0.0);
+            return stats;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 对象上次登记时的包围盒与覆盖的网格范围
+     */
+    private static final class Entry {
+        private final long id;
+        private final WorldObjectEntity object;
+        private final double x;
+        private final double y;
+        private final double width;
+        private final double height;
+        private final int minCellX;
+        private final int minCellY;
+        private final int maxCellX;
+        private final int maxCellY;
+
+        private Entry(WorldObjectEntity object, double cellSize) {
+            this.id = object.getId();
+            this.object = object;
+            this.x = object.getPositionX();
+            this.y = object.getPositionY();
+            this.width = sizeOf(object.getWidth());
+            this.height = sizeOf(object.getHeight());
+            this.minCellX = GridCells.cellCoord(x, cellSize);
+            this.minCellY = GridCells.cellCoord(y, cellSize);
+            this.maxCellX = GridCells.cellCoord(x + width, cellSize);
+            this.maxCellY = GridCells.cellCoord(y + height, cellSize);
+        }
+
+        private static double sizeOf(Double value) {
+            return value != null && value > 0 ? value : 0;
+        }
+
+        /**
+         * 对象的位置和尺寸是否与登记时相同
+         */
+        private boolean matches(WorldObjectEntity current) {
+            return current == object
+                    && current.getPositionX() == x && current.getPositionY() == y
+                    && sizeOf(current.getWidth()) == width && sizeOf(current.getHeight()) == height;
+        }
+
+        /**
+         * 点到包围盒的距离平方，点在盒内时为0
+         */
+        private double distanceSquared(double px, double py) {
+            double dx = Math.max(Math.max(x - px, 0), px - (x + width));
+            double dy = Math.max(Math.max(y - py, 0), py - (y + height));
+            return dx * dx + dy * dy;
+        }
+    }
+}
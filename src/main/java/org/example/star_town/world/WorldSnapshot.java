@@ -0,0 +1,626 @@
+package org.example.star_town.world;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.example.star_town.agent.Agent;
+import org.example.star_town.agent.AgentConfig;
+import org.example.star_town.agent.AgentType;
+import org.example.star_town.ai.goap.Action;
+import org.example.star_town.ai.goap.Goal;
+import org.example.star_town.model.WorldObjectEntity;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 世界二进制快照
+ * 文件由头部（魔数、版本、游戏时间、对象数、智能体数）、世界对象和智能体依次组成。
+ * 字符串和动作定义在首次出现时内联写入，之后只写编号，因此大量智能体共用的状态键和动作只占几个字节。
+ * 写入时经FileChannel和直接缓冲区顺序写到临时文件，完成后原子替换目标文件；读取时把整个文件读入堆缓冲区。
+ * 动作按类名、GOAP字段和子类的基本类型/字符串字段恢复，内容相同的动作在恢复后共用同一个实例
+ */
+@Slf4j
+@Getter
+public final class WorldSnapshot {
+
+    private static final int MAGIC = 0x5354574E; // "STWN"
+    private static final int VERSION = 1;
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    // 值类型标签
+    private static final byte TAG_NULL = 0;
+    private static final byte TAG_INT = 1;
+    private static final byte TAG_LONG = 2;
+    private static final byte TAG_DOUBLE = 3;
+    private static final byte TAG_TRUE = 4;
+    private static final byte TAG_FALSE = 5;
+    private static final byte TAG_STRING = 6;
+    private static final byte TAG_LIST = 7;
+    private static final byte TAG_MAP = 8;
+
+    private static final Map<Class<?>, List<Field>> ACTION_FIELDS = new ConcurrentHashMap<>();
+
+    private final long gameTime;
+    private final List<WorldObjectEntity> worldObjects;
+    private final List<Agent> agents;
+
+    private WorldSnapshot(long gameTime, List<WorldObjectEntity> worldObjects, List<Agent> agents) {
+        this.gameTime = gameTime;
+        this.worldObjects = worldObjects;
+        this.agents = agents;
+    }
+
+    /**
+     * 写入快照，调用方需保证写入期间世界不被修改
+     * @return 文件字节数
+     */
+    public static long write(Path file, long gameTime, Collection<Agent> agents,
+                             Collection<WorldObjectEntity> worldObjects) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        if (directory != null) {
+            Files.createDirectories(directory);
+        }
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        long size;
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            Encoder encoder = new Encoder(channel);
+            encoder.putInt(MAGIC);
+            encoder.putInt(VERSION);
+            encoder.putLong(gameTime);
+            encoder.putVarInt(worldObjects.size());
+            encoder.putVarInt(agents.size());
+            for (WorldObjectEntity object : worldObjects) {
+                encoder.putWorldObject(object);
+            }
+            for (Agent agent : agents) {
+                encoder.putAgent(agent);
+            }
+            size = encoder.finish();
+            channel.force(false);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return size;
+    }
+
+    /**
+     * 读取快照，恢复出的智能体尚未注册到任何管理器
+     */
+    public static WorldSnapshot read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot too large to read: " + size + " bytes");
+            }
+            // 读入堆缓冲区后立即关闭文件，不保留映射，Windows上下一次保存的原子替换不会被占用的文件阻塞
+            ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    throw new IOException("Unexpected end of snapshot: " + file);
+                }
+            }
+            buffer.flip();
+            Decoder decoder = new Decoder(buffer);
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not a world snapshot: " + file);
+            }
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported snapshot version " + version);
+            }
+            long gameTime = buffer.getLong();
+            int objectCount = decoder.getVarInt();
+            int agentCount = decoder.getVarInt();
+
+            List<WorldObjectEntity> worldObjects = new ArrayList<>(objectCount);
+            for (int i = 0; i < objectCount; i++) {
+                worldObjects.add(decoder.getWorldObject());
+            }
+            List<Agent> agents = new ArrayList<>(agentCount);
+            for (int i = 0; i < agentCount; i++) {
+                agents.add(decoder.getAgent());
+            }
+            return new WorldSnapshot(gameTime, worldObjects, agents);
+        }
+    }
+
+    /**
+     * 动作子类中需要随快照保存的字段：基本类型和字符串的实例字段
+     */
+    private static List<Field> actionFields(Class<?> type) {
+        return ACTION_FIELDS.computeIfAbsent(type, key -> {
+            List<Field> fields = new ArrayList<>();
+            for (Class<?> current = key; current != null && current != Action.class; current = current.getSuperclass()) {
+                for (Field field : current.getDeclaredFields()) {
+                    int modifiers = field.getModifiers();
+                    if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers) || field.isSynthetic()) {
+                        continue;
+                    }
+                    if (field.getType().isPrimitive() || field.getType() == String.class) {
+                        field.setAccessible(true);
+                        fields.add(field);
+                    }
+                }
+            }
+            return fields;
+        });
+    }
+
+    /**
+     * 编码器
+     */
+    private static final class Encoder {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        private final Map<String, Integer> strings = new HashMap<>();
+        private final Map<Action, Integer> actionsByIdentity = new IdentityHashMap<>();
+        private final Map<List<Object>, Integer> actionsByContent = new HashMap<>();
+        private long written;
+
+        private Encoder(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                drain();
+            }
+        }
+
+        private void drain() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                written += channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        private long finish() throws IOException {
+            drain();
+            return written;
+        }
+
+        private void putByte(byte value) throws IOException {
+            ensure(1);
+            buffer.put(value);
+        }
+
+        private void putInt(int value) throws IOException {
+            ensure(Integer.BYTES);
+            buffer.putInt(value);
+        }
+
+        private void putLong(long value) throws IOException {
+            ensure(Long.BYTES);
+            buffer.putLong(value);
+        }
+
+        private void putDouble(double value) throws IOException {
+            ensure(Double.BYTES);
+            buffer.putDouble(value);
+        }
+
+        private void putBoolean(boolean value) throws IOException {
+            putByte(value ? (byte) 1 : 0);
+        }
+
+        /**
+         * 无符号变长整数，每字节7位
+         */
+        private void putVarInt(int value) throws IOException {
+            ensure(5);
+            while ((value & ~0x7F) != 0) {
+                buffer.put((byte) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            buffer.put((byte) value);
+        }
+
+        private void putBytes(byte[] bytes) throws IOException {
+            int offset = 0;
+            while (offset < bytes.length) {
+                ensure(1);
+                int length = Math.min(buffer.remaining(), bytes.length - offset);
+                buffer.put(bytes, offset, length);
+                offset += length;
+            }
+        }
+
+        /**
+         * 字符串：0为null，1为新字符串（随后是长度和UTF-8字节），n≥2为第n-2个已出现的字符串
+         */
+        private void putString(String value) throws IOException {
+            if (value == null) {
+                putVarInt(0);
+                return;
+            }
+            Integer index = strings.get(value);
+            if (index != null) {
+                putVarInt(index + 2);
+                return;
+            }
+            strings.put(value, strings.size());
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            putVarInt(1);
+            putVarInt(bytes.length);
+            putBytes(bytes);
+        }
+
+        private void putValue(Object value) throws IOException {
+            if (value == null) {
+                putByte(TAG_NULL);
+            } else if (value instanceof Integer intValue) {
+                putByte(TAG_INT);
+                putInt(intValue);
+            } else if (value instanceof Long longValue) {
+                putByte(TAG_LONG);
+                putLong(longValue);
+            } else if (value instanceof Double doubleValue) {
+                putByte(TAG_DOUBLE);
+                putDouble(doubleValue);
+            } else if (value instanceof Float floatValue) {
+                putByte(TAG_DOUBLE);
+                putDouble(floatValue);
+            } else if (value instanceof Boolean booleanValue) {
+                putByte(booleanValue ? TAG_TRUE : TAG_FALSE);
+            } else if (value instanceof Collection<?> collection) {
+                putByte(TAG_LIST);
+                putVarInt(collection.size());
+                for (Object element : collection) {
+                    putValue(element);
+                }
+            } else if (value instanceof Map<?, ?> map) {
+                putByte(TAG_MAP);
+                putMap(map);
+            } else {
+                // 其他类型按字符串保存
+                putByte(TAG_STRING);
+                putString(value instanceof Enum<?> enumValue ? enumValue.name() : value.toString());
+            }
+        }
+
+        private void putMap(Map<?, ?> map) throws IOException {
+            if (map == null) {
+                putVarInt(0);
+                return;
+            }
+            putVarInt(map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                putString(String.valueOf(entry.getKey()));
+                putValue(entry.getValue());
+            }
+        }
+
+        /**
+         * 动作：0表示随后是新的动作定义，n≥1为第n-1个已定义的动作
+         */
+        private void putAction(Action action) throws IOException {
+            Integer index = actionsByIdentity.get(action);
+            List<Object> content = null;
+            Map<String, Object> fieldValues = null;
+            if (index == null) {
+                fieldValues = readFields(action);
+                content = List.of(action.getClass().getName(), String.valueOf(action.getName()),
+                        String.valueOf(action.getDescription()), action.getCost(), action.getDuration(),
+                        new HashMap<>(action.getPreconditions()), new HashMap<>(action.getEffects()), fieldValues);
+                index = actionsByContent.get(content);
+                if (index != null) {
+                    actionsByIdentity.put(action, index);
+                }
+            }
+            if (index != null) {
+                putVarInt(index + 1);
+                return;
+            }
+
+            index = actionsByContent.size();
+            actionsByContent.put(content, index);
+            actionsByIdentity.put(action, index);
+            putVarInt(0);
+            putString(action.getClass().getName());
+            putString(action.getName());
+            putString(action.getDescription());
+            putInt(action.getCost());
+            putLong(action.getDuration());
+            putMap(action.getPreconditions());
+            putMap(action.getEffects());
+            putMap(fieldValues);
+        }
+
+        private Map<String, Object> readFields(Action action) {
+            Map<String, Object> values = new LinkedHashMap<>();
+            for (Field field : actionFields(action.getClass())) {
+                try {
+                    values.put(field.getName(), field.get(action));
+                } catch (IllegalAccessException e) {
+                    throw new IllegalStateException("Cannot read action field " + field, e);
+                }
+            }
+            return values;
+        }
+
+        private void putWorldObject(WorldObjectEntity object) throws IOException {
+            putLong(object.getId());
+            putString(object.getName());
+            putString(object.getType());
+            putDouble(object.getPositionX());
+            putDouble(object.getPositionY());
+            putValue(object.getWidth());
+            putValue(object.getHeight());
+            putString(object.getPropertiesJson());
+            putString(object.getOwnerAgentId());
+            putValue(object.getIsInteractive());
+            putValue(object.getCapacity());
+            putValue(object.getCurrentOccupancy());
+            putValue(object.getIsActive());
+        }
+
+        private void putAgent(Agent agent) throws IOException {
+            putString(agent.getId());
+            putString(agent.getName());
+            putString(agent.getType().name());
+            putDouble(agent.getPosition().getX());
+            putDouble(agent.getPosition().getY());
+            putString(agent.getStatus().name());
+
+            AgentConfig config = agent.getConfig();
+            putString(config.getId());
+            putString(config.getName());
+            putString(config.getType() != null ? config.getType().name() : null);
+            putMap(config.getProperties());
+            putMap(config.getBehaviorSettings());
+            putMap(config.getGoalSettings());
+            putMap(config.getActionSettings());
+            putBoolean(config.isEnabled());
+            putInt(config.getPriority());
+
+            putMap(agent.getState());
+            putMap(agent.getMemory());
+
+            List<Goal> goals = agent.getGoals();
+            putVarInt(goals.size());
+            for (Goal goal : goals) {
+                putString(goal.getName());
+                putString(goal.getDescription());
+                putMap(goal.getDesiredState());
+                putInt(goal.getPriority());
+                putBoolean(goal.isPersistent());
+            }
+
+            List<Action> actions = agent.getAvailableActions();
+            putVarInt(actions.size());
+            for (Action action : actions) {
+                putAction(action);
+            }
+
+            List<Action> plan = agent.getCurrentPlan();
+            putVarInt(plan.size());
+            for (Action action : plan) {
+                putAction(action);
+            }
+            putVarInt(agent.getCurrentPlanIndex());
+        }
+    }
+
+    /**
+     * 解码器
+     */
+    private static final class Decoder {
+        private final ByteBuffer buffer;
+        private final List<String> strings = new ArrayList<>();
+        private final List<Action> actions = new ArrayList<>();
+
+        private Decoder(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        private int getVarInt() {
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = buffer.get();
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return value;
+        }
+
+        private boolean getBoolean() {
+            return buffer.get() != 0;
+        }
+
+        private String getString() {
+            int code = getVarInt();
+            if (code == 0) {
+                return null;
+            }
+            if (code >= 2) {
+                return strings.get(code - 2);
+            }
+            int length = getVarInt();
+            String value;
+            if (buffer.hasArray()) {
+                value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+                buffer.position(buffer.position() + length);
+            } else {
+                byte[] bytes = new byte[length];
+                buffer.get(bytes);
+                value = new String(bytes, StandardCharsets.UTF_8);
+            }
+            strings.add(value);
+            return value;
+        }
+
+        private Object getValue() {
+            byte tag = buffer.get();
+            switch (tag) {
+                case TAG_NULL:
+                    return null;
+                case TAG_INT:
+                    return buffer.getInt();
+                case TAG_LONG:
+                    return buffer.getLong();
+                case TAG_DOUBLE:
+                    return buffer.getDouble();
+                case TAG_TRUE:
+                    return Boolean.TRUE;
+                case TAG_FALSE:
+                    return Boolean.FALSE;
+                case TAG_STRING:
+                    return getString();
+                case TAG_LIST: {
+                    int size = getVarInt();
+                    List<Object> list = new ArrayList<>(size);
+                    for (int i = 0; i < size; i++) {
+                        list.add(getValue());
+                    }
+                    return list;
+                }
+                case TAG_MAP:
+                    return getMap(new HashMap<>());
+                default:
+                    throw new IllegalStateException("Corrupt snapshot: unknown value tag " + tag);
+            }
+        }
+
+        /**
+         * 读取键值表到目标表，null值不放入（ConcurrentHashMap不接受null）
+         */
+        private <M extends Map<String, Object>> M getMap(M target) {
+            int size = getVarInt();
+            for (int i = 0; i < size; i++) {
+                String key = getString();
+                Object value = getValue();
+                if (value != null) {
+                    target.put(key, value);
+                }
+            }
+            return target;
+        }
+
+        private Action getAction() {
+            int code = getVarInt();
+            if (code > 0) {
+                return actions.get(code - 1);
+            }
+
+            String className = getString();
+            Action action;
+            try {
+                Class<? extends Action> type = Class.forName(className).asSubclass(Action.class);
+                var constructor = type.getDeclaredConstructor();
+                constructor.setAccessible(true);
+                action = constructor.newInstance();
+            } catch (ReflectiveOperationException | ClassCastException e) {
+                throw new IllegalStateException("Cannot restore action " + className, e);
+            }
+            action.setName(getString());
+            action.setDescription(getString());
+            action.setCost(buffer.getInt());
+            action.setDuration(buffer.getLong());
+            action.setPreconditions(getMap(new HashMap<>()));
+            action.setEffects(getMap(new HashMap<>()));
+            Map<String, Object> fieldValues = getMap(new HashMap<>());
+            for (Field field : actionFields(action.getClass())) {
+                if (fieldValues.containsKey(field.getName())) {
+                    try {
+                        field.set(action, fieldValues.get(field.getName()));
+                    } catch (IllegalAccessException | IllegalArgumentException e) {
+                        log.warn("Cannot restore field {} of action {}: {}", field.getName(), className, e.getMessage());
+                    }
+                }
+            }
+            actions.add(action);
+            return action;
+        }
+
+        private WorldObjectEntity getWorldObject() {
+            WorldObjectEntity object = new WorldObjectEntity();
+            object.setId(buffer.getLong());
+            object.setName(getString());
+            object.setType(getString());
+            object.setPositionX(buffer.getDouble());
+            object.setPositionY(buffer.getDouble());
+            object.setWidth((Double) getValue());
+            object.setHeight((Double) getValue());
+            object.setPropertiesJson(getString());
+            object.setOwnerAgentId(getString());
+            object.setIsInteractive((Boolean) getValue());
+            object.setCapacity((Integer) getValue());
+            object.setCurrentOccupancy((Integer) getValue());
+            object.setIsActive((Boolean) getValue());
+            return object;
+        }
+
+        private Agent getAgent() {
+            String id = getString();
+            String name = getString();
+            AgentType type = AgentType.valueOf(getString());
+            Position position = new Position(buffer.getDouble(), buffer.getDouble());
+            Agent.AgentStatus status = Agent.AgentStatus.valueOf(getString());
+
+            AgentConfig config = new AgentConfig();
+            config.setId(getString());
+            config.setName(getString());
+            String configType = getString();
+            config.setType(configType != null ? AgentType.valueOf(configType) : null);
+            config.setProperties(getMap(new HashMap<>()));
+            config.setBehaviorSettings(getMap(new HashMap<>()));
+            config.setGoalSettings(getMap(new HashMap<>()));
+            config.setActionSettings(getMap(new HashMap<>()));
+            config.setEnabled(getBoolean());
+            config.setPriority(buffer.getInt());
+
+            Agent agent = new Agent(id, name, type, config);
+            agent.setPosition(position);
+            agent.setStatus(status);
+            agent.setState(getMap(new ConcurrentHashMap<>()));
+            agent.setMemory(getMap(new ConcurrentHashMap<>()));
+
+            int goalCount = getVarInt();
+            List<Goal> goals = new ArrayList<>(goalCount);
+            for (int i = 0; i < goalCount; i++) {
+                Goal goal = new Goal(getString());
+                goal.setDescription(getString());
+                goal.setDesiredState(getMap(new HashMap<>()));
+                goal.setPriority(buffer.getInt());
+                goal.setPersistent(getBoolean());
+                goals.add(goal);
+            }
+            agent.setGoals(goals);
+
+            int actionCount = getVarInt();
+            List<Action> availableActions = new ArrayList<>(actionCount);
+            for (int i = 0; i < actionCount; i++) {
+                availableActions.add(getAction());
+            }
+            agent.setAvailableActions(availableActions);
+
+            int planLength = getVarInt();
+            List<Action> plan = new ArrayList<>(planLength);
+            for (int i = 0; i < planLength; i++) {
+                plan.add(getAction());
+            }
+            agent.setCurrentPlan(plan);
+            agent.setCurrentPlanIndex(getVarInt());
+            return agent;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package org.example.star_town.agent;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 智能体tick调度器测试
+ */
+class AgentSchedulerTests {
+
+    private final Map<String, Integer> updates = new HashMap<>();
+    private final List<String> order = new ArrayList<>();
+
+    private AgentTickEngine.TickStatistics record(List<Agent> agents) {
+        for (Agent agent : agents) {
+            updates.merge(agent.getId(), 1, Integer::sum);
+            order.add(agent.getId());
+        }
+        return new AgentTickEngine.TickStatistics(agents.size(), 1, 0, 0, 0);
+    }
+
+    private static Agent agent(String id, AgentType type) {
+        return new Agent(id, id, type, new AgentConfig(id, id, type));
+    }
+
+    @Test
+    void testAgentsUpdatedAccordingToFrequency() {
+        AgentScheduler scheduler = new AgentScheduler(16, 1000);
+        Agent resident = agent("resident", AgentType.RESIDENT);
+        Agent visitor = agent("visitor", AgentType.VISITOR);
+        Agent slow = agent("slow", AgentType.WORKER);
+        slow.getConfig().setBehaviorSetting("updateFrequency", 60_000);
+        scheduler.add(resident);
+        scheduler.add(visitor);
+        scheduler.add(slow);
+
+        assertEquals(1, scheduler.periodTicks(resident));
+        assertEquals(3, scheduler.periodTicks(visitor));
+        assertEquals(60, scheduler.periodTicks(slow)); // 超过时间轮槽数
+
+        for (int i = 0; i < 120; i++) {
+            scheduler.tick(this::record);
+        }
+
+        assertEquals(120, updates.get("resident"));
+        assertEquals(40, updates.get("visitor"));
+        assertEquals(2, updates.get("slow"));
+    }
+
+    @Test
+    void testMultiStepTickUpdatesAgentsDueInsideWindowOnce() {
+        AgentScheduler scheduler = new AgentScheduler(16, 1000);
+        Agent resident = agent("resident", AgentType.RESIDENT);
+        Agent visitor = agent("visitor", AgentType.VISITOR);
+        scheduler.add(resident);
+        scheduler.add(visitor);
+
+        // 合并推进30个tick，每个智能体只更新一次
+        scheduler.tick(this::record, 30);
+        assertEquals(1, updates.get("resident"));
+        assertEquals(1, updates.get("visitor"));
+        assertEquals(30L, scheduler.getStatistics().get("currentTick"));
+
+        // 之后按合并窗口的最后一个tick重新调度，周期保持不变
+        for (int i = 0; i < 30; i++) {
+            scheduler.tick(this::record);
+        }
+        assertEquals(31, updates.get("resident"));
+        assertEquals(11, updates.get("visitor"));
+    }
+
+    @Test
+    void testBudgetDefersRemainingAgentsToNextTick() {
+        AgentScheduler scheduler = new AgentScheduler(16, 1000);
+        scheduler.setBudgetNanos(1);
+        scheduler.setSliceSize(2);
+        for (int i = 0; i < 5; i++) {
+            scheduler.add(agent("agent-" + i, AgentType.RESIDENT));
+        }
+
+        AgentTickEngine.TickStatistics first = scheduler.tick(this::record);
+        assertEquals(2, first.getAgentCount());
+        assertEquals(3L, scheduler.getStatistics().get("backlog"));
+
+        // 积压的智能体先于本tick新到期的智能体执行
+        order.clear();
+        scheduler.tick(this::record);
+        assertEquals(2, order.size());
+        assertFalse(updates.get(order.get(0)) > 1);
+        assertEquals(6L, scheduler.getStatistics().get("deferredTotal")); // 两个tick各顺延3个
+    }
+
+    @Test
+    void testPriorityOrderAndRemoval() {
+        AgentScheduler scheduler = new AgentScheduler(16, 1000);
+        Agent low = agent("low", AgentType.RESIDENT);
+        Agent high = agent("high", AgentType.RESIDENT);
+        high.getConfig().setPriority(10);
+        Agent disabled = agent("disabled", AgentType.RESIDENT);
+        disabled.getConfig().setEnabled(false);
+        scheduler.add(low);
+        scheduler.add(high);
+        scheduler.add(disabled);
+
+        scheduler.tick(this::record);
+        assertEquals(List.of("high", "low"), order);
+
+        scheduler.remove("high");
+        order.clear();
+        scheduler.tick(this::record);
+        assertEquals(List.of("low"), order);
+        assertEquals(2, scheduler.getScheduledCount());
+    }
+}
@@ -0,0 +1,58 @@
+package org.example.star_town.agent;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 并行tick引擎测试
+ */
+class AgentTickEngineTests {
+
+    private AgentTickEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        engine = new AgentTickEngine(4, 16);
+    }
+
+    @AfterEach
+    void tearDown() {
+        engine.shutdown();
+    }
+
+    @Test
+    void testAllAgentsUpdatedBeforeTickReturns() {
+        List<Agent> agents = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            Agent agent = new Agent("agent-" + i, "Agent " + i, AgentType.RESIDENT,
+                    new AgentConfig("agent-" + i, "Agent " + i, AgentType.RESIDENT));
+            agent.setLastUpdateTime(0);
+            agents.add(agent);
+        }
+
+        AgentTickEngine.TickStatistics stats = engine.tick(agents);
+
+        assertEquals(100, stats.getAgentCount());
+        assertEquals(7, stats.getBatchCount()); // ceil(100 / 16)
+        assertTrue(stats.getMaxBatchNanos() >= stats.getMeanBatchNanos());
+        assertTrue(stats.getImbalance() >= 1.0);
+        for (Agent agent : agents) {
+            assertTrue(agent.getLastUpdateTime() > 0, "agent " + agent.getId() + " was not updated");
+        }
+    }
+
+    @Test
+    void testEmptyTick() {
+        AgentTickEngine.TickStatistics stats = engine.tick(List.of());
+
+        assertEquals(0, stats.getAgentCount());
+        assertEquals(0, stats.getBatchCount());
+        assertEquals(1.0, stats.getImbalance());
+    }
+}
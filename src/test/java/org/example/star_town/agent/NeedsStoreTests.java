@@ -0,0 +1,85 @@
+package org.example.star_town.agent;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 需求列式存储测试
+ */
+class NeedsStoreTests {
+
+    private static Agent agent(String id) {
+        return new Agent(id, id, AgentType.RESIDENT, new AgentConfig(id, id, AgentType.RESIDENT));
+    }
+
+    @Test
+    void testStateViewBackedByColumns() {
+        NeedsStore store = new NeedsStore();
+        Agent agent = agent("agent-1");
+        agent.setState("hunger", 80);
+        Map<String, Object> before = new HashMap<>(agent.getState());
+
+        agent.attachNeedsStore(store);
+        assertEquals(before, agent.getState());
+        assertEquals(1, store.countAbove(NeedsStore.Need.HUNGER, 70));
+
+        // 通过视图和通过需求访问器写入的是同一份数据
+        agent.setNeed(NeedsStore.Need.HUNGER, 20);
+        assertEquals(20, agent.getState("hunger", Integer.class));
+        agent.setState("energy", 10);
+        assertEquals(10, agent.getNeed(NeedsStore.Need.ENERGY));
+        assertEquals(1, store.countBelow(NeedsStore.Need.ENERGY, 30));
+
+        // 非整数的需求值退回普通状态表，不再参与列扫描
+        agent.setState("energy", "unknown");
+        assertEquals("unknown", agent.getState().get("energy"));
+        assertEquals(0, store.countBelow(NeedsStore.Need.ENERGY, 30));
+        assertEquals(NeedsStore.Need.ENERGY.getDefaultValue(), agent.getNeed(NeedsStore.Need.ENERGY));
+
+        agent.detachNeedsStore();
+        assertEquals(0, store.getAllocatedCount());
+        assertEquals(20, agent.getState("hunger", Integer.class));
+        assertEquals(before.size(), agent.getState().size());
+    }
+
+    @Test
+    void testBulkOperationsAndSlotReuse() {
+        NeedsStore store = new NeedsStore();
+        List<Agent> agents = new ArrayList<>();
+        // 跨越多个存储块
+        for (int i = 0; i < NeedsStore.CHUNK_SIZE + 10; i++) {
+            Agent agent = agent("agent-" + i);
+            agent.setState("hunger", i % 100);
+            agent.attachNeedsStore(store);
+            agents.add(agent);
+        }
+        int hungry = store.countAbove(NeedsStore.Need.HUNGER, 90);
+        agents.forEach(Agent::drainDirtyFlags);
+
+        assertEquals(NeedsStore.CHUNK_SIZE + 10, store.addClamped(NeedsStore.Need.HUNGER, 5, 0, 100));
+        assertEquals(100, agents.get(99).getNeed(NeedsStore.Need.HUNGER));
+        assertEquals(Agent.DIRTY_STATE, agents.get(0).drainDirtyFlags()); // 批量修改同样需要持久化
+        agents.get(99).drainDirtyFlags();
+        assertEquals(0, store.addClamped(NeedsStore.Need.HUNGER, 0, 0, 100));
+        assertFalse(agents.get(99).hasPendingChanges()); // 值未变化
+        assertEquals(29, agents.get(NeedsStore.CHUNK_SIZE).getNeed(NeedsStore.Need.HUNGER)); // 第二个存储块
+        assertTrue(store.countAbove(NeedsStore.Need.HUNGER, 90) > hungry);
+
+        assertEquals(11, store.countBelow(NeedsStore.Need.HUNGER, 6)); // 0, 100, ..., 1000
+
+        // 释放的槽位被复用，新智能体不继承旧值
+        agents.get(0).detachNeedsStore();
+        Agent replacement = agent("replacement");
+        replacement.getState().remove("hunger");
+        replacement.attachNeedsStore(store);
+        assertEquals(NeedsStore.CHUNK_SIZE + 10, store.getAllocatedCount());
+        assertEquals(10, store.countBelow(NeedsStore.Need.HUNGER, 6));
+        assertNull(replacement.getState().get("hunger"));
+    }
+}
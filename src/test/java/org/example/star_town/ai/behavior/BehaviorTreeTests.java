@@ -6,6 +6,7 @@ import org.example.star_town.ai.behavior.SelectorNode;
 import org.example.star_town.ai.behavior.SequenceNode;
 import org.junit.jupiter.api.Test;
 
+import java.util.List;
 import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -222,4 +223,224 @@ class BehaviorTreeTests {
         assertEquals(BehaviorNode.Status.SUCCESS, result2);
         assertEquals(40, notHungryContext.get("energy", Integer.class));
     }
+
+    @Test
+    void testCompiledTreeMatchesObjectGraph() {
+        BehaviorNode root = BehaviorLibrary.getInstance()
+                .buildCompositeTree(List.of("UrgentNeeds", "BasicNeeds", "SocialNeeds", "Work"), "selector");
+        CompiledBehaviorTree compiled = BehaviorTreeCompiler.compile(root);
+        
+        // 遍历各种需求组合，两种执行方式的结果和上下文修改必须一致
+        for (int hunger = 0; hunger <= 100; hunger += 10) {
+            for (int energy = 0; energy <= 100; energy += 10) {
+                for (int happiness : new int[]{20, 80}) {
+                    for (boolean nearby : new boolean[]{false, true}) {
+                        BehaviorContext expected = createNeedsContext(hunger, energy, happiness, nearby);
+                        BehaviorContext actual = createNeedsContext(hunger, energy, happiness, nearby);
+                        
+                        root.reset();
+                        BehaviorNode.Status expectedStatus = root.execute(expected);
+                        BehaviorNode.Status actualStatus = compiled.tick(actual, compiled.newState());
+                        
+                        String scenario = "hunger=" + hunger + ", energy=" + energy
+                                + ", happiness=" + happiness + ", nearby=" + nearby;
+                        assertEquals(expectedStatus, actualStatus, scenario);
+                        assertEquals(expected.getData(), actual.getData(), scenario);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void testCompiledTreeResumesRunningAction() {
+        SelectorNode root = new SelectorNode("Root");
+        SequenceNode eatBranch = new SequenceNode("EatBranch");
+        eatBranch.addChild(new ConditionNode("IsHungry") {
+            @Override
+            protected boolean checkCondition(BehaviorContext context) {
+                context.put("checks", context.get("checks", Integer.class) + 1);
+                return true;
+            }
+        });
+        eatBranch.addChild(new ActionNode("Eat") {
+            @Override
+            protected Status doAction(BehaviorContext context) {
+                Integer hunger = context.get("hunger", Integer.class);
+                return hunger > 70 ? Status.RUNNING : Status.SUCCESS;
+            }
+        });
+        root.addChild(eatBranch);
+        root.addChild(new SequenceNode("Empty"));
+        
+        CompiledBehaviorTree compiled = BehaviorTreeCompiler.compile(root);
+        CompiledBehaviorTree.ExecutionState state = compiled.newState();
+        BehaviorContext context = new BehaviorContext("test-agent");
+        context.put("hunger", 80);
+        context.put("checks", 0);
+        
+        assertEquals(BehaviorNode.Status.RUNNING, compiled.tick(context, state));
+        assertTrue(state.isRunning());
+        
+        // 恢复执行时直接回到运行中的动作，不重复检查条件
+        context.put("hunger", 30);
+        assertEquals(BehaviorNode.Status.SUCCESS, compiled.tick(context, state));
+        assertFalse(state.isRunning());
+        assertEquals(1, context.get("checks", Integer.class));
+        
+        assertEquals(BehaviorNode.Status.SUCCESS, compiled.tick(context, state));
+        assertEquals(2, context.get("checks", Integer.class));
+        
+        CompiledBehaviorTree.ExecutionState otherState = BehaviorTreeCompiler.compile(root).newState();
+        assertThrows(IllegalArgumentException.class, () -> compiled.tick(context, otherState));
+    }
+
+    @Test
+    void testCompileFromConfig() {
+        BehaviorTreeConfig.BehaviorTreeNodeConfig eat = new BehaviorTreeConfig.BehaviorTreeNodeConfig("EatBranch", "sequence");
+        eat.getChildren().add(new BehaviorTreeConfig.BehaviorTreeNodeConfig("IsHungry", "condition"));
+        eat.getChildren().add(new BehaviorTreeConfig.BehaviorTreeNodeConfig("Eat", "action"));
+        BehaviorTreeConfig.BehaviorTreeNodeConfig root = new BehaviorTreeConfig.BehaviorTreeNodeConfig("Root", "selector");
+        root.getChildren().add(eat);
+        root.getChildren().add(new BehaviorTreeConfig.BehaviorTreeNodeConfig("Rest", "action"));
+        
+        BehaviorTreeConfig config = new BehaviorTreeConfig();
+        config.setName("ConfigTree");
+        config.setRootNode(root);
+        
+        CompiledBehaviorTree compiled = BehaviorTreeCompiler.compile(config);
+        assertEquals(5, compiled.getInstructionCount()); // COND, JF, ACTION, JS, ACTION
+        
+        BehaviorContext context = new BehaviorContext("test-agent");
+        context.put("hunger", 20);
+        context.put("energy", 50);
+        assertEquals(BehaviorNode.Status.SUCCESS, compiled.tick(context, compiled.newState()));
+        assertEquals(20, context.get("hunger", Integer.class));
+        assertEquals(75, context.get("energy", Integer.class));
+    }
+
+    @Test
+    void testContextSlotsAndStringKeysShareValues() {
+        BehaviorContext context = new BehaviorContext("test-agent");
+        context.loadInt(ContextKey.HUNGER, 80);
+        context.put("energy", 40);
+        context.put("custom", "value");
+        
+        // 字符串接口与槽位接口读写同一份数据
+        assertEquals(80, context.get("hunger", Integer.class));
+        assertEquals(40, context.getInt(ContextKey.ENERGY));
+        assertFalse(context.has(ContextKey.HAPPINESS));
+        assertEquals(60, context.getInt(ContextKey.HAPPINESS, 60));
+        assertFalse(context.isChanged(ContextKey.HUNGER));
+        assertTrue(context.isChanged(ContextKey.ENERGY));
+        
+        context.putInt(ContextKey.HUNGER, 80);
+        assertFalse(context.isChanged(ContextKey.HUNGER));
+        context.putInt(ContextKey.HUNGER, 50);
+        assertTrue(context.isChanged(ContextKey.HUNGER));
+        assertEquals(Map.of("hunger", 50, "energy", 40, "custom", "value"), context.getData());
+        
+        // 复用前重置，旧值和修改标记都被清除
+        context.reset();
+        assertFalse(context.has(ContextKey.HUNGER));
+        assertFalse(context.isChanged(ContextKey.HUNGER));
+        assertEquals(0, context.getInt(ContextKey.HUNGER));
+        assertFalse(context.contains("custom"));
+    }
+
+    private static BehaviorContext createNeedsContext(int hunger, int energy, int happiness, boolean nearby) {
+        BehaviorContext context = new BehaviorContext("test-agent");
+        context.put("hunger", hunger);
+        context.put("energy", energy);
+        context.put("happiness", happiness);
+        context.put("income", 0);
+        context.put("hasWorkplace", true);
+        context.put("nearbyAgents", nearby ? List.of("other-agent") : List.of());
+        return context;
+    }
+
+    @Test
+    void testCompiledTreeSkipsWhenReadKeysUnchanged() {
+        int[] checks = {0};
+        SequenceNode root = new SequenceNode("Root");
+        root.addChild(new ConditionNode("IsHungry") {
+            @Override
+            protected boolean checkCondition(BehaviorContext context) {
+                checks[0]++;
+                return context.getInt(ContextKey.HUNGER) > 70;
+            }
+        }.reads(ContextKey.HUNGER));
+        root.addChild(new ActionNode("Idle") {
+            @Override
+            protected Status doAction(BehaviorContext context) {
+                return Status.SUCCESS;
+            }
+        }.reads());
+        
+        CompiledBehaviorTree compiled = BehaviorTreeCompiler.compile(root);
+        CompiledBehaviorTree.ExecutionState state = compiled.newState();
+        BehaviorContext context = new BehaviorContext("test-agent");
+        assertTrue(compiled.isReadsDeclared());
+        assertTrue(compiled.reads(ContextKey.HUNGER));
+        assertFalse(compiled.reads(ContextKey.NEARBY_AGENT_COUNT));
+        
+        context.loadInt(ContextKey.HUNGER, 80);
+        context.loadInt(ContextKey.ENERGY, 50);
+        assertEquals(BehaviorNode.Status.SUCCESS, compiled.tickIfChanged(context, state, null));
+        
+        // 未读取的键变化不触发重新求值
+        context.reset();
+        context.loadInt(ContextKey.HUNGER, 80);
+        context.loadInt(ContextKey.ENERGY, 10);
+        assertEquals(BehaviorNode.Status.SUCCESS, compiled.tickIfChanged(context, state, null));
+        assertEquals(1, checks[0]);
+        
+        context.reset();
+        context.loadInt(ContextKey.HUNGER, 40);
+        assertEquals(BehaviorNode.Status.FAILURE, compiled.tickIfChanged(context, state, null));
+        assertEquals(2, checks[0]);
+        assertEquals(2, compiled.getEvaluationCount());
+        assertEquals(1, compiled.getSkipCount());
+        
+        // 重置执行状态后必须重新求值
+        state.reset();
+        assertEquals(BehaviorNode.Status.FAILURE, compiled.tickIfChanged(context, state, null));
+        assertEquals(3, checks[0]);
+    }
+
+    @Test
+    void testCompiledTreeReevaluatesUndeclaredOrRunningTrees() {
+        int[] checks = {0};
+        ConditionNode undeclared = new ConditionNode("Always") {
+            @Override
+            protected boolean checkCondition(BehaviorContext context) {
+                checks[0]++;
+                return true;
+            }
+        };
+        CompiledBehaviorTree compiled = BehaviorTreeCompiler.compile(undeclared);
+        CompiledBehaviorTree.ExecutionState state = compiled.newState();
+        BehaviorContext context = new BehaviorContext("test-agent");
+        assertFalse(compiled.isReadsDeclared());
+        assertTrue(compiled.reads(ContextKey.NEARBY_AGENT_COUNT));
+        compiled.tickIfChanged(context, state, null);
+        compiled.tickIfChanged(context, state, null);
+        assertEquals(2, checks[0]);
+        
+        // 运行中的动作每个tick都要继续执行
+        int[] runs = {0};
+        ActionNode running = new ActionNode("Walk") {
+            @Override
+            protected Status doAction(BehaviorContext context) {
+                return ++runs[0] < 3 ? Status.RUNNING : Status.SUCCESS;
+            }
+        };
+        running.reads();
+        CompiledBehaviorTree walking = BehaviorTreeCompiler.compile(running);
+        CompiledBehaviorTree.ExecutionState walkState = walking.newState();
+        assertEquals(BehaviorNode.Status.RUNNING, walking.tickIfChanged(context, walkState, null));
+        assertEquals(BehaviorNode.Status.RUNNING, walking.tickIfChanged(context, walkState, null));
+        assertEquals(BehaviorNode.Status.SUCCESS, walking.tickIfChanged(context, walkState, null));
+        assertEquals(3, runs[0]);
+    }
 }
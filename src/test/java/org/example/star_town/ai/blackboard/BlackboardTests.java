@@ -0,0 +1,140 @@
+package org.example.star_town.ai.blackboard;
+
+import org.example.star_town.agent.Agent;
+import org.example.star_town.agent.AgentConfig;
+import org.example.star_town.agent.AgentType;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 黑板测试
+ */
+class BlackboardTests {
+
+    @Test
+    void testGlobalSnapshotIsImmutableAndVersioned() {
+        Blackboard blackboard = new Blackboard();
+        blackboard.setGlobal("weather", "sunny");
+        long version = blackboard.getGlobalVersion();
+        Map<String, Object> snapshot = blackboard.getAllGlobal();
+
+        blackboard.setGlobal("weather", "rainy");
+        assertEquals("sunny", snapshot.get("weather"));
+        assertEquals("rainy", blackboard.getGlobal("weather", String.class));
+        assertEquals(version + 1, blackboard.getGlobalVersion());
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.put("weather", "snowy"));
+
+        // 写入相同的值不产生新版本
+        blackboard.setGlobal("weather", "rainy");
+        assertEquals(version + 1, blackboard.getGlobalVersion());
+        assertNull(blackboard.getGlobal("weather", Integer.class));
+    }
+
+    @Test
+    void testConcurrentWritersDoNotLoseUpdates() throws InterruptedException {
+        Blackboard blackboard = new Blackboard();
+        int threads = 4;
+        int writes = 500;
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int index = t;
+            workers.add(new Thread(() -> {
+                for (int i = 0; i < writes; i++) {
+                    blackboard.setAgent("agent-" + index, "key-" + i, i);
+                    blackboard.setGlobal("thread-" + index + "-" + i, i);
+                }
+            }));
+        }
+        workers.forEach(Thread::start);
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        assertEquals(threads * writes, blackboard.getAllGlobal().size());
+        assertEquals(threads * writes, blackboard.getGlobalVersion());
+        for (int t = 0; t < threads; t++) {
+            assertEquals(writes, blackboard.getAllAgent("agent-" + t).size());
+        }
+        assertEquals(499, blackboard.getAgent("agent-0", "key-499", Integer.class));
+
+        blackboard.removeAgent("agent-0");
+        assertFalse(blackboard.hasAgent("agent-0", "key-0"));
+        assertTrue(blackboard.getAllAgent("agent-0").isEmpty());
+    }
+
+    @Test
+    void testSubscribersReceiveBatchedDeltasByPrefix() {
+        Blackboard blackboard = new Blackboard();
+        List<List<BlackboardChange>> batches = new ArrayList<>();
+        List<BlackboardChange> globalChanges = new ArrayList<>();
+        BlackboardSubscription subscription = blackboard.subscribeAgent("alice", "state.", batches::add);
+        blackboard.subscribeGlobal("", globalChanges::addAll);
+
+        blackboard.setAgent("alice", "state.hunger", 10);
+        blackboard.setAgent("alice", "state.hunger", 10); // 值未变化
+        blackboard.setAgent("alice", "status", "IDLE"); // 前缀不匹配
+        blackboard.setAgent("bob", "state.hunger", 50); // 其他智能体
+        blackboard.setAgent("alice", "state.energy", 70);
+        blackboard.setAgent("alice", "state.hunger", 20);
+        assertTrue(batches.isEmpty(), "changes are delivered in batches at dispatch time");
+        assertEquals(3, subscription.getPendingCount());
+
+        blackboard.setGlobal("weather", "sunny");
+        assertEquals(4, blackboard.dispatchChanges());
+        assertEquals(1, batches.size());
+        List<BlackboardChange> batch = batches.get(0);
+        assertEquals(List.of("state.hunger", "state.energy", "state.hunger"),
+                batch.stream().map(BlackboardChange::key).collect(Collectors.toList()));
+        assertEquals(10, batch.get(2).oldValue());
+        assertEquals(20, batch.get(2).newValue());
+        assertTrue(batch.get(0).version() < batch.get(1).version());
+        assertTrue(batch.get(1).version() < batch.get(2).version());
+        assertEquals(batch.get(2).version(), subscription.getLastVersion());
+
+        assertEquals(1, globalChanges.size());
+        assertTrue(globalChanges.get(0).isGlobal());
+        assertTrue(globalChanges.get(0).version() > batch.get(2).version());
+
+        // 没有新变更时不再回调
+        assertEquals(0, blackboard.dispatchChanges());
+        assertEquals(1, batches.size());
+
+        blackboard.removeAgent("alice");
+        blackboard.dispatchChanges();
+        assertEquals(2, batches.size());
+        assertTrue(batches.get(1).stream().allMatch(BlackboardChange::isRemoval));
+
+        subscription.close();
+        blackboard.setAgent("alice", "state.hunger", 30);
+        assertEquals(0, blackboard.dispatchChanges());
+    }
+
+    @Test
+    void testAgentStateKeysRemovedWhenStateEntriesLeave() {
+        Blackboard blackboard = new Blackboard();
+        List<BlackboardChange> changes = new ArrayList<>();
+        blackboard.subscribeAgent("alice", "state.", changes::addAll);
+        Agent agent = new Agent("alice", "alice", AgentType.RESIDENT,
+                new AgentConfig("alice", "alice", AgentType.RESIDENT));
+        agent.setBlackboard(blackboard);
+        agent.exitLowDetail(Map.of("mood", "calm"));
+        assertEquals("calm", blackboard.getAgent("alice", "state.mood", String.class));
+
+        agent.getState().remove("mood");
+        agent.exitLowDetail(Map.of());
+        assertFalse(blackboard.hasAgent("alice", "state.mood"));
+        assertTrue(blackboard.hasAgent("alice", "state.hunger"));
+
+        // 重置清空状态后黑板中不再保留任何状态键
+        agent.reset();
+        assertTrue(blackboard.getAllAgent("alice").keySet().stream().noneMatch(key -> key.startsWith("state.")));
+        blackboard.dispatchChanges();
+        assertTrue(changes.stream().anyMatch(change -> change.key().equals("state.mood") && change.isRemoval()));
+    }
+}
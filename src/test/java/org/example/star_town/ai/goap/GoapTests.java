@@ -6,6 +6,9 @@ import org.example.star_town.actions.WorkAction;
 import org.junit.jupiter.api.Test;
 
 import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -177,6 +180,26 @@ class GoapTests {
         assertFalse(context.contains("nonexistent"));
     }
 
+    @Test
+    void testActionRunsUntilDurationElapses() {
+        EatAction eatAction = new EatAction();
+        
+        // 刚开始执行时动作仍在进行，不阻塞调用线程
+        ActionContext justStarted = new ActionContext("test-agent");
+        long start = System.nanoTime();
+        assertEquals(Action.Status.RUNNING, eatAction.update(justStarted));
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(50));
+        assertFalse(justStarted.contains("foodConsumed"));
+        
+        // 经过动作时长后完成
+        ActionContext finished = new ActionContext("test-agent", System.currentTimeMillis() - eatAction.getDuration());
+        assertEquals(Action.Status.SUCCESS, eatAction.update(finished));
+        assertEquals(30, finished.get("foodConsumed", Integer.class));
+        
+        // 没有目标位置的移动立即失败
+        assertEquals(Action.Status.FAILURE, new MoveAction().update(new ActionContext("test-agent")));
+    }
+
     @Test
     void testPlanNode() {
         Map<String, Object> state = new HashMap<>();
@@ -212,4 +235,241 @@ class GoapTests {
         // 应该返回2，因为energy和hunger都不匹配
         assertEquals(2, heuristic);
     }
+
+    @Test
+    void testPlanWithManyActions() {
+        GoapPlanner planner = new GoapPlanner();
+        
+        // 目标需要三个动作各自的效果，另有若干无关动作干扰搜索
+        List<Action> actions = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            actions.add(new TestAction("Noise" + i, 1)
+                    .addPrecondition("awake", true)
+                    .addEffect("noise" + i, i % 3));
+        }
+        for (String part : List.of("Wash", "Dress", "Pack")) {
+            actions.add(new TestAction(part, 2)
+                    .addPrecondition("awake", true)
+                    .addEffect(part.toLowerCase() + "Done", true));
+        }
+        
+        Map<String, Object> currentState = new HashMap<>();
+        currentState.put("awake", true);
+        currentState.put("name", "agent");
+        
+        Goal goal = new Goal("Ready", Map.of("washDone", true, "dressDone", true, "packDone", true), 1);
+        List<Action> plan = planner.createPlan(currentState, goal, actions);
+        
+        assertEquals(Set.of("Wash", "Dress", "Pack"), plan.stream().map(Action::getName).collect(Collectors.toSet()));
+        assertEquals(3, plan.size());
+        assertTrue(planner.validatePlan(plan, currentState));
+    }
+
+    @Test
+    void testPlanPrefersCheaperActions() {
+        GoapPlanner planner = new GoapPlanner();
+        List<Action> actions = List.of(
+                new TestAction("Expensive", 10).addEffect("fed", true),
+                new TestAction("Cook", 1).addEffect("hasFood", true),
+                new TestAction("EatFood", 1).addPrecondition("hasFood", true).addEffect("fed", true)
+        );
+        
+        Map<String, Object> currentState = new HashMap<>();
+        currentState.put("hasFood", false);
+        currentState.put("fed", false);
+        
+        // EatFood的前置条件在初始状态下不满足，按原有规则不参与规划，只能选择Expensive
+        List<Action> plan = planner.createPlan(currentState, new Goal("Fed", Map.of("fed", true), 1), actions);
+        assertEquals(List.of("Expensive"), plan.stream().map(Action::getName).toList());
+        
+        currentState.put("hasFood", true);
+        plan = planner.createPlan(currentState, new Goal("Fed", Map.of("fed", true), 1), actions);
+        assertEquals(List.of("EatFood"), plan.stream().map(Action::getName).toList());
+    }
+
+    @Test
+    void testWorldStateLayoutRoundTrip() {
+        Goal goal = new Goal("Goal", Map.of("energy", 80, "hasFood", true), 1);
+        List<Action> actions = List.of(new TestAction("Eat", 1).addPrecondition("hasFood", true).addEffect("energy", 80));
+        WorldStateLayout layout = WorldStateLayout.build(goal, actions);
+        
+        Map<String, Object> state = new HashMap<>();
+        state.put("energy", 50);
+        state.put("hasFood", true);
+        state.put("money", 100);
+        
+        long[] encoded = layout.encode(state);
+        WorldStateLayout.StateMask goalMask = layout.compile(goal.getDesiredState());
+        assertFalse(goalMask.matches(encoded));
+        assertEquals(1, goalMask.countUnsatisfied(encoded));
+        
+        long[] next = layout.compile(actions.get(0).getEffects()).apply(encoded);
+        assertTrue(goalMask.matches(next));
+        
+        // 字典外的取值在解码时保留原值
+        Map<String, Object> decoded = layout.decode(next, state);
+        assertEquals(80, decoded.get("energy"));
+        assertEquals(100, decoded.get("money"));
+        assertEquals(state, layout.decode(encoded, state));
+    }
+
+    @Test
+    void testPlanCacheReusesPlansAcrossAgents() {
+        PlanCache cache = new PlanCache(16);
+        GoapPlanner planner = new GoapPlanner(cache);
+        Goal goal = new Goal("Fed", Map.of("fed", true), 1);
+        
+        // 两个智能体各自持有内容相同的动作实例，状态中与规划无关的数值不同
+        List<Action> firstActions = List.of(new TestAction("Cook", 2).addEffect("fed", true));
+        List<Action> secondActions = List.of(new TestAction("Cook", 2).addEffect("fed", true));
+        Map<String, Object> firstState = new HashMap<>(Map.of("fed", false, "hunger", 80));
+        Map<String, Object> secondState = new HashMap<>(Map.of("fed", false, "hunger", 75));
+        
+        List<Action> firstPlan = planner.createPlan(firstState, goal, firstActions);
+        List<Action> secondPlan = planner.createPlan(secondState, goal, secondActions);
+        
+        assertEquals(1, firstPlan.size());
+        assertSame(firstActions.get(0), firstPlan.get(0));
+        assertSame(secondActions.get(0), secondPlan.get(0)); // 命中后映射回自己的动作实例
+        assertEquals(1L, cache.getStatistics().get("hits"));
+        assertEquals(1L, cache.getStatistics().get("misses"));
+        
+        // 动作集不同时指纹不同，不能命中
+        List<Action> otherActions = List.of(new TestAction("Cook", 5).addEffect("fed", true));
+        planner.createPlan(firstState, goal, otherActions);
+        assertEquals(2L, cache.getStatistics().get("misses"));
+    }
+
+    @Test
+    void testCachedPlanMustStillReachGoal() {
+        PlanCache cache = new PlanCache(16);
+        GoapPlanner planner = new GoapPlanner(cache);
+        Goal goal = new Goal("Fed", Map.of("fed", true), 1);
+        boolean[] broken = {false};
+        Action cook = new TestAction("Cook", 2) {
+            @Override
+            public Map<String, Object> applyEffects(Map<String, Object> currentState) {
+                return broken[0] ? new HashMap<>(currentState) : super.applyEffects(currentState);
+            }
+        }.addEffect("fed", true);
+        Map<String, Object> state = new HashMap<>(Map.of("fed", false));
+        
+        planner.createPlan(state, goal, List.of(cook));
+        broken[0] = true;
+        planner.createPlan(state, goal, List.of(cook));
+        
+        // 前置条件依然满足，但执行完后达不到目标，缓存的计划不能复用
+        assertEquals(1L, cache.getStatistics().get("validationFailures"));
+        assertEquals(0L, cache.getStatistics().get("hits"));
+        
+        // 缓存键比较完整的编码状态
+        assertEquals(new PlanCache.Key(new long[]{1, 2}, "Fed", 7), new PlanCache.Key(new long[]{1, 2}, "Fed", 7));
+        assertNotEquals(new PlanCache.Key(new long[]{1, 2}, "Fed", 7), new PlanCache.Key(new long[]{1, 3}, "Fed", 7));
+    }
+
+    @Test
+    void testPlanCacheEvictsLeastRecentlyUsed() {
+        PlanCache cache = new PlanCache(2);
+        GoapPlanner planner = new GoapPlanner(cache);
+        List<Action> actions = List.of(
+                new TestAction("A", 1).addEffect("a", true),
+                new TestAction("B", 1).addEffect("b", true),
+                new TestAction("C", 1).addEffect("c", true));
+        Map<String, Object> state = new HashMap<>(Map.of("a", false, "b", false, "c", false));
+        
+        for (String key : List.of("a", "b", "c")) {
+            planner.createPlan(state, new Goal(key, Map.of(key, true), 1), actions);
+        }
+        
+        assertEquals(2, cache.getStatistics().get("size"));
+        assertEquals(1L, cache.getStatistics().get("evictions"));
+    }
+
+    @Test
+    void testPlanningServiceRunsOffCallerThreadWithinBudget() throws Exception {
+        PlanningService service = new PlanningService(new GoapPlanner(), 1, 4, 2);
+        try {
+            List<Action> actions = List.of(new TestAction("Cook", 1).addEffect("fed", true));
+            Map<String, Object> state = new HashMap<>(Map.of("fed", false));
+            Goal goal = new Goal("Fed", Map.of("fed", true), 1);
+            
+            PlanningService.PlanRequest first = service.submit("a1", state, goal, actions);
+            PlanningService.PlanRequest second = service.submit("a2", state, goal, actions);
+            assertNotNull(first);
+            assertNotNull(second);
+            
+            // 本tick预算已用完，直到下一个tick才接受新请求
+            assertNull(service.submit("a3", state, goal, actions));
+            service.beginTick();
+            assertNotNull(service.submit("a3", state, goal, actions));
+            
+            first.getFuture().get(5, TimeUnit.SECONDS);
+            assertTrue(first.isDone());
+            assertEquals(List.of("Cook"), first.getPlan().stream().map(Action::getName).toList());
+            assertEquals(1L, service.getStatistics().get("deferred"));
+        } finally {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    void testRejectedRequestDoesNotConsumeBudget() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        GoapPlanner blocking = new GoapPlanner() {
+            @Override
+            public List<Action> createPlan(Map<String, Object> currentState, Goal goal, List<Action> availableActions) {
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.createPlan(currentState, goal, availableActions);
+            }
+        };
+        PlanningService service = new PlanningService(blocking, 1, 1, 3);
+        try {
+            List<Action> actions = List.of(new TestAction("Cook", 1).addEffect("fed", true));
+            Map<String, Object> state = Map.of("fed", false);
+            Goal goal = new Goal("Fed", Map.of("fed", true), 1);
+
+            // 一个请求占住工作线程、一个占满队列，之后的请求被拒绝
+            PlanningService.PlanRequest running = service.submit("a1", state, goal, actions);
+            assertNotNull(running);
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (service.getQueuedCount() > 0 && System.nanoTime() < deadline) {
+                Thread.onSpinWait();
+            }
+            assertNotNull(service.submit("a2", state, goal, actions));
+            assertNull(service.submit("a3", state, goal, actions));
+            assertEquals(1L, service.getStatistics().get("rejected"));
+
+            // 被拒绝的请求归还预算，队列空出后本tick仍可提交
+            release.countDown();
+            running.getFuture().get(5, TimeUnit.SECONDS);
+            deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (service.getQueuedCount() > 0 && System.nanoTime() < deadline) {
+                Thread.onSpinWait();
+            }
+            assertNotNull(service.submit("a3", state, goal, actions));
+            assertEquals(0L, service.getStatistics().get("deferred"));
+        } finally {
+            release.countDown();
+            service.shutdown();
+        }
+    }
+
+    /**
+     * 只用于规划的测试动作
+     */
+    private static class TestAction extends Action {
+        TestAction(String name, int cost) {
+            super(name);
+            this.cost = cost;
+        }
+        
+        @Override
+        public boolean execute(ActionContext context) {
+            return true;
+        }
+    }
 }
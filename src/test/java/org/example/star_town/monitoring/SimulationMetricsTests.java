@@ -0,0 +1,75 @@
+package org.example.star_town.monitoring;
+
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.star_town.agent.AgentConfig;
+import org.example.star_town.agent.AgentManager;
+import org.example.star_town.agent.AgentType;
+import org.example.star_town.ai.goap.Action;
+import org.example.star_town.ai.goap.ActionContext;
+import org.example.star_town.ai.goap.Goal;
+import org.example.star_town.service.GameEventService;
+import org.example.star_town.world.GameWorld;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 模拟吞吐量指标测试
+ */
+class SimulationMetricsTests {
+
+    @Test
+    void testMetersReflectSimulationStatistics() {
+        AgentManager agentManager = new AgentManager(null);
+        agentManager.setParallelTick(false);
+        GameWorld gameWorld = new GameWorld(agentManager, new GameEventService(null, null, null, new TickProfiler()));
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        new SimulationMetrics(agentManager, gameWorld, gameWorld.getGameEventService()).bindTo(registry);
+
+        agentManager.createAgent("a", "a", AgentType.RESIDENT, new AgentConfig("a", "a", AgentType.RESIDENT));
+        agentManager.createAgent("b", "b", AgentType.WORKER, new AgentConfig("b", "b", AgentType.WORKER));
+        agentManager.start();
+        agentManager.updateAllAgents();
+        agentManager.updateAllAgents();
+        agentManager.stop();
+
+        Action eat = new Action("Eat") {
+            @Override
+            public boolean execute(ActionContext context) {
+                return true;
+            }
+        };
+        eat.addEffect("fed", true);
+        Goal fed = new Goal("Fed").addDesiredState("fed", true);
+        Goal flying = new Goal("Fly").addDesiredState("flying", true);
+        agentManager.getPlanner().createPlan(Map.of(), fed, List.of(eat));
+        agentManager.getPlanner().createPlan(Map.of(), flying, List.of(eat));
+
+        gameWorld.getNearbyAgents(0, 0, 10);
+        gameWorld.getNearbyObjects(0, 0, 10);
+
+        assertEquals(2.0, registry.get("startown.ticks").functionCounter().count());
+        assertEquals(2.0, registry.get("startown.agents").gauge().value());
+        double byStatus = registry.get("startown.agents.status").gauges().stream()
+                .mapToDouble(gauge -> gauge.value()).sum();
+        assertEquals(2.0, byStatus);
+
+        assertEquals(2.0, registry.get("startown.goap.plans").functionCounter().count());
+        assertEquals(1.0, registry.get("startown.goap.plan.failures").functionCounter().count());
+        assertTrue(registry.get("startown.goap.plan.iterations").functionCounter().count() >= 2);
+        assertEquals(2.0, registry.get("startown.goap.plan.search").functionTimer().count());
+
+        FunctionTimer agentQueries = registry.get("startown.spatial.query").tag("index", "agents").functionTimer();
+        FunctionTimer objectQueries = registry.get("startown.spatial.query").tag("index", "objects").functionTimer();
+        assertTrue(agentQueries.count() >= 1);
+        assertEquals(1.0, objectQueries.count());
+
+        // 未启用异步事件管道时事件指标为0
+        assertEquals(0.0, registry.get("startown.events").tag("result", "published").functionCounter().count());
+        assertEquals(0.0, registry.get("startown.events.buffered").gauge().value());
+    }
+}
@@ -0,0 +1,87 @@
+package org.example.star_town.monitoring;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.star_town.agent.AgentConfig;
+import org.example.star_town.agent.AgentManager;
+import org.example.star_town.agent.AgentType;
+import org.example.star_town.service.BehaviorTreeConfigService;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * tick剖析器测试
+ */
+class TickProfilerTests {
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testWindowReportContainsPhasePercentilesAndSlowestAgents() {
+        TickProfiler profiler = new TickProfiler();
+        profiler.setTopN(2);
+        for (int i = 1; i <= 100; i++) {
+            profiler.record(TickPhase.GOAP_PLAN, i * 1_000L);
+        }
+        profiler.recordAgent("fast", 1_000);
+        profiler.recordAgent("slow", 90_000);
+        profiler.recordAgent("medium", 40_000);
+        profiler.recordAgent("fast", 2_000);
+        profiler.recordNode("CheckHunger", 500);
+        profiler.recordNode("CheckHunger", 700);
+        profiler.recordNode("Eat", 100);
+        profiler.rotate();
+
+        Map<String, Object> window = (Map<String, Object>) profiler.getReport().get("lastWindow");
+        Map<String, Object> plan = (Map<String, Object>) ((Map<String, Object>) window.get("phases")).get("goap_plan");
+        assertEquals(100L, plan.get("count"));
+        assertEquals(50.0, (double) plan.get("p50Micros"), 0.1);
+        assertEquals(100.0, (double) plan.get("maxMicros"), 0.1);
+        assertEquals(0.0001, profiler.getWindowPercentileSeconds(TickPhase.GOAP_PLAN, 100), 0.000001);
+
+        List<Map<String, Object>> agents = (List<Map<String, Object>>) window.get("slowestAgents");
+        assertEquals(List.of("slow", "medium"), agents.stream().map(agent -> agent.get("agentId")).toList());
+        List<Map<String, Object>> nodes = (List<Map<String, Object>>) window.get("slowestNodes");
+        assertEquals("CheckHunger", nodes.get(0).get("node"));
+        assertEquals(2L, nodes.get(0).get("calls"));
+
+        // 累计统计跨窗口保留，窗口统计在轮转后清空
+        profiler.rotate();
+        window = (Map<String, Object>) profiler.getReport().get("lastWindow");
+        assertEquals(0L, ((Map<String, Object>) ((Map<String, Object>) window.get("phases")).get("goap_plan")).get("count"));
+        assertEquals(100, profiler.getCount(TickPhase.GOAP_PLAN));
+        assertTrue(((List<?>) window.get("slowestAgents")).isEmpty());
+    }
+
+    @Test
+    void testAgentPhasesAreRecordedOnSampledTicksOnly() {
+        AgentManager agentManager = new AgentManager(new BehaviorTreeConfigService(new ObjectMapper()));
+        TickProfiler profiler = new TickProfiler();
+        profiler.setSampleInterval(2);
+        agentManager.setProfiler(profiler);
+        agentManager.setParallelTick(false);
+        for (int i = 0; i < 3; i++) {
+            String id = "agent-" + i;
+            agentManager.createAgent(id, id, AgentType.RESIDENT, new AgentConfig(id, id, AgentType.RESIDENT));
+        }
+        agentManager.start();
+        try {
+            for (int tick = 0; tick < 4; tick++) {
+                agentManager.updateAllAgents();
+            }
+        } finally {
+            agentManager.stop();
+        }
+
+        assertEquals(4, profiler.getCount(TickPhase.TICK));
+        assertEquals(6, profiler.getCount(TickPhase.AGENT), "2 sampled ticks x 3 agents");
+        assertEquals(6, profiler.getCount(TickPhase.BEHAVIOR_TREE));
+        assertFalse(profiler.isSampling());
+
+        profiler.setEnabled(false);
+        profiler.record(TickPhase.TICK, 1_000);
+        assertEquals(4, profiler.getCount(TickPhase.TICK));
+    }
+}
@@ -0,0 +1,100 @@
+package org.example.star_town.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.star_town.agent.Agent;
+import org.example.star_town.agent.AgentConfig;
+import org.example.star_town.agent.AgentManager;
+import org.example.star_town.agent.AgentType;
+import org.example.star_town.world.Position;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 智能体写后持久化测试
+ */
+class AgentPersistenceServiceTests {
+
+    private AgentManager agentManager;
+    private JdbcTemplate jdbcTemplate;
+    private AgentPersistenceService persistenceService;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:write-behind-" + System.nanoTime() + ";DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE agents (id VARCHAR(255) PRIMARY KEY, name VARCHAR(255) NOT NULL, "
+                + "type VARCHAR(64) NOT NULL, position_x DOUBLE, position_y DOUBLE, state_json CLOB, "
+                + "memory_json CLOB, config_json CLOB, status VARCHAR(64), created_at TIMESTAMP, "
+                + "updated_at TIMESTAMP, last_active TIMESTAMP, is_active BOOLEAN)");
+
+        agentManager = new AgentManager(null);
+        persistenceService = new AgentPersistenceService(agentManager, jdbcTemplate, new ObjectMapper());
+    }
+
+    private Agent createAgent(String id) {
+        return agentManager.createAgent(id, id, AgentType.RESIDENT, new AgentConfig(id, id, AgentType.RESIDENT));
+    }
+
+    @Test
+    void testNewAgentsInsertedAndCleanAgentsSkipped() {
+        createAgent("alice");
+        createAgent("bob");
+
+        assertEquals(2, persistenceService.flush());
+        assertEquals(2, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM agents", Integer.class));
+        assertEquals(2L, persistenceService.getStatistics().get("rowsInserted"));
+
+        // 没有修改时不写入
+        assertEquals(0, persistenceService.flush());
+    }
+
+    @Test
+    void testUpdatesCoalescedIntoOneRowWrite() {
+        Agent alice = createAgent("alice");
+        persistenceService.flush();
+        String originalState = jdbcTemplate.queryForObject(
+                "SELECT state_json FROM agents WHERE id = 'alice'", String.class);
+
+        // 多次移动合并为一次写入，只更新位置列，不重写状态JSON
+        alice.setPosition(new Position(10, 20));
+        alice.setPosition(new Position(30, 40));
+        jdbcTemplate.update("UPDATE agents SET state_json = 'untouched' WHERE id = 'alice'");
+        assertEquals(1, persistenceService.flush());
+
+        Map<String, Object> row = jdbcTemplate.queryForMap("SELECT * FROM agents WHERE id = 'alice'");
+        assertEquals(30.0, row.get("POSITION_X"));
+        assertEquals(40.0, row.get("POSITION_Y"));
+        assertEquals("untouched", jdbcTemplate.queryForObject(
+                "SELECT state_json FROM agents WHERE id = 'alice'", String.class));
+
+        // 状态变化时写入JSON列
+        alice.setState("hunger", 99);
+        assertEquals(1, persistenceService.flush());
+        String newState = jdbcTemplate.queryForObject("SELECT state_json FROM agents WHERE id = 'alice'", String.class);
+        assertNotEquals(originalState, newState);
+        assertTrue(newState.contains("\"hunger\":99"));
+    }
+
+    @Test
+    void testCheckpointWritesAllAgentsInBatches() {
+        for (int i = 0; i < 25; i++) {
+            createAgent("agent-" + i);
+        }
+        persistenceService.flush();
+        jdbcTemplate.update("UPDATE agents SET status = NULL");
+
+        assertEquals(25, persistenceService.checkpointAll());
+        assertEquals(25, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM agents WHERE status = 'IDLE'", Integer.class));
+        Map<String, Object> stats = persistenceService.getStatistics();
+        assertEquals(0, stats.get("pendingAgents"));
+        assertEquals(50L, stats.get("rowsWritten"));
+    }
+}
@@ -0,0 +1,123 @@
+package org.example.star_town.service;
+
+import org.example.star_town.agent.Agent;
+import org.example.star_town.agent.AgentArchetype;
+import org.example.star_town.agent.AgentConfig;
+import org.example.star_town.agent.AgentManager;
+import org.example.star_town.agent.AgentType;
+import org.example.star_town.monitoring.TickProfiler;
+import org.example.star_town.world.GameWorld;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 智能体批量生成测试
+ */
+class AgentSpawnServiceTests {
+
+    private AgentManager agentManager;
+    private AgentSpawnService spawnService;
+
+    @BeforeEach
+    void setUp() {
+        agentManager = new AgentManager(null);
+        GameWorld gameWorld = new GameWorld(agentManager, new GameEventService(null, null, null, new TickProfiler()));
+        spawnService = new AgentSpawnService(agentManager, gameWorld);
+    }
+
+    private static AgentSpawnService.SpawnRequest request(int count, long seed) {
+        AgentSpawnService.SpawnRequest request = new AgentSpawnService.SpawnRequest();
+        request.setCount(count);
+        request.setStartIndex(0L);
+        request.setSeed(seed);
+        Map<AgentType, Double> types = new LinkedHashMap<>();
+        types.put(AgentType.RESIDENT, 3.0);
+        types.put(AgentType.WORKER, 1.0);
+        request.setTypes(types);
+        request.setNeeds(Map.of("hunger", new AgentSpawnService.Range(20, 40)));
+        request.setX(100);
+        request.setY(100);
+        request.setWidth(200);
+        request.setHeight(50);
+        return request;
+    }
+
+    @Test
+    void testSpawnedAgentsShareArchetypeAndFollowRequest() {
+        Map<String, Object> result = spawnService.spawn(request(2000, 42));
+
+        assertEquals(2000, result.get("created"));
+        assertEquals(2000, agentManager.getAgentCount());
+        @SuppressWarnings("unchecked")
+        Map<String, Integer> byType = (Map<String, Integer>) result.get("byType");
+        assertTrue(byType.get("RESIDENT") > byType.get("WORKER") * 2);
+
+        AgentArchetype resident = AgentArchetype.of(AgentType.RESIDENT);
+        for (Agent agent : agentManager.getAllAgents()) {
+            int hunger = agent.getState("hunger", Integer.class);
+            assertTrue(hunger >= 20 && hunger <= 40);
+            assertTrue(agent.getPosition().getX() >= 100 && agent.getPosition().getX() <= 300);
+            assertTrue(agent.getPosition().getY() >= 100 && agent.getPosition().getY() <= 150);
+            if (agent.getType() == AgentType.RESIDENT) {
+                assertSame(resident.getActions().get(0), agent.getAvailableActions().get(0));
+                assertSame(resident.getGoals().get(0), agent.getGoals().get(0));
+            }
+        }
+
+        // 重置单个智能体不修改共享的目标实例
+        Agent first = agentManager.getAgent("agent-0");
+        first.reset();
+        assertTrue(resident.getGoals().get(0).isPersistent());
+    }
+
+    @Test
+    void testSameSeedReproducesAgentsAndExistingIdsSkipped() {
+        spawnService.spawn(request(500, 7));
+        Agent original = agentManager.getAgent("agent-123");
+        AgentType type = original.getType();
+        double x = original.getPosition().getX();
+        Object hunger = original.getState().get("hunger");
+
+        Map<String, Object> again = spawnService.spawn(request(500, 7));
+        assertEquals(0, again.get("created"));
+        assertEquals(500, again.get("skipped"));
+
+        agentManager.removeAllAgents();
+        spawnService.spawn(request(500, 7));
+        Agent restored = agentManager.getAgent("agent-123");
+        assertEquals(type, restored.getType());
+        assertEquals(x, restored.getPosition().getX());
+        assertEquals(hunger, restored.getState().get("hunger"));
+
+        AgentSpawnService.SpawnRequest invalid = request(0, 7);
+        assertThrows(IllegalArgumentException.class, () -> spawnService.spawn(invalid));
+    }
+
+    @Test
+    void testExistingAgentKeptAndNeedRangesValidated() {
+        Agent existing = agentManager.createAgent("agent-3", "agent-3", AgentType.RESIDENT,
+                new AgentConfig("agent-3", "agent-3", AgentType.RESIDENT));
+        Map<String, Object> result = spawnService.spawn(request(10, 7));
+        assertEquals(9, result.get("created"));
+        assertEquals(1, result.get("skipped"));
+        assertSame(existing, agentManager.getAgent("agent-3"));
+        assertEquals(10, agentManager.getAgentCount());
+
+        // 需求范围必须落在0..100内，避免上限为Integer.MAX_VALUE时取样溢出
+        for (AgentSpawnService.Range range : new AgentSpawnService.Range[]{
+                new AgentSpawnService.Range(-1, 10),
+                new AgentSpawnService.Range(0, Integer.MAX_VALUE),
+                new AgentSpawnService.Range(60, 40)}) {
+            AgentSpawnService.SpawnRequest invalid = request(10, 7);
+            invalid.setStartIndex(100L);
+            invalid.setNeeds(Map.of("hunger", range));
+            assertThrows(IllegalArgumentException.class, () -> spawnService.spawn(invalid));
+        }
+        assertEquals(10, agentManager.getAgentCount());
+    }
+}
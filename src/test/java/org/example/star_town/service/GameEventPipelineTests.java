@@ -0,0 +1,182 @@
+package org.example.star_town.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 异步事件管道测试
+ */
+class GameEventPipelineTests {
+
+    private static GameEventPipeline.PendingEvent event(String type) {
+        return new GameEventPipeline.PendingEvent(type, null, null, null, type, Map.of(), null, null,
+                LocalDateTime.now());
+    }
+
+    @Test
+    void testRingBufferDeliversEveryElementFromConcurrentProducers() throws Exception {
+        MpscRingBuffer<Integer> buffer = new MpscRingBuffer<>(100);
+        assertEquals(128, buffer.capacity());
+
+        int producers = 4;
+        int perProducer = 10_000;
+        ExecutorService executor = Executors.newFixedThreadPool(producers);
+        for (int p = 0; p < producers; p++) {
+            int base = p * perProducer;
+            executor.submit(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    while (!buffer.offer(base + i)) {
+                        Thread.yield();
+                    }
+                }
+            });
+        }
+
+        Set<Integer> received = new HashSet<>();
+        List<Integer> drained = new ArrayList<>();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (received.size() < producers * perProducer && System.nanoTime() < deadline) {
+            buffer.drainTo(drained, 64);
+            received.addAll(drained);
+            drained.clear();
+        }
+        executor.shutdown();
+
+        assertEquals(producers * perProducer, received.size());
+        assertNull(buffer.poll());
+    }
+
+    @Test
+    void testWriterFlushesBySizeAndByTime() {
+        List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+        GameEventPipeline pipeline = new GameEventPipeline(batch -> batchSizes.add(batch.size()),
+                1024, 50, 20, GameEventPipeline.BackpressurePolicy.DROP, 1, 0);
+        try {
+            for (int i = 0; i < 120; i++) {
+                assertTrue(pipeline.publish(event("TEST")));
+            }
+            // 剩余的20个事件不足一批，由刷新间隔触发写入
+            assertTrue(pipeline.awaitDrained(2000));
+            assertEquals(120, batchSizes.stream().mapToInt(Integer::intValue).sum());
+            assertTrue(batchSizes.stream().allMatch(size -> size <= 50));
+            assertEquals(120L, pipeline.getStatistics().get("written"));
+        } finally {
+            pipeline.close();
+        }
+    }
+
+    @Test
+    void testDropPolicyNeverBlocksProducerOnSlowWriter() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        GameEventPipeline pipeline = new GameEventPipeline(batch -> release.await(),
+                16, 4, 1, GameEventPipeline.BackpressurePolicy.DROP, 1, 0);
+        try {
+            long start = System.nanoTime();
+            int accepted = 0;
+            for (int i = 0; i < 1000; i++) {
+                if (pipeline.publish(event("TEST"))) {
+                    accepted++;
+                }
+            }
+            assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+            assertTrue(accepted < 1000);
+            assertEquals((long) (1000 - accepted), pipeline.getStatistics().get("dropped"));
+        } finally {
+            release.countDown();
+            pipeline.close();
+        }
+    }
+
+    @Test
+    void testSamplePolicyThinsEventsAboveHighWaterMark() throws Exception {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        GameEventPipeline pipeline = new GameEventPipeline(batch -> {
+            entered.countDown();
+            release.await();
+        }, 64, 1, 1, GameEventPipeline.BackpressurePolicy.SAMPLE, 4, 0);
+        try {
+            // 写线程取走第一个事件后阻塞，之后缓冲区只进不出
+            assertTrue(pipeline.publish(event("FIRST")));
+            assertTrue(entered.await(5, TimeUnit.SECONDS));
+            for (int i = 0; i < 200; i++) {
+                pipeline.publish(event("TEST"));
+            }
+            // 高水位48以下全部接受；其余152个每4个保留1个，保留的38个中16个填满缓冲区，22个因已满丢弃
+            Map<String, Object> stats = pipeline.getStatistics();
+            assertEquals(1L + 48 + 16, stats.get("published"));
+            assertEquals(114L, stats.get("sampledOut"));
+            assertEquals(22L, stats.get("dropped"));
+            assertEquals(64, stats.get("buffered"));
+        } finally {
+            release.countDown();
+            pipeline.close();
+        }
+    }
+
+    @Test
+    void testCloseWaitsForPublishInProgress() throws Exception {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        GameEventPipeline pipeline = new GameEventPipeline(batch -> {
+            entered.countDown();
+            release.await();
+        }, 16, 16, 1, GameEventPipeline.BackpressurePolicy.BLOCK, 1, 5000);
+        assertTrue(pipeline.publish(event("FIRST")));
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 16; i++) {
+            assertTrue(pipeline.publish(event("E" + i)));
+        }
+
+        // 缓冲区已满，发布方等待写线程腾出空间时管道开始关闭
+        boolean[] accepted = new boolean[1];
+        Thread publisher = new Thread(() -> accepted[0] = pipeline.publish(event("LAST")));
+        publisher.start();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!Long.valueOf(1).equals(pipeline.getStatistics().get("blocked")) && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+        Thread closer = new Thread(pipeline::close);
+        closer.start();
+        while (closer.getState() != Thread.State.TIMED_WAITING && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+        assertFalse(pipeline.publish(event("LATE")));
+
+        release.countDown();
+        publisher.join(5000);
+        closer.join(5000);
+        assertTrue(accepted[0]);
+        assertEquals(18L, pipeline.getWrittenCount());
+        assertEquals(pipeline.getPublishedCount(), pipeline.getWrittenCount());
+    }
+
+    @Test
+    void testClosePersistsBufferedEvents() {
+        List<String> written = Collections.synchronizedList(new ArrayList<>());
+        GameEventPipeline pipeline = new GameEventPipeline(
+                batch -> batch.forEach(e -> written.add(e.type())),
+                256, 1000, 60_000, GameEventPipeline.BackpressurePolicy.BLOCK, 1, 10);
+        for (int i = 0; i < 30; i++) {
+            pipeline.publish(event("E" + i));
+        }
+        pipeline.close();
+
+        assertEquals(30, written.size());
+        assertEquals("E0", written.get(0));
+        assertFalse(pipeline.publish(event("LATE")));
+    }
+}
@@ -0,0 +1,105 @@
+package org.example.star_town.world;
+
+import org.example.star_town.agent.Agent;
+import org.example.star_town.agent.AgentConfig;
+import org.example.star_town.agent.AgentType;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 智能体空间索引测试
+ */
+class AgentSpatialIndexTests {
+
+    private static Agent createAgent(String id, AgentSpatialIndex index, double x, double y) {
+        Agent agent = new Agent(id, id, AgentType.RESIDENT, new AgentConfig(id, id, AgentType.RESIDENT));
+        agent.setSpatialIndex(index);
+        agent.setPosition(new Position(x, y));
+        return agent;
+    }
+
+    @Test
+    void testQueryReturnsAgentsWithinRadius() {
+        AgentSpatialIndex index = new AgentSpatialIndex(10, 15);
+        Agent center = createAgent("center", index, 50, 50);
+        Agent near = createAgent("near", index, 58, 56);
+        Agent edge = createAgent("edge", index, 35, 50);
+        createAgent("far", index, 90, 90);
+        Agent negative = createAgent("negative", index, -5, -5);
+
+        List<Agent> nearby = index.query(50, 50, 15);
+        assertEquals(3, nearby.size());
+        assertTrue(nearby.containsAll(List.of(center, near, edge)));
+
+        // 负坐标落在独立的网格中
+        assertEquals(List.of(negative), index.query(-4, -4, 2));
+
+        assertEquals(2, index.countNeighbors(center));
+        assertEquals(5, index.size());
+    }
+
+    @Test
+    void testMovingAgentUpdatesCellIncrementally() {
+        AgentSpatialIndex index = new AgentSpatialIndex(10, 5);
+        Agent mover = createAgent("mover", index, 1, 1);
+        Agent other = createAgent("other", index, 100, 100);
+        assertEquals(0, index.countNeighbors(other));
+
+        mover.setPosition(new Position(2, 2)); // 同一网格内移动
+        assertEquals(2, index.getStatistics().get("occupiedCells"));
+
+        mover.setPosition(new Position(98, 97)); // 跨网格移动
+        assertEquals(1, index.countNeighbors(other));
+        assertTrue(index.query(1, 1, 5).isEmpty());
+        assertEquals(2, index.size());
+
+        index.remove(mover);
+        assertEquals(0, index.countNeighbors(other));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void testRebuildWithNewCellSize() {
+        AgentSpatialIndex index = new AgentSpatialIndex(100, 20);
+        Agent first = createAgent("first", index, 10, 10);
+        createAgent("second", index, 25, 10);
+
+        index.setCellSize(5);
+        assertEquals(2, index.size());
+        assertEquals(1, index.countNeighbors(first));
+        assertEquals(2, index.query(15, 10, 12).size());
+    }
+
+    @Test
+    void testAgentEnteringCellWhileLastMemberLeavesStaysIndexed() throws InterruptedException {
+        AgentSpatialIndex index = new AgentSpatialIndex(10, 5);
+        Agent leaving = createAgent("leaving", index, 5, 5);
+        Thread[] remover = new Thread[1];
+        // 智能体加入网格集合时（计算哈希值），另一个线程移除网格中唯一的智能体
+        Agent entering = new Agent("entering", "entering", AgentType.RESIDENT,
+                new AgentConfig("entering", "entering", AgentType.RESIDENT)) {
+            @Override
+            public int hashCode() {
+                if (remover[0] == null) {
+                    remover[0] = new Thread(() -> index.remove(leaving));
+                    remover[0].start();
+                    try {
+                        remover[0].join(200);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return super.hashCode();
+            }
+        };
+        entering.setPosition(new Position(6, 6));
+        index.update(entering);
+        remover[0].join();
+
+        assertEquals(List.of(entering), index.query(5, 5, 3));
+        assertEquals(1, index.size());
+    }
+}
@@ -0,0 +1,44 @@
+package org.example.star_town.world;
+
+import org.example.star_town.agent.Agent;
+import org.example.star_town.agent.AgentConfig;
+import org.example.star_town.agent.AgentManager;
+import org.example.star_town.agent.AgentType;
+import org.example.star_town.monitoring.TickProfiler;
+import org.example.star_town.service.GameEventService;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 游戏世界tick阶段测试
+ */
+class GameWorldTests {
+
+    @Test
+    void testNeedsDecayEveryInterval() {
+        AgentManager agentManager = new AgentManager(null);
+        GameWorld gameWorld = new GameWorld(agentManager, new GameEventService(null, null, null, new TickProfiler()));
+        gameWorld.setNeedDecayIntervalTicks(2);
+        Agent agent = agentManager.createAgent("agent-1", "agent-1", AgentType.RESIDENT,
+                new AgentConfig("agent-1", "agent-1", AgentType.RESIDENT));
+        agent.setState("hunger", 99);
+        agent.setState("energy", 70);
+        agent.drainDirtyFlags();
+
+        gameWorld.update();
+        assertEquals(99, agent.getState("hunger", Integer.class));
+        assertFalse(agent.hasPendingChanges());
+
+        gameWorld.update();
+        assertEquals(100, agent.getState("hunger", Integer.class));
+        assertEquals(69, agent.getState("energy", Integer.class));
+        assertEquals(Agent.DIRTY_STATE, agent.drainDirtyFlags());
+
+        // 已到上限的需求不再变化
+        gameWorld.update();
+        gameWorld.update();
+        assertEquals(100, agent.getState("hunger", Integer.class));
+        assertEquals(68, agent.getState("energy", Integer.class));
+    }
+}
@@ -0,0 +1,74 @@
+package org.example.star_town.world;
+
+import org.example.star_town.agent.Agent;
+import org.example.star_town.agent.AgentConfig;
+import org.example.star_town.agent.AgentType;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 细节层次管理测试
+ */
+class LevelOfDetailManagerTests {
+
+    private static Agent agent(String id, double x, double y) {
+        Agent agent = new Agent(id, id, AgentType.RESIDENT, new AgentConfig(id, id, AgentType.RESIDENT));
+        agent.setPosition(new Position(x, y));
+        return agent;
+    }
+
+    @Test
+    void testAgentsOutsideRegionsSwitchToLowDetailAndRehydrate() {
+        LevelOfDetailManager lod = new LevelOfDetailManager();
+        lod.getNeedsModel().setHalfLifeMillis(10_000);
+        Agent watched = agent("watched", 10, 10);
+        Agent background = agent("background", 500, 500);
+        background.setState("hunger", 85);
+        background.setState("energy", 20);
+        List<Agent> agents = List.of(watched, background);
+
+        // 没有关注区域时所有智能体都是完整模拟
+        lod.refresh(agents, 0, 1000);
+        assertFalse(background.isLowDetail());
+
+        lod.putRegion(new InterestRegion("plaza", 0, 0, 50));
+        lod.refresh(agents, 1, 1000);
+        assertFalse(watched.isLowDetail());
+        assertTrue(background.isLowDetail());
+        assertEquals(1, lod.getStatistics().get("lowDetailAgents"));
+
+        // 低细节智能体不执行AI更新
+        long lastUpdate = background.getLastUpdateTime();
+        background.setLastUpdateTime(0);
+        background.update();
+        assertEquals(0, background.getLastUpdateTime());
+        background.setLastUpdateTime(lastUpdate);
+
+        // 离开一个半衰期后恢复：需求值向稳态回归一半
+        lod.putRegion(new InterestRegion("plaza", 500, 500, 50));
+        lod.refresh(agents, 11, 1000);
+        assertFalse(background.isLowDetail());
+        assertTrue(watched.isLowDetail());
+        assertEquals(65, background.getState("hunger", Integer.class)); // 45 + (85 - 45) / 2
+        assertEquals(40, background.getState("energy", Integer.class)); // 60 + (20 - 60) / 2
+        assertEquals(1L, lod.getStatistics().get("promotedTotal"));
+
+        // 移除所有区域后全部恢复完整模拟
+        lod.removeRegion("plaza");
+        lod.refresh(agents, 12, 1000);
+        assertFalse(watched.isLowDetail());
+        assertEquals(0, lod.getStatistics().get("lowDetailAgents"));
+    }
+
+    @Test
+    void testNeedsModelConvergesToEquilibrium() {
+        StatisticalNeedsModel model = new StatisticalNeedsModel();
+        assertEquals(90, model.project(90, 45, 0));
+        assertEquals(45, model.project(90, 45, model.getHalfLifeMillis() * 20));
+        assertEquals(45, model.project(0, 45, Long.MAX_VALUE / 2));
+        assertThrows(IllegalArgumentException.class, () -> new InterestRegion("bad", 0, 0, 0));
+    }
+}
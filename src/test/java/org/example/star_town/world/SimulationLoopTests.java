@@ -0,0 +1,114 @@
+package org.example.star_town.world;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 固定步长模拟循环测试
+ * 使用可控时钟直接驱动runDue，不启动循环线程
+ */
+class SimulationLoopTests {
+
+    private static final long STEP = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final AtomicLong clock = new AtomicLong();
+    private final List<Long> steps = new ArrayList<>();
+
+    private SimulationLoop loop(int maxCatchUpTicks, SimulationLoop.OverrunPolicy policy) {
+        return new SimulationLoop(steps::add, 10, maxCatchUpTicks, policy, clock::get);
+    }
+
+    /**
+     * 执行所有已到期的tick，返回下一次tick的计划时间
+     */
+    private static long runAllDue(SimulationLoop loop, long nextTick) {
+        long next = loop.runDue(nextTick);
+        while (next != nextTick) {
+            nextTick = next;
+            next = loop.runDue(nextTick);
+        }
+        return next;
+    }
+
+    @Test
+    void testTicksRunOnScheduleAndCatchUpWithinLimit() {
+        SimulationLoop loop = loop(3, SimulationLoop.OverrunPolicy.SKIP);
+        long nextTick = loop.runDue(0);
+        assertEquals(STEP, nextTick);
+
+        // 未到期时不执行
+        clock.set(STEP / 2);
+        assertEquals(STEP, loop.runDue(nextTick));
+        assertEquals(List.of(1L), steps);
+
+        // 落后两步半：在允许追赶的步数内逐步补上，不丢弃
+        clock.set(STEP + STEP * 5 / 2);
+        nextTick = runAllDue(loop, nextTick);
+        assertEquals(4 * STEP, nextTick);
+        assertEquals(List.of(1L, 1L, 1L, 1L), steps);
+
+        Map<String, Object> stats = loop.getStatistics();
+        assertEquals(4L, stats.get("executedTicks"));
+        assertEquals(0L, stats.get("droppedTicks"));
+        assertEquals(0L, stats.get("coalescedTicks"));
+    }
+
+    @Test
+    void testSkipDropsExcessTicks() {
+        SimulationLoop loop = loop(2, SimulationLoop.OverrunPolicy.SKIP);
+        clock.set(10 * STEP);
+
+        long nextTick = runAllDue(loop, 0);
+
+        // 落后10步，追赶2步，丢弃8步；游戏时间只推进3步
+        assertEquals(11 * STEP, nextTick);
+        assertEquals(List.of(1L, 1L, 1L), steps);
+        Map<String, Object> stats = loop.getStatistics();
+        assertEquals(3L, stats.get("executedTicks"));
+        assertEquals(8L, stats.get("droppedTicks"));
+        assertEquals(0L, stats.get("coalescedTicks"));
+    }
+
+    @Test
+    void testCoalesceMergesExcessTicksIntoOneStep() {
+        SimulationLoop loop = loop(2, SimulationLoop.OverrunPolicy.COALESCE);
+        clock.set(10 * STEP);
+
+        long nextTick = runAllDue(loop, 0);
+
+        // 多余的8步合并到第一次执行中，游戏时间推进的总步数与经过的时间一致
+        assertEquals(11 * STEP, nextTick);
+        assertEquals(List.of(9L, 1L, 1L), steps);
+        assertEquals(11L, steps.stream().mapToLong(Long::longValue).sum());
+        Map<String, Object> stats = loop.getStatistics();
+        assertEquals(3L, stats.get("executedTicks"));
+        assertEquals(0L, stats.get("droppedTicks"));
+        assertEquals(8L, stats.get("coalescedTicks"));
+    }
+
+    @Test
+    void testOverrunCountedWhenTickTakesLongerThanStep() {
+        long[] tickCost = {STEP / 2};
+        SimulationLoop loop = new SimulationLoop(s -> clock.addAndGet(tickCost[0]), 10, 3,
+                SimulationLoop.OverrunPolicy.SKIP, clock::get);
+
+        long nextTick = loop.runDue(0);
+        assertEquals(0L, loop.getStatistics().get("overrunTicks"));
+
+        tickCost[0] = STEP * 3 / 2;
+        clock.set(nextTick);
+        loop.runDue(nextTick);
+
+        Map<String, Object> stats = loop.getStatistics();
+        assertEquals(2L, stats.get("executedTicks"));
+        assertEquals(1L, stats.get("overrunTicks"));
+        assertEquals(15.0, stats.get("maxTickMillis"));
+    }
+}
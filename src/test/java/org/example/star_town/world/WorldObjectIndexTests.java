@@ -0,0 +1,80 @@
+package org.example.star_town.world;
+
+import org.example.star_town.model.WorldObjectEntity;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 世界对象空间索引测试
+ */
+class WorldObjectIndexTests {
+
+    private static WorldObjectEntity createObject(long id, double x, double y, Double width, Double height) {
+        WorldObjectEntity object = new WorldObjectEntity();
+        object.setId(id);
+        object.setName("object-" + id);
+        object.setType("TEST");
+        object.setPositionX(x);
+        object.setPositionY(y);
+        object.setWidth(width);
+        object.setHeight(height);
+        return object;
+    }
+
+    @Test
+    void testLargeObjectFoundFromAnyCoveredCellOnce() {
+        WorldObjectIndex index = new WorldObjectIndex(10);
+        WorldObjectEntity building = createObject(1, 0, 0, 45.0, 25.0); // 覆盖5x3个网格
+        WorldObjectEntity lamp = createObject(2, 60, 5, null, null);
+        index.update(building);
+        index.update(lamp);
+
+        // 查询点远离对象原点，但落在包围盒内
+        assertEquals(List.of(building), index.query(40, 20, 1));
+        // 覆盖整个对象的查询也只返回一次
+        List<WorldObjectEntity> all = index.query(30, 10, 40);
+        assertEquals(2, all.size());
+        assertTrue(all.containsAll(List.of(building, lamp)));
+        assertEquals(16, index.getStatistics().get("occupiedCells")); // 15 + 1
+    }
+
+    @Test
+    void testRefreshReindexesOnlyChangedObjects() {
+        WorldObjectIndex index = new WorldObjectIndex(10);
+        List<WorldObjectEntity> objects = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            objects.add(createObject(i, i * 10, 0, 5.0, 5.0));
+        }
+        assertEquals(20, index.refresh(objects));
+        assertEquals(0, index.refresh(objects));
+
+        WorldObjectEntity moved = objects.get(3);
+        moved.setPositionX(500.0);
+        WorldObjectEntity resized = objects.get(7);
+        resized.setWidth(30.0);
+        assertEquals(2, index.refresh(objects));
+
+        assertTrue(index.query(32, 2, 1).isEmpty());
+        assertEquals(List.of(moved), index.query(502, 2, 1));
+        assertTrue(index.query(95, 2, 1).contains(resized));
+        assertEquals(22L, index.getStatistics().get("reindexCount"));
+    }
+
+    @Test
+    void testRemoveClearsAllCoveredCells() {
+        WorldObjectIndex index = new WorldObjectIndex(10);
+        WorldObjectEntity wall = createObject(1, 0, 0, 35.0, 1.0);
+        WorldObjectEntity post = createObject(2, 15, 0, null, null);
+        index.update(wall);
+        index.update(post);
+
+        index.remove(1L);
+        assertEquals(1, index.size());
+        assertEquals(List.of(post), index.query(15, 0, 30));
+        assertEquals(1, index.getStatistics().get("occupiedCells"));
+    }
+}
@@ -0,0 +1,122 @@
+package org.example.star_town.world;
+
+import org.example.star_town.actions.EatAction;
+import org.example.star_town.actions.MoveAction;
+import org.example.star_town.actions.WorkAction;
+import org.example.star_town.agent.Agent;
+import org.example.star_town.agent.AgentConfig;
+import org.example.star_town.agent.AgentType;
+import org.example.star_town.ai.goap.Action;
+import org.example.star_town.ai.goap.ActionContext;
+import org.example.star_town.ai.goap.Goal;
+import org.example.star_town.model.WorldObjectEntity;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 世界二进制快照测试
+ */
+class WorldSnapshotTests {
+
+    @TempDir
+    Path tempDir;
+
+    private static Agent createAgent(String id, List<Action> actions) {
+        AgentConfig config = new AgentConfig(id, id, AgentType.WORKER);
+        config.setProperty("energy", 80);
+        Agent agent = new Agent(id, "Agent " + id, AgentType.WORKER, config);
+        agent.setPosition(new Position(12.5, -3.25));
+        agent.setState("hunger", 75);
+        agent.setState("hasWorkplace", true);
+        agent.setState("mood", "cheerful");
+        agent.setState("nearbyAgents", List.of("a", "b"));
+        agent.setMemory("lastMeal", 123456789L);
+        agent.setMemory("favoriteSpot", Map.of("x", 1.5, "y", 2.5));
+        agent.addGoal(new Goal("Eat", Map.of("hunger", 0), 7));
+        actions.forEach(agent::addAction);
+        agent.setCurrentPlan(new ArrayList<>(List.of(actions.get(1), actions.get(2))));
+        agent.setCurrentPlanIndex(1);
+        agent.setStatus(Agent.AgentStatus.EXECUTING);
+        return agent;
+    }
+
+    @Test
+    void testRoundTripRestoresAgentsObjectsAndGameTime() throws Exception {
+        List<Action> actions = List.of(new MoveAction(), new EatAction(), new WorkAction("farmer"));
+        Agent original = createAgent("worker-1", actions);
+
+        WorldObjectEntity house = new WorldObjectEntity();
+        house.setId(42L);
+        house.setName("House");
+        house.setType("BUILDING");
+        house.setPositionX(100.0);
+        house.setPositionY(200.0);
+        house.setWidth(20.0);
+        house.setCapacity(4);
+        house.setOwnerAgentId("worker-1");
+
+        Path file = tempDir.resolve("world.snapshot");
+        long bytes = WorldSnapshot.write(file, 9876, List.of(original), List.of(house));
+        assertEquals(Files.size(file), bytes);
+
+        WorldSnapshot snapshot = WorldSnapshot.read(file);
+        assertEquals(9876, snapshot.getGameTime());
+
+        WorldObjectEntity restoredHouse = snapshot.getWorldObjects().get(0);
+        assertEquals(42L, restoredHouse.getId());
+        assertEquals(20.0, restoredHouse.getWidth());
+        assertNull(restoredHouse.getHeight());
+        assertEquals(4, restoredHouse.getCapacity());
+        assertEquals("worker-1", restoredHouse.getOwnerAgentId());
+
+        Agent restored = snapshot.getAgents().get(0);
+        assertEquals("worker-1", restored.getId());
+        assertEquals(AgentType.WORKER, restored.getType());
+        assertEquals(original.getPosition(), restored.getPosition());
+        assertEquals(Agent.AgentStatus.EXECUTING, restored.getStatus());
+        assertEquals(original.getState(), restored.getState());
+        assertEquals(original.getMemory(), restored.getMemory());
+        assertEquals(80, restored.getConfig().getProperty("energy", Integer.class));
+        assertEquals(1, restored.getGoals().size());
+        assertEquals(7, restored.getGoals().get(0).getPriority());
+        assertEquals(Map.of("hunger", 0), restored.getGoals().get(0).getDesiredState());
+
+        // 计划中的动作与可用动作是同一批实例，子类字段也被恢复
+        assertEquals(3, restored.getAvailableActions().size());
+        assertSame(restored.getAvailableActions().get(1), restored.getCurrentPlan().get(0));
+        assertEquals(1, restored.getCurrentPlanIndex());
+        Action work = restored.getCurrentPlan().get(1);
+        assertInstanceOf(WorkAction.class, work);
+        assertEquals("Work_farmer", work.getName());
+        ActionContext context = new ActionContext("worker-1");
+        assertTrue(work.execute(context));
+        assertEquals("farmer", context.get("workType", String.class));
+    }
+
+    @Test
+    void testSharedActionDefinitionsWrittenOnce() throws Exception {
+        List<Agent> agents = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            // 每个智能体有自己的动作实例，内容相同
+            agents.add(createAgent("agent-" + i, List.of(new MoveAction(), new EatAction(), new WorkAction("farmer"))));
+        }
+
+        Path file = tempDir.resolve("town.snapshot");
+        long bytes = WorldSnapshot.write(file, 1, agents, List.of());
+        assertTrue(bytes / agents.size() < 200, "bytes per agent: " + bytes / agents.size());
+
+        WorldSnapshot snapshot = WorldSnapshot.read(file);
+        assertEquals(2000, snapshot.getAgents().size());
+        assertSame(snapshot.getAgents().get(0).getAvailableActions().get(2),
+                snapshot.getAgents().get(1999).getAvailableActions().get(2));
+        assertEquals("agent-1999", snapshot.getAgents().get(1999).getId());
+    }
+}